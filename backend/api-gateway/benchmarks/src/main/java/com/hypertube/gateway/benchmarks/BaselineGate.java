@@ -0,0 +1,124 @@
+package com.hypertube.gateway.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a JMH JSON result against the stored baseline and fails the build on regression
+ *
+ * Only gc.alloc.rate.norm (bytes per operation) is gated: it does not depend on the machine,
+ * so a baseline recorded anywhere holds on a CI runner. Scores (ops/us, us/op) depend on the
+ * hardware and on noisy neighbours; they are printed with their delta for the reviewer but
+ * never fail the build. A benchmark of the baseline that is missing from the result, or that
+ * lost its allocation metric (run without -prof gc), fails: dropping or renaming a benchmark
+ * must not hide a regression. New benchmarks are reported until added to the baseline.
+ *
+ * Usage: BaselineGate baseline.json jmh-result.json
+ *   -Dgate.allocTolerance=0.10
+ */
+public final class BaselineGate {
+
+    private static final String ALLOC_METRIC = "gc.alloc.rate.norm";
+    // Marge absolue pour les benchmarks qui n'allouent presque rien
+    private static final double ALLOC_SLACK_BYTES = 16.0;
+    private static final String PACKAGE_PREFIX = "com.hypertube.gateway.";
+
+    private BaselineGate() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BaselineGate <baseline.json> <jmh-result.json>");
+            System.exit(2);
+        }
+        double allocTolerance = Double.parseDouble(System.getProperty("gate.allocTolerance", "0.10"));
+
+        Map<String, JsonNode> baseline = load(new File(args[0]));
+        Map<String, JsonNode> current = load(new File(args[1]));
+
+        int failures = 0;
+        System.out.printf("%-80s %-6s %14s %14s %9s  %s%n", "Benchmark", "Mode", "Baseline", "Current", "Delta", "Status");
+        for (Map.Entry<String, JsonNode> entry : new TreeMap<>(baseline).entrySet()) {
+            String key = entry.getKey();
+            JsonNode expected = entry.getValue();
+            JsonNode actual = current.get(key);
+            String mode = expected.path("mode").asText();
+            if (actual == null) {
+                System.out.printf("%-80s %-6s %14s %14s %9s  %s%n", shorten(key), mode, "", "", "", "FAIL missing");
+                failures++;
+                continue;
+            }
+
+            // Score : dépend de la machine, affiché sans seuil
+            report(key, mode, expected.path("primaryMetric").path("score").asDouble(),
+                    actual.path("primaryMetric").path("score").asDouble(), "info");
+
+            JsonNode expectedAlloc = expected.path("secondaryMetrics").path(ALLOC_METRIC).path("score");
+            JsonNode actualAlloc = actual.path("secondaryMetrics").path(ALLOC_METRIC).path("score");
+            if (!expectedAlloc.isNumber()) {
+                continue;
+            }
+            if (!actualAlloc.isNumber()) {
+                System.out.printf("%-80s %-6s %14s %14s %9s  %s%n", shorten(key + " alloc"), "B/op", "", "", "",
+                        "FAIL missing " + ALLOC_METRIC);
+                failures++;
+                continue;
+            }
+            double limit = expectedAlloc.asDouble() * (1 + allocTolerance) + ALLOC_SLACK_BYTES;
+            boolean regressed = actualAlloc.asDouble() > limit;
+            report(key + " alloc", "B/op", expectedAlloc.asDouble(), actualAlloc.asDouble(), regressed ? "FAIL" : "ok");
+            failures += regressed ? 1 : 0;
+        }
+        for (String key : current.keySet()) {
+            if (!baseline.containsKey(key)) {
+                System.out.printf("%-80s %-6s %14s %14s %9s  %s%n", shorten(key), current.get(key).path("mode").asText(),
+                        "", "", "", "WARN not in baseline");
+            }
+        }
+
+        if (failures > 0) {
+            System.err.printf("%d regression(s) against %s%n", failures, args[0]);
+            System.exit(1);
+        }
+        System.out.println("No regression against " + args[0]);
+    }
+
+    private static void report(String key, String mode, double expected, double actual, String status) {
+        double delta = expected == 0 ? 0 : (actual - expected) / expected * 100;
+        System.out.printf("%-80s %-6s %14.3f %14.3f %+8.1f%%  %s%n",
+                shorten(key), mode, expected, actual, delta, status);
+    }
+
+    private static String shorten(String key) {
+        return key.startsWith(PACKAGE_PREFIX) ? key.substring(PACKAGE_PREFIX.length()) : key;
+    }
+
+    /**
+     * Indexes a result file by benchmark, parameters and mode
+     */
+    private static Map<String, JsonNode> load(File file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText());
+            JsonNode params = result.path("params");
+            if (params.isObject()) {
+                Map<String, String> sorted = new TreeMap<>();
+                Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    sorted.put(field.getKey(), field.getValue().asText());
+                }
+                key.append(sorted);
+            }
+            key.append(':').append(result.path("mode").asText());
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,95 @@
+package com.hypertube.gateway.benchmarks;
+
+import com.hypertube.gateway.config.HypertubeGatewayProperties;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+
+/**
+ * Fixtures shared by the benchmarks: gateway properties, signed tokens, mock exchanges
+ */
+final class Exchanges {
+
+    // 48 octets en Base64, comme un JWT_SECRET de production
+    static final String SECRET = "aHlwZXJ0dWJlLWJlbmNobWFyay1zZWNyZXQta2V5LWZvci1obWFjLXNoYTI1Ni0hIQ==";
+
+    private Exchanges() {}
+
+    static HypertubeGatewayProperties properties() {
+        HypertubeGatewayProperties properties = new HypertubeGatewayProperties();
+        properties.getJwt().setSecret(SECRET);
+        return properties;
+    }
+
+    static MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+
+    /**
+     * Provider with no bean, as when Redis is not configured
+     */
+    static <T> ObjectProvider<T> absent(Class<T> type) {
+        return new DefaultListableBeanFactory().getBeanProvider(type);
+    }
+
+    static String token(String userId) {
+        Instant now = Instant.now();
+        return Jwts.builder()
+                .subject(userId)
+                .claim("username", "bench-" + userId)
+                .claim("email", "bench-" + userId + "@hypertube.local")
+                .claim("roles", "USER")
+                .issuedAt(Date.from(now))
+                .expiration(Date.from(now.plus(1, ChronoUnit.HOURS)))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)))
+                .compact();
+    }
+
+    static MockServerWebExchange exchange(String path, String token) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get(path)
+                .header(HttpHeaders.USER_AGENT, "jmh")
+                .header(HttpHeaders.ACCEPT, "application/json");
+        if (token != null) {
+            request.header(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        }
+        return MockServerWebExchange.from(request);
+    }
+
+    /**
+     * End of the chain: keeps the exchange forwarded by the filter so that its work is not eliminated
+     */
+    static final class Terminal implements GatewayFilterChain {
+
+        ServerWebExchange forwarded;
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange) {
+            forwarded = exchange;
+            return Mono.empty();
+        }
+
+        /**
+         * Runs the filter synchronously (the chain never suspends) and returns what reached the upstream side
+         */
+        ServerWebExchange run(GatewayFilter filter, ServerWebExchange exchange) {
+            forwarded = null;
+            filter.filter(exchange, this).subscribe();
+            return forwarded;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.hypertube.gateway.benchmarks;
+
+import com.hypertube.gateway.config.HypertubeGatewayProperties;
+import com.hypertube.gateway.filter.JwtAuthenticationGatewayFilterFactory;
+import com.hypertube.gateway.revocation.TokenRevocationList;
+import com.hypertube.gateway.service.JwtService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT filter on a protected path (token already verified once, i.e. the steady state of a session)
+ * and on a public path (early exit)
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    @Param({"/movies/42", "/api/movies/42"})
+    public String path;
+
+    private GatewayFilter filter;
+    private MockServerWebExchange exchange;
+    private final Exchanges.Terminal chain = new Exchanges.Terminal();
+
+    @Setup
+    public void setup() {
+        HypertubeGatewayProperties properties = Exchanges.properties();
+        MeterRegistry registry = Exchanges.meterRegistry();
+        JwtService jwtService = new JwtService(properties, registry);
+        TokenRevocationList revocationList = new TokenRevocationList(properties,
+                Exchanges.absent(ReactiveStringRedisTemplate.class), registry);
+
+        filter = new JwtAuthenticationGatewayFilterFactory(properties, jwtService, revocationList)
+                .apply(new JwtAuthenticationGatewayFilterFactory.Config());
+        exchange = Exchanges.exchange(path, Exchanges.token("42"));
+
+        if (chain.run(filter, exchange) == null) {
+            throw new IllegalStateException("Request rejected by the JWT filter: " + exchange.getResponse().getStatusCode());
+        }
+    }
+
+    @Benchmark
+    public ServerWebExchange filter() {
+        return chain.run(filter, exchange);
+    }
+}
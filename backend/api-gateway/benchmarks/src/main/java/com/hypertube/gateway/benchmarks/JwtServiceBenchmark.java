@@ -0,0 +1,52 @@
+package com.hypertube.gateway.benchmarks;
+
+import com.hypertube.gateway.service.JwtPrincipal;
+import com.hypertube.gateway.service.JwtService;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token verification: cached principal lookup against a full parse and signature check
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private JwtService jwtService;
+    private String token;
+
+    @Setup
+    public void setup() {
+        jwtService = new JwtService(Exchanges.properties(), Exchanges.meterRegistry());
+        token = Exchanges.token("42");
+        if (jwtService.verify(token) == null) {
+            throw new IllegalStateException("Benchmark token rejected");
+        }
+    }
+
+    @Benchmark
+    public JwtPrincipal verifyCached() {
+        return jwtService.verify(token);
+    }
+
+    @Benchmark
+    public Optional<Claims> parse() {
+        return jwtService.extractClaims(token);
+    }
+}
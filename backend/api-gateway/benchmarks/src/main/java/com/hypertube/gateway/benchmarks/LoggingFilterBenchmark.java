@@ -0,0 +1,65 @@
+package com.hypertube.gateway.benchmarks;
+
+import com.hypertube.gateway.filter.LoggingGatewayFilterFactory;
+import com.hypertube.gateway.logging.AccessLogWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logging filter: trace id, response decoration and the access log record handed to the writer
+ * thread when the (empty) response completes
+ * The writer runs as in production; the access logger itself is off (logback.xml), so that the
+ * benchmark measures the request path and not the appender.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggingFilterBenchmark {
+
+    private AccessLogWriter accessLogWriter;
+    private GatewayFilter filter;
+    private MockServerWebExchange exchange;
+    private final Exchanges.Terminal chain = new Exchanges.Terminal();
+
+    @Setup
+    public void setup() {
+        accessLogWriter = new AccessLogWriter(Exchanges.properties(), Exchanges.meterRegistry());
+        accessLogWriter.start();
+
+        filter = new LoggingGatewayFilterFactory(accessLogWriter)
+                .apply(new LoggingGatewayFilterFactory.Config("MOVIES"));
+        exchange = Exchanges.exchange("/movies/42", null);
+        exchange.getResponse().setStatusCode(HttpStatus.OK);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        accessLogWriter.stop();
+    }
+
+    @Benchmark
+    public ServerWebExchange filter() {
+        ServerWebExchange forwarded = chain.run(filter, exchange);
+        // Le record est émis à l'écriture de la réponse, comme après NettyWriteResponseFilter
+        forwarded.getResponse().setComplete().subscribe();
+        return forwarded;
+    }
+}
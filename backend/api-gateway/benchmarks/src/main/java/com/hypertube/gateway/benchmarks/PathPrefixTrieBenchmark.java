@@ -0,0 +1,81 @@
+package com.hypertube.gateway.benchmarks;
+
+import com.hypertube.gateway.routing.PathPrefixTrie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Public path matching with a large pattern list: prefix trie against the AntPathMatcher loop it replaced
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathPrefixTrieBenchmark {
+
+    @Param({"1000", "5000"})
+    public int patterns;
+
+    private final AntPathMatcher antPathMatcher = new AntPathMatcher();
+    private List<String> patternList;
+    private PathPrefixTrie trie;
+    private String matchingPath;
+    private String missingPath;
+
+    @Setup
+    public void setup() {
+        patternList = new ArrayList<>(patterns);
+        for (int i = 0; i < patterns; i++) {
+            // Moitié sous-arbres, moitié chemins exacts
+            patternList.add(i % 2 == 0 ? "/api/public/section-" + i + "/**" : "/api/public/page-" + i);
+        }
+        trie = PathPrefixTrie.compile(patternList);
+        matchingPath = "/api/public/section-" + (patterns - 2) + "/movies/42";
+        missingPath = "/movies/42/stream";
+    }
+
+    @Benchmark
+    public boolean trieMatch() {
+        return trie.matches(matchingPath);
+    }
+
+    @Benchmark
+    public boolean trieMiss() {
+        return trie.matches(missingPath);
+    }
+
+    @Benchmark
+    public boolean antMatch() {
+        return antMatches(matchingPath);
+    }
+
+    @Benchmark
+    public boolean antMiss() {
+        return antMatches(missingPath);
+    }
+
+    private boolean antMatches(String path) {
+        for (String pattern : patternList) {
+            if (antPathMatcher.match(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
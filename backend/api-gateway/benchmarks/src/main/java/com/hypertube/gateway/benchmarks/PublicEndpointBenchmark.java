@@ -0,0 +1,44 @@
+package com.hypertube.gateway.benchmarks;
+
+import com.hypertube.gateway.config.HypertubeGatewayProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HypertubeGatewayProperties.isPublicEndpoint, called by the JWT filter on every request
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PublicEndpointBenchmark {
+
+    // Public avec sous-chemin, protégé, public exact
+    @Param({"/api/movies/42", "/movies/42/stream", "/api/auth/signin"})
+    public String path;
+
+    private HypertubeGatewayProperties properties;
+
+    @Setup
+    public void setup() {
+        properties = Exchanges.properties();
+    }
+
+    @Benchmark
+    public boolean isPublicEndpoint() {
+        return properties.isPublicEndpoint(path);
+    }
+}
@@ -0,0 +1,104 @@
+package com.hypertube.gateway.benchmarks;
+
+import com.hypertube.gateway.context.IdentityAssertionSigner;
+import com.hypertube.gateway.context.RequestContext;
+import com.hypertube.gateway.context.RequestEnrichmentFilter;
+import com.hypertube.gateway.service.JwtPrincipal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.filter.headers.RemoveHopByHopHeadersFilter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headers of an authenticated request, from the route filters to what the routing filter sends upstream
+ *
+ * legacy replays the former path: the JWT, logging and request header filters each mutated the
+ * request (three header copies and two UUID.randomUUID()) before the routing filter copied the
+ * headers once more. enrichment is the current one: the filters record into RequestContext and
+ * RequestEnrichmentFilter writes into the routing filter's copy. Compare gc.alloc.rate.norm;
+ * enrichment also signs the identity (X-Gateway-Assertion), which legacy never did.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestEnrichmentBenchmark {
+
+    private MockServerWebExchange exchange;
+    private JwtPrincipal principal;
+    private List<HttpHeadersFilter> routingFilters;
+    private List<HttpHeadersFilter> legacyRoutingFilters;
+
+    @Setup
+    public void setup() {
+        exchange = Exchanges.exchange("/movies/42", Exchanges.token("42"));
+        Instant now = Instant.now();
+        principal = new JwtPrincipal("42", "bench-42", "bench-42@hypertube.local", "USER",
+                now, now.plus(1, ChronoUnit.HOURS));
+        // Filtres d'en-têtes du routage, dans l'ordre de NettyRoutingFilter
+        IdentityAssertionSigner signer = new IdentityAssertionSigner(Exchanges.properties());
+        routingFilters = List.of(new RemoveHopByHopHeadersFilter(), new RequestEnrichmentFilter(signer));
+        legacyRoutingFilters = List.of(new RemoveHopByHopHeadersFilter());
+    }
+
+    @Benchmark
+    public HttpHeaders legacy() {
+        // JwtAuthenticationGatewayFilterFactory
+        ServerHttpRequest request = exchange.getRequest().mutate()
+                .header("X-User-Id", principal.userId())
+                .header("X-Username", principal.username())
+                .header("X-User-Email", principal.email())
+                .header("X-User-Roles", principal.roles())
+                .header("X-Auth-Method", "JWT")
+                .header("X-Gateway-Timestamp", String.valueOf(System.currentTimeMillis()))
+                .build();
+        ServerWebExchange current = exchange.mutate().request(request).build();
+
+        // LoggingGatewayFilterFactory
+        request = current.getRequest().mutate()
+                .header("X-Trace-Id", UUID.randomUUID().toString().substring(0, 8))
+                .build();
+        current = current.mutate().request(request).build();
+
+        // RequestHeaderGatewayFilterFactory
+        request = current.getRequest().mutate()
+                .header("X-Gateway-Version", "1.0.0")
+                .header("X-Request-Id", UUID.randomUUID().toString())
+                .header("X-Forwarded-By", "hypertube-gateway")
+                .build();
+        current = current.mutate().request(request).build();
+
+        return HttpHeadersFilter.filterRequest(legacyRoutingFilters, current);
+    }
+
+    @Benchmark
+    public HttpHeaders enrichment() {
+        // Un contexte neuf par requête, comme en production
+        exchange.getAttributes().remove(RequestContext.ATTR);
+        RequestContext context = RequestContext.of(exchange);
+        context.authenticate(principal);
+        context.traceId();
+
+        return HttpHeadersFilter.filterRequest(routingFilters, exchange);
+    }
+}
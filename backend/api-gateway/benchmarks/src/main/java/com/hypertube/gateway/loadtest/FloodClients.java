@@ -0,0 +1,157 @@
+package com.hypertube.gateway.loadtest;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+import reactor.netty.ByteBufFlux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Closed-loop clients flooding one route, to overload the gateway next to the measured traffic
+ *
+ * Each client sends its next request as soon as the previous one is answered, as an impatient
+ * browser or a script would: the load follows the gateway's capacity instead of a fixed rate.
+ * With back-off, a client answered 503 or 429 with Retry-After waits that long before sending
+ * again, as a well-behaved client does; without it, a rejection is followed by an immediate
+ * re-send, which is the worst case for the load shedder. The flood is recorded in its own
+ * RouteStats row ("<route>-flood") during the measurement window.
+ */
+final class FloodClients implements AutoCloseable {
+
+    private static final Duration ERROR_PAUSE = Duration.ofMillis(10);
+
+    private final Scenario scenario;
+    private final List<VirtualUser> users;
+    private final Scenario.Catalog catalog;
+    private final int clients;
+    private final boolean backoff;
+    private final RouteStats stats;
+    private final ConnectionProvider connections;
+    private final LoopResources loops;
+    private final HttpClient client;
+    private final Disposable.Composite running = Disposables.composite();
+
+    private volatile long measureFrom = Long.MAX_VALUE;
+    private volatile long measureUntil = Long.MIN_VALUE;
+
+    FloodClients(String baseUrl, Scenario scenario, List<VirtualUser> users, Scenario.Catalog catalog,
+                 int clients, boolean backoff, Duration timeout) {
+        this.scenario = scenario;
+        this.users = users;
+        this.catalog = catalog;
+        this.clients = clients;
+        this.backoff = backoff;
+        this.stats = new RouteStats(scenario.route() + "-flood");
+        this.connections = ConnectionProvider.builder("flood")
+                .maxConnections(clients)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        // Boucle séparée : le générateur ouvert garde la sienne pour tenir son calendrier
+        this.loops = LoopResources.create("flood", 1, true);
+        this.client = HttpClient.create(connections)
+                .runOn(loops)
+                .baseUrl(baseUrl)
+                .responseTimeout(timeout);
+    }
+
+    /**
+     * Starts the clients now; only the responses between warmup and warmup + duration are recorded
+     */
+    void start(Duration warmup, Duration duration) {
+        long now = System.nanoTime();
+        measureFrom = now + warmup.toNanos();
+        measureUntil = measureFrom + duration.toNanos();
+        for (int i = 0; i < clients; i++) {
+            SplittableRandom random = new SplittableRandom(1000 + i);
+            VirtualUser user = users.get(i % users.size());
+            running.add(Mono.defer(() -> send(scenario.next(random, catalog), user))
+                    .flatMap(pause -> pause.isZero() ? Mono.just(pause) : Mono.delay(pause).thenReturn(pause))
+                    .repeat()
+                    .subscribe());
+        }
+    }
+
+    String describe() {
+        return String.format("%d clients en boucle sur %s, %s", clients, scenario.route(),
+                backoff ? "Retry-After respecté" : "renvoi immédiat après un refus");
+    }
+
+    RouteStats.Snapshot snapshot() {
+        return stats.snapshot();
+    }
+
+    @Override
+    public void close() {
+        running.dispose();
+        connections.disposeLater().block(Duration.ofSeconds(5));
+        loops.dispose();
+    }
+
+    /**
+     * One request; emits the pause before the next one
+     */
+    private Mono<Duration> send(Scenario.Request request, VirtualUser user) {
+        long sent = System.nanoTime();
+        HttpClient.RequestSender sender = client
+                .headers(headers -> {
+                    headers.set("X-Forwarded-For", user.forwardedFor());
+                    if (request.authenticated()) {
+                        headers.set(HttpHeaderNames.AUTHORIZATION, "Bearer " + user.token());
+                    }
+                    if (request.range() != null) {
+                        headers.set(HttpHeaderNames.RANGE, request.range());
+                    }
+                    if (request.body() != null) {
+                        headers.set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON);
+                    }
+                })
+                .request(request.method())
+                .uri(request.path());
+        HttpClient.ResponseReceiver<?> receiver = request.body() != null
+                ? sender.send(ByteBufFlux.fromString(Mono.just(request.body())))
+                : sender;
+
+        return receiver.response((response, body) -> body
+                        .map(buffer -> (long) buffer.readableBytes())
+                        .reduce(0L, Long::sum)
+                        .map(bytes -> {
+                            record(sent, OpenLoadGenerator.status(response), bytes);
+                            return pause(response.status().code(),
+                                    response.responseHeaders().get(HttpHeaderNames.RETRY_AFTER));
+                        }))
+                .next()
+                .defaultIfEmpty(Duration.ZERO)
+                .onErrorResume(error -> {
+                    record(sent, OpenLoadGenerator.isTimeout(error) ? OpenLoadGenerator.TIMEOUT : OpenLoadGenerator.ERROR, 0);
+                    // Connexion refusée ou coupée : pas de boucle serrée sur l'erreur
+                    return Mono.just(ERROR_PAUSE);
+                });
+    }
+
+    private void record(long sent, String outcome, long bytes) {
+        long now = System.nanoTime();
+        if (now >= measureFrom && now < measureUntil) {
+            // Boucle fermée : chaque requête part dès que possible, heure prévue = heure d'envoi
+            stats.record(sent, sent, now, outcome, bytes);
+        }
+    }
+
+    private Duration pause(int status, String retryAfter) {
+        if (!backoff || (status != 503 && status != 429) || retryAfter == null) {
+            return Duration.ZERO;
+        }
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(retryAfter.trim())));
+        } catch (NumberFormatException e) {
+            return Duration.ZERO; // date HTTP : non utilisée par le gateway
+        }
+    }
+}
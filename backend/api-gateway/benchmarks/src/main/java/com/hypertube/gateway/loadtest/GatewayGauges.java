@@ -0,0 +1,66 @@
+package com.hypertube.gateway.loadtest;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Overload and concurrency gauges of the gateway, sampled during the measurement
+ * They explain the 503s of the report: shedding follows the pressure, the limiters their limit.
+ */
+final class GatewayGauges {
+
+    private static final String[] OVERLOAD = {
+            "gateway.overload.pressure", "gateway.overload.cpu", "gateway.overload.event_loop_lag"};
+    private static final String LIMIT = "gateway.concurrency.limit";
+
+    private final MeterRegistry registry;
+    private final Map<String, double[]> samples = new TreeMap<>(); // nom -> {min, max, dernier}
+    private Disposable sampling;
+
+    GatewayGauges(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    void start(Duration delay, Duration interval) {
+        sampling = Flux.interval(delay, interval).subscribe(tick -> sample());
+    }
+
+    void stop() {
+        if (sampling != null) {
+            sampling.dispose();
+        }
+        sample();
+    }
+
+    void print() {
+        System.out.println();
+        System.out.printf("%-40s %10s %10s %10s%n", "Gateway (pendant la mesure)", "min", "max", "fin");
+        samples.forEach((name, values) ->
+                System.out.printf("%-40s %10.3f %10.3f %10.3f%n", name, values[0], values[1], values[2]));
+    }
+
+    private synchronized void sample() {
+        for (String name : OVERLOAD) {
+            Gauge gauge = registry.find(name).gauge();
+            if (gauge != null) {
+                record(name, gauge.value());
+            }
+        }
+        for (Gauge gauge : registry.find(LIMIT).gauges()) {
+            record(LIMIT + "{" + gauge.getId().getTag("group") + "}", gauge.value());
+        }
+    }
+
+    private void record(String name, double value) {
+        double[] values = samples.computeIfAbsent(name, key -> new double[]{value, value, value});
+        values[0] = Math.min(values[0], value);
+        values[1] = Math.max(values[1], value);
+        values[2] = value;
+    }
+}
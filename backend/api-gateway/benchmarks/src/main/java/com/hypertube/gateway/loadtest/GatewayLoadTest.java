@@ -0,0 +1,367 @@
+package com.hypertube.gateway.loadtest;
+
+import com.hypertube.gateway.ApiGatewayApplication;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+import reactor.netty.ByteBufFlux;
+import reactor.netty.http.client.HttpClient;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+/**
+ * End-to-end load test of the gateway, on a single machine and without Docker
+ *
+ * Starts stub auth and video services on random ports, then the real gateway (GatewayConfig
+ * routes, filters, application.yml) pointed at them, drives it with an open-model generator and
+ * prints coordinated-omission-corrected latencies per route.
+ *
+ * java -cp target/benchmarks.jar com.hypertube.gateway.loadtest.GatewayLoadTest --rate=500 --duration=60s
+ *
+ * Mixed overload (load shedding): playback at a steady rate while closed-loop clients flood a
+ * low-priority route, once with and once without --hypertube.gateway.load-shedding.enabled=false:
+ * --mix=stream=1 --rate=20 --flood=comments:100 --flood-backoff=retry-after
+ * Options with a dot (--spring.data.redis.host=..., --hypertube.gateway...) are passed to the gateway.
+ */
+public final class GatewayLoadTest {
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("rate", "200");                               // requêtes/s, toutes routes confondues
+        DEFAULTS.put("duration", "60s");
+        DEFAULTS.put("warmup", "15s");
+        DEFAULTS.put("arrivals", "poisson");                       // poisson | constant
+        DEFAULTS.put("users", "1000");
+        DEFAULTS.put("movies", "500");
+        DEFAULTS.put("mix", "");                                   // route=poids,... (défaut : Scenario.defaults)
+        DEFAULTS.put("auth-latency", "lognormal:15ms:120ms");
+        DEFAULTS.put("auth-body", "512B");
+        DEFAULTS.put("video-latency", "lognormal:10ms:80ms");
+        DEFAULTS.put("video-body", "4KB");
+        DEFAULTS.put("video-instances", "1");
+        DEFAULTS.put("stream-size", "2GB");
+        DEFAULTS.put("stream-chunk", "1MB");
+        DEFAULTS.put("timeout", "30s");
+        DEFAULTS.put("max-in-flight", "10000");
+        DEFAULTS.put("flood", "");                                 // route:clients en boucle fermée (surcharge)
+        DEFAULTS.put("flood-backoff", "retry-after");              // retry-after | none
+        DEFAULTS.put("hgrm-dir", "");                              // distributions complètes par route
+    }
+
+    private GatewayLoadTest() {}
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        Map<String, String> gatewayProperties = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (arg.equals("--help")) {
+                usage();
+                return;
+            }
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            String name = arg.substring(2, separator);
+            String value = arg.substring(separator + 1);
+            if (name.contains(".")) {
+                gatewayProperties.put(name, value);
+            } else if (options.containsKey(name)) {
+                options.put(name, value);
+            } else {
+                throw new IllegalArgumentException("Unknown option --" + name + " (see --help)");
+            }
+        }
+
+        long streamSize = DataSize.parse(options.get("stream-size")).toBytes();
+        long streamChunk = DataSize.parse(options.get("stream-chunk")).toBytes();
+        List<Scenario> scenarios = scenarios(options.get("mix"));
+
+        List<AutoCloseable> resources = new ArrayList<>();
+        try {
+            StubUpstream auth = StubUpstream.start("auth-service",
+                    LatencyDistribution.parse(options.get("auth-latency")),
+                    (int) DataSize.parse(options.get("auth-body")).toBytes());
+            resources.add(auth);
+            List<StubUpstream> videos = new ArrayList<>();
+            for (int i = 0; i < Integer.parseInt(options.get("video-instances")); i++) {
+                StubUpstream video = StubUpstream.startVideo("video-service-" + i,
+                        LatencyDistribution.parse(options.get("video-latency")),
+                        (int) DataSize.parse(options.get("video-body")).toBytes(), streamSize);
+                videos.add(video);
+                resources.add(video);
+            }
+
+            byte[] secret = new byte[48];
+            new SecureRandom().nextBytes(secret);
+            ConfigurableApplicationContext gateway = startGateway(gatewayProperties, secret, auth, videos);
+            resources.add(0, gateway::close);
+            int port = ((WebServerApplicationContext) gateway).getWebServer().getPort();
+            String baseUrl = "http://127.0.0.1:" + port;
+
+            System.out.println("Stubs :");
+            System.out.println("  " + auth);
+            videos.forEach(video -> System.out.println("  " + video));
+            System.out.println("Gateway : " + baseUrl);
+
+            List<VirtualUser> users = users(Integer.parseInt(options.get("users")), secret);
+            Scenario.Catalog catalog = new Scenario.Catalog(Integer.parseInt(options.get("movies")), streamSize, streamChunk);
+            checkRoutes(baseUrl, scenarios, users.get(0), catalog);
+
+            double rate = Double.parseDouble(options.get("rate"));
+            Duration warmup = DurationStyle.detectAndParse(options.get("warmup"));
+            Duration duration = DurationStyle.detectAndParse(options.get("duration"));
+            System.out.printf("Charge ouverte : %.0f req/s (%s), warmup %ds, mesure %ds, %d utilisateurs%n",
+                    rate, options.get("arrivals"), warmup.toSeconds(), duration.toSeconds(), users.size());
+
+            FloodClients flood = flood(options, baseUrl, users, catalog);
+            if (flood != null) {
+                resources.add(0, flood);
+                System.out.println("Surcharge : " + flood.describe());
+                flood.start(warmup, duration);
+            }
+
+            GatewayGauges gauges = new GatewayGauges(gateway.getBean(MeterRegistry.class));
+            gauges.start(warmup, Duration.ofMillis(500));
+            List<RouteStats.Snapshot> results;
+            try (OpenLoadGenerator generator = new OpenLoadGenerator(baseUrl, scenarios, users, catalog, rate,
+                    !"constant".equals(options.get("arrivals")), Integer.parseInt(options.get("max-in-flight")),
+                    DurationStyle.detectAndParse(options.get("timeout")))) {
+                results = new ArrayList<>(generator.run(warmup, duration));
+            }
+            if (flood != null) {
+                results.add(flood.snapshot());
+            }
+
+            gauges.stop();
+            report(results, duration);
+            gauges.print();
+            if (!options.get("hgrm-dir").isEmpty()) {
+                File directory = new File(options.get("hgrm-dir"));
+                directory.mkdirs();
+                for (RouteStats.Snapshot snapshot : results) {
+                    snapshot.writeDistribution(directory);
+                }
+                System.out.println("Distributions écrites dans " + directory.getAbsolutePath());
+            }
+        } finally {
+            for (AutoCloseable resource : resources) {
+                try {
+                    resource.close();
+                } catch (Exception e) {
+                    System.err.println("Arrêt : " + e.getMessage());
+                }
+            }
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Real gateway application, on a random port, routed to the stubs
+     * Defaults suited to a load test; any --a.b=c on the command line overrides them.
+     */
+    private static ConfigurableApplicationContext startGateway(Map<String, String> overrides, byte[] secret,
+                                                               StubUpstream auth, List<StubUpstream> videos) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("spring.data.redis.host", System.getenv().getOrDefault("REDIS_HOST", "127.0.0.1"));
+        properties.put("hypertube.gateway.jwt.secret", Base64.getEncoder().encodeToString(secret));
+        properties.put("hypertube.gateway.services.auth-service.url", auth.url());
+        properties.put("hypertube.gateway.services.video-service.url", videos.get(0).url());
+        if (videos.size() > 1) {
+            for (int i = 0; i < videos.size(); i++) {
+                properties.put("hypertube.gateway.services.video-service.instances[" + i + "]", videos.get(i).url());
+            }
+        }
+        // L'access log est écrit comme en production, mais pas sur la console du rapport
+        properties.put("logging.level.hypertube.gateway.access", "OFF");
+        properties.put("logging.level.com.hypertube.gateway", "WARN");
+        properties.put("logging.level.org.springframework.cloud.gateway", "WARN");
+        properties.putAll(overrides);
+
+        // En arguments de ligne de commande : ils passent avant application.yml
+        String[] args = properties.entrySet().stream()
+                .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(ApiGatewayApplication.class).run(args);
+    }
+
+    private static List<Scenario> scenarios(String mix) {
+        Map<String, Scenario> defaults = Scenario.defaults();
+        if (mix.isEmpty()) {
+            return new ArrayList<>(defaults.values());
+        }
+        List<Scenario> scenarios = new ArrayList<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.split("=", 2);
+            Scenario scenario = defaults.get(parts[0].trim());
+            if (scenario == null || parts.length != 2) {
+                throw new IllegalArgumentException("Unknown route in --mix: " + entry + " (routes: " + defaults.keySet() + ")");
+            }
+            scenarios.add(scenario.withWeight(Integer.parseInt(parts[1].trim())));
+        }
+        return scenarios;
+    }
+
+    /**
+     * --flood=route:clients, null without it
+     */
+    private static FloodClients flood(Map<String, String> options, String baseUrl, List<VirtualUser> users,
+                                      Scenario.Catalog catalog) {
+        String flood = options.get("flood");
+        if (flood.isEmpty()) {
+            return null;
+        }
+        String[] parts = flood.split(":", 2);
+        Scenario scenario = Scenario.defaults().get(parts[0].trim());
+        if (scenario == null || parts.length != 2) {
+            throw new IllegalArgumentException("Expected --flood=route:clients, got: " + flood
+                    + " (routes: " + Scenario.defaults().keySet() + ")");
+        }
+        String backoff = options.get("flood-backoff");
+        if (!backoff.equals("retry-after") && !backoff.equals("none")) {
+            throw new IllegalArgumentException("Expected --flood-backoff=retry-after|none, got: " + backoff);
+        }
+        return new FloodClients(baseUrl, scenario, users, catalog, Integer.parseInt(parts[1].trim()),
+                backoff.equals("retry-after"), DurationStyle.detectAndParse(options.get("timeout")));
+    }
+
+    private static List<VirtualUser> users(int count, byte[] secret) {
+        Instant now = Instant.now();
+        List<VirtualUser> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String userId = Integer.toString(1000 + i);
+            String token = Jwts.builder()
+                    .subject(userId)
+                    .claim("username", "loadtest-" + userId)
+                    .claim("email", "loadtest-" + userId + "@hypertube.local")
+                    .claim("roles", "USER")
+                    .issuedAt(Date.from(now))
+                    .expiration(Date.from(now.plus(1, ChronoUnit.DAYS)))
+                    .signWith(Keys.hmacShaKeyFor(secret))
+                    .compact();
+            // Une adresse par utilisateur dans 10.0.0.0/8, vue par le gateway via X-Forwarded-For
+            String forwardedFor = "10." + (i >> 16 & 0xff) + "." + (i >> 8 & 0xff) + "." + (i & 0xff);
+            users.add(new VirtualUser(userId, token, forwardedFor));
+        }
+        return users;
+    }
+
+    /**
+     * One request per route before the run: a route answering 401/404 would make the numbers meaningless
+     */
+    private static void checkRoutes(String baseUrl, List<Scenario> scenarios, VirtualUser user, Scenario.Catalog catalog) {
+        HttpClient client = HttpClient.create().baseUrl(baseUrl).responseTimeout(Duration.ofSeconds(10));
+        SplittableRandom random = new SplittableRandom(1);
+        System.out.println("Vérification des routes :");
+        for (Scenario scenario : scenarios) {
+            Scenario.Request request = scenario.next(random, catalog);
+            Integer status = client
+                    .headers(headers -> {
+                        headers.set("X-Forwarded-For", user.forwardedFor());
+                        if (request.authenticated()) {
+                            headers.set(HttpHeaderNames.AUTHORIZATION, "Bearer " + user.token());
+                        }
+                        if (request.range() != null) {
+                            headers.set(HttpHeaderNames.RANGE, request.range());
+                        }
+                        if (request.body() != null) {
+                            headers.set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON);
+                        }
+                    })
+                    .request(request.method())
+                    .uri(request.path())
+                    .send(request.body() != null
+                            ? ByteBufFlux.fromString(Mono.just(request.body()))
+                            : ByteBufFlux.empty())
+                    .response((response, body) -> body.then(Mono.just(response.status().code())))
+                    .next()
+                    .onErrorReturn(-1)
+                    .block();
+            boolean ok = status != null && status >= 200 && status < 300;
+            System.out.printf("  %-18s %-6s %-40s %s%n", scenario.route(), request.method(), request.path(),
+                    ok ? status : status + "  <-- ATTENTION");
+        }
+    }
+
+    private static void report(List<RouteStats.Snapshot> results, Duration duration) {
+        double seconds = duration.toMillis() / 1000.0;
+        System.out.println();
+        System.out.println("Latence corrigée (depuis l'heure d'envoi prévue) des réponses 2xx, en ms ;"
+                + " svc p99 = temps de service non corrigé ; err p99 = autres statuts, timeouts et erreurs");
+        System.out.printf("%-18s %9s %8s %7s %8s %8s %8s %8s %8s %9s %9s  %s%n",
+                "Route", "Requests", "Req/s", "Errors", "p50", "p90", "p99", "p99.9", "max", "svc p99", "err p99",
+                "Statuts");
+
+        Histogram totalResponse = null;
+        Histogram totalService = null;
+        Histogram totalFailure = null;
+        long totalRequests = 0;
+        long totalErrors = 0;
+        for (RouteStats.Snapshot snapshot : results) {
+            printRow(snapshot.route(), snapshot.requests(), snapshot.responseTime(), snapshot.serviceTime(),
+                    snapshot.failureTime(), snapshot.errors(), seconds,
+                    snapshot.outcomes().entrySet().stream()
+                            .map(entry -> entry.getKey() + ":" + entry.getValue())
+                            .collect(Collectors.joining(" ")));
+            if (totalResponse == null) {
+                totalResponse = snapshot.responseTime().copy();
+                totalService = snapshot.serviceTime().copy();
+                totalFailure = snapshot.failureTime().copy();
+            } else {
+                totalResponse.add(snapshot.responseTime());
+                totalService.add(snapshot.serviceTime());
+                totalFailure.add(snapshot.failureTime());
+            }
+            totalRequests += snapshot.requests();
+            totalErrors += snapshot.errors();
+        }
+        if (totalResponse != null) {
+            printRow("TOTAL", totalRequests, totalResponse, totalService, totalFailure, totalErrors, seconds, "");
+        }
+    }
+
+    private static void printRow(String route, long requests, Histogram response, Histogram service,
+                                 Histogram failure, long errors, double seconds, String outcomes) {
+        System.out.printf("%-18s %9d %8.1f %7d %8.2f %8.2f %8.2f %8.2f %8.2f %9.2f %9.2f  %s%n",
+                route, requests, requests / seconds, errors,
+                millis(response, 50), millis(response, 90), millis(response, 99), millis(response, 99.9),
+                response.getMaxValue() / 1000.0, millis(service, 99), millis(failure, 99), outcomes);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static void usage() {
+        System.out.println("Usage: GatewayLoadTest [--option=value ...] [--gateway.property=value ...]");
+        System.out.println("Options (défauts) :");
+        DEFAULTS.forEach((name, value) -> System.out.printf("  --%-16s %s%n", name, value.isEmpty() ? "-" : value));
+        System.out.println("Routes pour --mix : " + Scenario.defaults().keySet());
+        System.out.println("Latences : constant:5ms | uniform:5ms:50ms | lognormal:<p50>:<p99>");
+    }
+}
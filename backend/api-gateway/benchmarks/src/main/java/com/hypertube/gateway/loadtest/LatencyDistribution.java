@@ -0,0 +1,82 @@
+package com.hypertube.gateway.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Latency of a stub upstream, sampled for every request
+ *
+ * Syntax: constant:5ms | uniform:5ms:50ms | lognormal:20ms:200ms (median, p99)
+ */
+abstract class LatencyDistribution {
+
+    // Quantile 0.99 de la loi normale centrée réduite
+    private static final double Z_99 = 2.3263;
+
+    abstract long sampleNanos();
+
+    static LatencyDistribution parse(String spec) {
+        String[] parts = spec.split(":");
+        switch (parts[0]) {
+            case "constant":
+                return constant(nanos(parts, 1));
+            case "uniform":
+                return uniform(nanos(parts, 1), nanos(parts, 2));
+            case "lognormal":
+                return lognormal(nanos(parts, 1), nanos(parts, 2));
+            default:
+                throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+        }
+    }
+
+    static LatencyDistribution constant(long nanos) {
+        return describe(() -> nanos, "constant " + format(nanos));
+    }
+
+    static LatencyDistribution uniform(long minNanos, long maxNanos) {
+        if (maxNanos < minNanos) {
+            throw new IllegalArgumentException("uniform: max < min");
+        }
+        return describe(() -> ThreadLocalRandom.current().nextLong(minNanos, maxNanos + 1),
+                "uniform " + format(minNanos) + ".." + format(maxNanos));
+    }
+
+    /**
+     * Log-normal law fitted on its median and p99, i.e. the long tail of a real service
+     */
+    static LatencyDistribution lognormal(long medianNanos, long p99Nanos) {
+        if (medianNanos <= 0 || p99Nanos < medianNanos) {
+            throw new IllegalArgumentException("lognormal: expected 0 < median <= p99");
+        }
+        double mu = Math.log(medianNanos);
+        double sigma = (Math.log(p99Nanos) - mu) / Z_99;
+        return describe(() -> (long) Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()),
+                "lognormal p50=" + format(medianNanos) + " p99=" + format(p99Nanos));
+    }
+
+    private static LatencyDistribution describe(java.util.function.LongSupplier sampler, String description) {
+        return new LatencyDistribution() {
+            @Override
+            long sampleNanos() {
+                return sampler.getAsLong();
+            }
+
+            @Override
+            public String toString() {
+                return description;
+            }
+        };
+    }
+
+    private static long nanos(String[] parts, int index) {
+        if (parts.length <= index) {
+            throw new IllegalArgumentException("Missing duration in latency spec: " + String.join(":", parts));
+        }
+        return DurationStyle.detectAndParse(parts[index]).toNanos();
+    }
+
+    private static String format(long nanos) {
+        return nanos % 1_000_000 == 0 ? nanos / 1_000_000 + "ms" : String.format("%.2fms", nanos / 1e6);
+    }
+}
@@ -0,0 +1,194 @@
+package com.hypertube.gateway.loadtest;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.timeout.ReadTimeoutException;
+import reactor.core.publisher.Mono;
+import reactor.netty.ByteBufFlux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.HttpClientResponse;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load generator: requests are scheduled at a fixed arrival rate whatever the response times
+ *
+ * A closed loop of N clients slows down with the system under test and hides its stalls
+ * (coordinated omission). Here a single thread follows the arrival schedule and fires requests
+ * without waiting for responses; latencies are measured from the scheduled time, so a late send
+ * caused by a stalled generator or a saturated gateway is still charged to the request.
+ */
+final class OpenLoadGenerator implements AutoCloseable {
+
+    // Erreurs côté générateur : la requête n'a pas reçu de statut HTTP
+    static final String TIMEOUT = "timeout";
+    static final String ERROR = "error";
+    static final String OVERFLOW = "overflow";
+
+    private final List<Scenario> scenarios;
+    private final int[] cumulativeWeights;
+    private final List<VirtualUser> users;
+    private final Scenario.Catalog catalog;
+    private final double ratePerSecond;
+    private final boolean poisson;
+    private final int maxInFlight;
+    private final ConnectionProvider connections;
+    private final LoopResources loops;
+    private final HttpClient client;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    OpenLoadGenerator(String baseUrl, List<Scenario> scenarios, List<VirtualUser> users, Scenario.Catalog catalog,
+                      double ratePerSecond, boolean poisson, int maxInFlight, Duration timeout) {
+        this.scenarios = scenarios;
+        this.cumulativeWeights = new int[scenarios.size()];
+        int total = 0;
+        for (int i = 0; i < scenarios.size(); i++) {
+            total += scenarios.get(i).weight();
+            cumulativeWeights[i] = total;
+        }
+        this.users = users;
+        this.catalog = catalog;
+        this.ratePerSecond = ratePerSecond;
+        this.poisson = poisson;
+        this.maxInFlight = maxInFlight;
+        this.connections = ConnectionProvider.builder("load-generator")
+                .maxConnections(maxInFlight)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        this.loops = LoopResources.create("load-generator", 1, true);
+        this.client = HttpClient.create(connections)
+                .runOn(loops)
+                .baseUrl(baseUrl)
+                .responseTimeout(timeout);
+    }
+
+    /**
+     * Runs the warmup then the measurement, and returns the per-route results of the measurement
+     */
+    List<RouteStats.Snapshot> run(Duration warmup, Duration duration) {
+        Map<String, RouteStats> stats = new LinkedHashMap<>();
+        for (Scenario scenario : scenarios) {
+            stats.put(scenario.route(), new RouteStats(scenario.route()));
+        }
+
+        SplittableRandom random = new SplittableRandom(42);
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        double meanIntervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+
+        double intended = start;
+        while (intended < end) {
+            long scheduled = (long) intended;
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+                continue;
+            }
+            Scenario scenario = pick(random);
+            RouteStats routeStats = scheduled >= measureFrom ? stats.get(scenario.route()) : null;
+            fire(scenario.next(random, catalog), users.get(random.nextInt(users.size())), scheduled, routeStats);
+
+            intended += poisson ? -Math.log(1.0 - random.nextDouble()) * meanIntervalNanos : meanIntervalNanos;
+        }
+
+        // Les requêtes encore en vol finissent dans la mesure (ou expirent)
+        while (inFlight.get() > 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+
+        List<RouteStats.Snapshot> snapshots = new ArrayList<>();
+        stats.values().forEach(routeStats -> snapshots.add(routeStats.snapshot()));
+        return snapshots;
+    }
+
+    @Override
+    public void close() {
+        connections.disposeLater().block(Duration.ofSeconds(5));
+        loops.dispose();
+    }
+
+    private Scenario pick(SplittableRandom random) {
+        int ticket = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (ticket < cumulativeWeights[i]) {
+                return scenarios.get(i);
+            }
+        }
+        throw new IllegalStateException("Unreachable");
+    }
+
+    private void fire(Scenario.Request request, VirtualUser user, long intended, RouteStats stats) {
+        // Au-delà, le gateway ne suit plus : compté comme échec plutôt que de saturer la mémoire,
+        // hors des percentiles (la requête n'est jamais partie)
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            if (stats != null) {
+                stats.recordDropped(OVERFLOW);
+            }
+            return;
+        }
+
+        long sent = System.nanoTime();
+        HttpClient.RequestSender sender = client
+                .headers(headers -> {
+                    headers.set("X-Forwarded-For", user.forwardedFor());
+                    if (request.authenticated()) {
+                        headers.set(HttpHeaderNames.AUTHORIZATION, "Bearer " + user.token());
+                    }
+                    if (request.range() != null) {
+                        headers.set(HttpHeaderNames.RANGE, request.range());
+                    }
+                    if (request.body() != null) {
+                        headers.set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON);
+                    }
+                })
+                .request(request.method())
+                .uri(request.path());
+
+        HttpClient.ResponseReceiver<?> receiver = request.body() != null
+                ? sender.send(ByteBufFlux.fromString(Mono.just(request.body())))
+                : sender;
+
+        receiver.response((response, body) -> body
+                        .map(buffer -> (long) buffer.readableBytes())
+                        .reduce(0L, Long::sum)
+                        .map(bytes -> new Outcome(status(response), bytes)))
+                .next()
+                .defaultIfEmpty(new Outcome(ERROR, 0))
+                .onErrorResume(error -> Mono.just(new Outcome(isTimeout(error) ? TIMEOUT : ERROR, 0)))
+                .subscribe(outcome -> {
+                    inFlight.decrementAndGet();
+                    if (stats != null) {
+                        stats.record(intended, sent, System.nanoTime(), outcome.status(), outcome.bytes());
+                    }
+                });
+    }
+
+    /**
+     * Status code, with the gateway component that rejected the request if any (e.g. 503/Load-Shedding)
+     */
+    static String status(HttpClientResponse response) {
+        String code = Integer.toString(response.status().code());
+        String source = response.responseHeaders().get("X-Error-Source");
+        return source == null ? code : code + "/" + source;
+    }
+
+    static boolean isTimeout(Throwable error) {
+        return error instanceof TimeoutException || error instanceof ReadTimeoutException;
+    }
+
+    private record Outcome(String status, long bytes) {
+    }
+}
@@ -0,0 +1,106 @@
+package com.hypertube.gateway.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and outcomes of one route during the measurement phase
+ *
+ * The latency histograms hold 2xx responses only: a fast 503 from the load shedder or a 429
+ * must not pull the percentiles down. The response time runs from the scheduled send time and
+ * is corrected for coordinated omission: a request the generator could not send on time is
+ * charged for its wait. The service time runs from the actual send and is what a closed-model
+ * tool would report. Other statuses, timeouts and errors go to a separate failure histogram
+ * (corrected response time); requests the generator dropped (overflow) were never sent and are
+ * only counted. Values are in microseconds.
+ */
+final class RouteStats {
+
+    private static final long MAX_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final String route;
+    private final Recorder responseTime = new Recorder(MAX_TRACKABLE_MICROS, 3);
+    private final Recorder serviceTime = new Recorder(MAX_TRACKABLE_MICROS, 3);
+    private final Recorder failureTime = new Recorder(MAX_TRACKABLE_MICROS, 3);
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+    private final LongAdder bytes = new LongAdder();
+
+    RouteStats(String route) {
+        this.route = route;
+    }
+
+    void record(long intendedNanos, long sentNanos, long doneNanos, String outcome, long responseBytes) {
+        if (isSuccess(outcome)) {
+            responseTime.recordValue(micros(doneNanos - intendedNanos));
+            serviceTime.recordValue(micros(doneNanos - sentNanos));
+        } else {
+            failureTime.recordValue(micros(doneNanos - intendedNanos));
+        }
+        count(outcome);
+        bytes.add(responseBytes);
+    }
+
+    /**
+     * Request the generator could not send (too many in flight): counted, no latency
+     */
+    void recordDropped(String outcome) {
+        count(outcome);
+    }
+
+    private void count(String outcome) {
+        outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+    }
+
+    static boolean isSuccess(String outcome) {
+        return outcome.startsWith("2");
+    }
+
+    String route() { return route; }
+
+    Snapshot snapshot() {
+        Map<String, Long> counts = new TreeMap<>();
+        outcomes.forEach((outcome, count) -> counts.put(outcome, count.sum()));
+        return new Snapshot(route, responseTime.getIntervalHistogram(), serviceTime.getIntervalHistogram(),
+                failureTime.getIntervalHistogram(), counts, bytes.sum());
+    }
+
+    private static long micros(long nanos) {
+        return Math.min(MAX_TRACKABLE_MICROS, Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos)));
+    }
+
+    /**
+     * Frozen view of a route at the end of the run
+     */
+    record Snapshot(String route, Histogram responseTime, Histogram serviceTime, Histogram failureTime,
+                    Map<String, Long> outcomes, long bytes) {
+
+        long requests() {
+            return outcomes.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        long errors() {
+            return outcomes.entrySet().stream()
+                    .filter(entry -> !isSuccess(entry.getKey()))
+                    .mapToLong(Map.Entry::getValue)
+                    .sum();
+        }
+
+        /**
+         * Full percentile distribution of the 2xx responses (.hgrm), readable by the HdrHistogram plotter
+         */
+        void writeDistribution(File directory) throws FileNotFoundException {
+            try (PrintStream out = new PrintStream(new File(directory, route + ".hgrm"))) {
+                responseTime.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+    }
+}
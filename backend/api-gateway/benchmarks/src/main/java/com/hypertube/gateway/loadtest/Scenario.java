@@ -0,0 +1,110 @@
+package com.hypertube.gateway.loadtest;
+
+import io.netty.handler.codec.http.HttpMethod;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * One kind of request of the traffic mix, named after the GatewayConfig route it goes through
+ */
+final class Scenario {
+
+    /**
+     * Request to send: path, method, optional Range and body
+     */
+    record Request(HttpMethod method, String path, boolean authenticated, String range, String body) {
+    }
+
+    @FunctionalInterface
+    interface RequestFactory {
+        Request next(SplittableRandom random, Catalog catalog);
+    }
+
+    /**
+     * Movies with a Zipf popularity (s = 1): a few titles take most of the traffic, as on the real site
+     */
+    static final class Catalog {
+
+        private final double[] cumulative;
+        private final long streamFileSize;
+        private final long streamChunkSize;
+
+        Catalog(int movies, long streamFileSize, long streamChunkSize) {
+            this.cumulative = new double[movies];
+            double sum = 0;
+            for (int i = 0; i < movies; i++) {
+                sum += 1.0 / (i + 1);
+                cumulative[i] = sum;
+            }
+            for (int i = 0; i < movies; i++) {
+                cumulative[i] /= sum;
+            }
+            this.streamFileSize = streamFileSize;
+            this.streamChunkSize = streamChunkSize;
+        }
+
+        int movie(SplittableRandom random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return (index >= 0 ? index : -index - 1) + 1;
+        }
+
+        String range(SplittableRandom random) {
+            long chunks = Math.max(1, streamFileSize / streamChunkSize);
+            long start = random.nextLong(chunks) * streamChunkSize;
+            long end = Math.min(streamFileSize, start + streamChunkSize) - 1;
+            return "bytes=" + start + "-" + end;
+        }
+    }
+
+    private final String route;
+    private final int weight;
+    private final RequestFactory factory;
+
+    Scenario(String route, int weight, RequestFactory factory) {
+        this.route = route;
+        this.weight = weight;
+        this.factory = factory;
+    }
+
+    String route() { return route; }
+    int weight() { return weight; }
+
+    Request next(SplittableRandom random, Catalog catalog) {
+        return factory.next(random, catalog);
+    }
+
+    Scenario withWeight(int newWeight) {
+        return new Scenario(route, newWeight, factory);
+    }
+
+    /**
+     * Default mix, by route: stream and catalogue browsing dominate, auth is a small share
+     */
+    static Map<String, Scenario> defaults() {
+        Map<String, Scenario> scenarios = new LinkedHashMap<>();
+        for (Scenario scenario : List.of(
+                new Scenario("auth-public", 2, (random, catalog) -> new Request(HttpMethod.POST, "/auth/signin", false,
+                        null, "{\"username\":\"loadtest\",\"password\":\"loadtest\"}")),
+                new Scenario("auth-session", 3, (random, catalog) -> new Request(HttpMethod.POST, "/auth/refresh-token", true,
+                        null, "{}")),
+                new Scenario("users", 10, (random, catalog) -> new Request(HttpMethod.GET, "/users/me", true,
+                        null, null)),
+                new Scenario("movies-public", 20, (random, catalog) -> new Request(HttpMethod.GET,
+                        "/movies?page=" + (1 + random.nextInt(5)), false, null, null)),
+                new Scenario("movies-protected", 25, (random, catalog) -> new Request(HttpMethod.GET,
+                        "/movies/" + catalog.movie(random), true, null, null)),
+                new Scenario("stream", 25, (random, catalog) -> new Request(HttpMethod.GET,
+                        "/stream/" + catalog.movie(random) + "/video", true, catalog.range(random), null)),
+                new Scenario("subtitles", 5, (random, catalog) -> new Request(HttpMethod.GET,
+                        "/subtitles/" + catalog.movie(random) + "/en", true, null, null)),
+                new Scenario("comments", 10, (random, catalog) -> new Request(HttpMethod.GET,
+                        "/comments/" + catalog.movie(random), true, null, null)))) {
+            scenarios.put(scenario.route(), scenario);
+        }
+        return scenarios;
+    }
+}
@@ -0,0 +1,141 @@
+package com.hypertube.gateway.loadtest;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+import reactor.netty.resources.LoopResources;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * In-process upstream standing in for auth-service or video-service
+ *
+ * Every request waits a latency sampled from the distribution, then gets a JSON body of the
+ * configured size. With a stream file size, /stream/** serves a virtual video file of that size
+ * with Range support: the bytes are slices of one shared direct buffer, nothing is allocated per chunk.
+ */
+final class StubUpstream implements AutoCloseable {
+
+    private static final int STREAM_CHUNK_SIZE = 64 * 1024;
+    private static final ByteBuf STREAM_CHUNK = Unpooled.unreleasableBuffer(
+            Unpooled.directBuffer(STREAM_CHUNK_SIZE).writeZero(STREAM_CHUNK_SIZE).asReadOnly());
+
+    private final String name;
+    private final LatencyDistribution latency;
+    private final byte[] body;
+    private final long streamFileSize;
+    private final LoopResources loops;
+    private final DisposableServer server;
+
+    private StubUpstream(String name, LatencyDistribution latency, int bodySize, long streamFileSize) {
+        this.name = name;
+        this.latency = latency;
+        this.body = jsonBody(bodySize);
+        this.streamFileSize = streamFileSize;
+        // Event loops propres au stub : le lag mesuré sur ceux de la gateway reste le sien
+        this.loops = LoopResources.create("stub-" + name, 1, true);
+        this.server = HttpServer.create()
+                .runOn(loops)
+                .host("127.0.0.1")
+                .port(0)
+                .handle(this::handle)
+                .bindNow();
+    }
+
+    static StubUpstream start(String name, LatencyDistribution latency, int bodySize) {
+        return new StubUpstream(name, latency, bodySize, 0);
+    }
+
+    static StubUpstream startVideo(String name, LatencyDistribution latency, int bodySize, long streamFileSize) {
+        return new StubUpstream(name, latency, bodySize, streamFileSize);
+    }
+
+    String url() {
+        return "http://127.0.0.1:" + server.port();
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow(Duration.ofSeconds(5));
+        loops.dispose();
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + url() + " (" + latency + ", " + body.length + " B"
+                + (streamFileSize > 0 ? ", stream " + streamFileSize / (1024 * 1024) + " MiB" : "") + ")";
+    }
+
+    private Publisher<Void> handle(HttpServerRequest request, HttpServerResponse response) {
+        Mono<Void> delay = Mono.delay(Duration.ofNanos(latency.sampleNanos())).then();
+        // Le corps de la requête est lu avant de répondre, comme le ferait le vrai service
+        Mono<Void> received = request.receive().then();
+
+        if (streamFileSize > 0 && request.uri().startsWith("/stream/")) {
+            return received.then(delay).then(Mono.defer(() -> stream(request, response)));
+        }
+        return received.then(delay).then(Mono.defer(() -> response
+                .header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                .header(HttpHeaderNames.CONTENT_LENGTH, Integer.toString(body.length))
+                .send(Mono.fromSupplier(() -> Unpooled.wrappedBuffer(body)))
+                .then()));
+    }
+
+    private Mono<Void> stream(HttpServerRequest request, HttpServerResponse response) {
+        long start = 0;
+        long end = streamFileSize - 1;
+        String range = request.requestHeaders().get(HttpHeaderNames.RANGE);
+        if (range != null && range.startsWith("bytes=")) {
+            String[] bounds = range.substring("bytes=".length()).split("-", 2);
+            start = Long.parseLong(bounds[0]);
+            if (bounds.length > 1 && !bounds[1].isEmpty()) {
+                end = Math.min(end, Long.parseLong(bounds[1]));
+            }
+            if (start > end) {
+                return response.status(HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaderNames.CONTENT_RANGE, "bytes */" + streamFileSize)
+                        .send();
+            }
+            response.status(HttpResponseStatus.PARTIAL_CONTENT)
+                    .header(HttpHeaderNames.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + streamFileSize);
+        }
+
+        long length = end - start + 1;
+        return response
+                .header(HttpHeaderNames.CONTENT_TYPE, "video/mp4")
+                .header(HttpHeaderNames.ACCEPT_RANGES, "bytes")
+                .header(HttpHeaderNames.CONTENT_LENGTH, Long.toString(length))
+                .send(chunks(length))
+                .then();
+    }
+
+    private static Flux<ByteBuf> chunks(long length) {
+        return Flux.generate(() -> length, (remaining, sink) -> {
+            int size = (int) Math.min(STREAM_CHUNK_SIZE, remaining);
+            sink.next(STREAM_CHUNK.slice(0, size));
+            if (remaining == size) {
+                sink.complete();
+            }
+            return remaining - size;
+        });
+    }
+
+    private static byte[] jsonBody(int size) {
+        String prefix = "{\"data\":\"";
+        String suffix = "\"}";
+        int padding = Math.max(0, size - prefix.length() - suffix.length());
+        char[] filler = new char[padding];
+        Arrays.fill(filler, 'x');
+        return (prefix + new String(filler) + suffix).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,8 @@
+package com.hypertube.gateway.loadtest;
+
+/**
+ * Simulated client: its own JWT and its own address in X-Forwarded-For,
+ * so that per-user and per-IP rate limits see distinct clients
+ */
+record VirtualUser(String userId, String token, String forwardedFor) {
+}
@@ -0,0 +1,81 @@
+package com.hypertube.gateway.ratelimit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local rate limit decision (same package as the package-private bucket)
+ * Allowed and denied paths on one thread, then one hot key shared by four threads.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocalTokenBucketBenchmark {
+
+    @State(Scope.Thread)
+    public static class Buckets {
+
+        LocalTokenBucket open;
+        LocalTokenBucket exhausted;
+
+        @Setup
+        public void setup() {
+            long now = System.nanoTime();
+            open = new LocalTokenBucket("bench-open", 1_000_000_000, 1_000_000_000, now);
+            exhausted = new LocalTokenBucket("bench-exhausted", 1, 1, now);
+            exhausted.tryAcquire(1, now);
+        }
+    }
+
+    @State(Scope.Group)
+    public static class SharedBucket {
+
+        LocalTokenBucket bucket;
+
+        @Setup
+        public void setup() {
+            bucket = new LocalTokenBucket("bench-shared", 1_000_000_000, 1_000_000_000, System.nanoTime());
+        }
+    }
+
+    @Benchmark
+    public long allowed(Buckets buckets) {
+        LocalTokenBucket bucket = buckets.open;
+        long remaining = bucket.tryAcquire(1, System.nanoTime());
+        if (remaining >= 0 && bucket.recordConsumption(1)) {
+            bucket.drainPending();
+        }
+        return remaining;
+    }
+
+    @Benchmark
+    public long denied(Buckets buckets) {
+        return buckets.exhausted.tryAcquire(1, System.nanoTime());
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(4)
+    public long contended(SharedBucket shared) {
+        LocalTokenBucket bucket = shared.bucket;
+        long remaining = bucket.tryAcquire(1, System.nanoTime());
+        if (remaining >= 0) {
+            bucket.recordConsumption(1);
+        }
+        return remaining;
+    }
+}
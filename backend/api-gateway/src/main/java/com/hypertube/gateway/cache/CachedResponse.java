@@ -0,0 +1,137 @@
+package com.hypertube.gateway.cache;
+
+import org.springframework.http.HttpHeaders;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Upstream response kept by the response cache: status, end-to-end headers and full body
+ * Instances are immutable and shared between every request served from them.
+ */
+public final class CachedResponse {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final int status;
+    private final HttpHeaders headers;
+    private final byte[] body;
+    private final String etag;
+    private final long storedAt;
+    private final long expiresAt;
+
+    public CachedResponse(int status, HttpHeaders headers, byte[] body, String etag, long storedAt, long expiresAt) {
+        this.status = status;
+        this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
+        this.body = body;
+        this.etag = etag;
+        this.storedAt = storedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public int getStatus() { return status; }
+
+    public HttpHeaders getHeaders() { return headers; }
+
+    public byte[] getBody() { return body; }
+
+    public String getEtag() { return etag; }
+
+    public long getStoredAt() { return storedAt; }
+
+    public long getExpiresAt() { return expiresAt; }
+
+    public boolean isFresh(long nowMillis) {
+        return nowMillis < expiresAt;
+    }
+
+    public long remainingMillis(long nowMillis) {
+        return Math.max(0, expiresAt - nowMillis);
+    }
+
+    /**
+     * Seconds spent in the cache, sent back as the Age header
+     */
+    public long ageSeconds(long nowMillis) {
+        return Math.max(0, (nowMillis - storedAt) / 1000);
+    }
+
+    /**
+     * Approximate memory footprint, used to bound the local LRU in bytes
+     */
+    int weight() {
+        int weight = body.length + 128;
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            weight += header.getKey().length();
+            for (String value : header.getValue()) {
+                weight += value.length();
+            }
+        }
+        return weight;
+    }
+
+    // ====================== Format Redis ======================
+
+    byte[] serialize() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length + 512);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(FORMAT_VERSION);
+            out.writeShort(status);
+            out.writeLong(storedAt);
+            out.writeLong(expiresAt);
+            out.writeUTF(etag);
+            out.writeShort(headers.size());
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                out.writeUTF(header.getKey());
+                out.writeShort(header.getValue().size());
+                for (String value : header.getValue()) {
+                    out.writeUTF(value);
+                }
+            }
+            out.writeInt(body.length);
+            out.write(body);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads an entry written by serialize(); returns null for an unknown format version
+     */
+    static CachedResponse deserialize(byte[] data) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            if (in.readByte() != FORMAT_VERSION) {
+                return null;
+            }
+            int status = in.readShort();
+            long storedAt = in.readLong();
+            long expiresAt = in.readLong();
+            String etag = in.readUTF();
+
+            HttpHeaders headers = new HttpHeaders();
+            int headerCount = in.readShort();
+            for (int i = 0; i < headerCount; i++) {
+                String name = in.readUTF();
+                int valueCount = in.readShort();
+                for (int j = 0; j < valueCount; j++) {
+                    headers.add(name, in.readUTF());
+                }
+            }
+
+            byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+            return new CachedResponse(status, headers, body, etag, storedAt, expiresAt);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
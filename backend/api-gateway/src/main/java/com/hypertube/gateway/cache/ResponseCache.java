@@ -0,0 +1,120 @@
+package com.hypertube.gateway.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.hypertube.gateway.config.HypertubeGatewayProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Storage of the gateway response cache
+ *
+ * Entries live in a local LRU bounded in bytes. When enabled, they are also written
+ * to Redis so that every gateway instance benefits from a single upstream call;
+ * a local miss then falls back to Redis before going upstream.
+ * Redis is best effort: errors and slow answers count as a miss.
+ */
+@Component
+public class ResponseCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ResponseCache.class);
+
+    private final HypertubeGatewayProperties.ResponseCacheConfig config;
+    private final Cache<String, CachedResponse> local;
+    private final ReactiveRedisTemplate<String, byte[]> redisTemplate;
+
+    public ResponseCache(HypertubeGatewayProperties gatewayProperties,
+                         ObjectProvider<ReactiveRedisConnectionFactory> connectionFactory,
+                         MeterRegistry meterRegistry) {
+        this.config = gatewayProperties.getResponseCache();
+        this.local = Caffeine.newBuilder()
+                .maximumWeight(config.getMaxSizeBytes())
+                .weigher((String key, CachedResponse response) -> response.weight())
+                .expireAfter(new ResponseExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, local, "gateway.response_cache");
+
+        ReactiveRedisConnectionFactory factory = config.isRedisEnabled() ? connectionFactory.getIfAvailable() : null;
+        this.redisTemplate = factory == null ? null : new ReactiveRedisTemplate<>(factory,
+                RedisSerializationContext.<String, byte[]>newSerializationContext(RedisSerializer.string())
+                        .value(RedisSerializer.byteArray())
+                        .build());
+        log.info("Cache de réponses : {} Mo en local, Redis {}", config.getMaxSizeBytes() / (1024 * 1024),
+                redisTemplate != null ? "activé" : "désactivé");
+    }
+
+    /**
+     * Fresh entry for this key, looked up locally then in Redis; empty on a miss
+     */
+    public Mono<CachedResponse> get(String key) {
+        long now = System.currentTimeMillis();
+        CachedResponse cached = local.getIfPresent(key);
+        if (cached != null && cached.isFresh(now)) {
+            return Mono.just(cached);
+        }
+        if (redisTemplate == null) {
+            return Mono.empty();
+        }
+
+        return redisTemplate.opsForValue().get(config.getRedisKeyPrefix() + key)
+                .timeout(config.getRedisTimeout())
+                .mapNotNull(CachedResponse::deserialize)
+                .filter(response -> response.isFresh(System.currentTimeMillis()))
+                .doOnNext(response -> local.put(key, response))
+                .onErrorResume(e -> {
+                    log.debug("Lecture du cache Redis échouée pour {}: {}", key, e.toString());
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Stores an entry locally and, asynchronously, in Redis
+     */
+    public void put(String key, CachedResponse response) {
+        local.put(key, response);
+        if (redisTemplate == null) {
+            return;
+        }
+
+        Duration ttl = Duration.ofMillis(response.remainingMillis(System.currentTimeMillis()));
+        if (ttl.isZero()) {
+            return;
+        }
+        redisTemplate.opsForValue().set(config.getRedisKeyPrefix() + key, response.serialize(), ttl)
+                .subscribe(null, e -> log.debug("Écriture du cache Redis échouée pour {}: {}", key, e.toString()));
+    }
+
+    /**
+     * Local entries expire with the freshness lifetime computed from upstream headers
+     */
+    private static final class ResponseExpiry implements Expiry<String, CachedResponse> {
+
+        @Override
+        public long expireAfterCreate(String key, CachedResponse response, long currentTime) {
+            return Duration.ofMillis(response.remainingMillis(System.currentTimeMillis())).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedResponse response, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, response, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedResponse response, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
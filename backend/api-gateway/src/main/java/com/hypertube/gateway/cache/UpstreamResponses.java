@@ -0,0 +1,210 @@
+package com.hypertube.gateway.cache;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriUtils;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR;
+
+/**
+ * Helpers shared by the filters that replay one upstream response to several clients
+ * (response cache and request coalescing)
+ */
+public final class UpstreamResponses {
+
+    // Headers propres à une connexion ou recalculés à chaque réponse servie
+    private static final Set<String> UNSHARED_HEADERS = Set.of(
+            "connection", "keep-alive", "transfer-encoding", "content-length", "date", "etag", "age", "vary");
+
+    private UpstreamResponses() {
+    }
+
+    /**
+     * Path plus query parameters sorted by name then value and re-encoded:
+     * "?b=2&a=1", "?a=1&b=2" and "?a=%31&b=2" give the same key
+     */
+    public static String requestKey(ServerHttpRequest request) {
+        StringBuilder key = new StringBuilder(64).append(request.getURI().getRawPath());
+        TreeMap<String, List<String>> params = new TreeMap<>();
+        request.getQueryParams().forEach((name, values) -> {
+            if (!name.isEmpty()) {
+                List<String> sorted = new ArrayList<>(values.size());
+                values.forEach(value -> sorted.add(value != null ? value : ""));
+                sorted.sort(null);
+                params.put(name, sorted);
+            }
+        });
+
+        char separator = '?';
+        for (Map.Entry<String, List<String>> param : params.entrySet()) {
+            String name = UriUtils.encodeQueryParam(param.getKey(), StandardCharsets.UTF_8);
+            for (String value : param.getValue()) {
+                key.append(separator).append(name).append('=')
+                        .append(UriUtils.encodeQueryParam(value, StandardCharsets.UTF_8));
+                separator = '&';
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Whether the upstream response is identical for every client sending this request:
+     * no cookie, no compression, no Vary beyond CORS and Accept-Encoding, bounded size.
+     * A body of unknown length (chunked) passes here and is bounded by readBody.
+     */
+    public static boolean isShareable(ServerHttpResponse response, int maxBodySize) {
+        HttpHeaders headers = response.getHeaders();
+        if (headers.containsKey(HttpHeaders.SET_COOKIE) || headers.containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            return false;
+        }
+        for (String name : headers.getVary()) {
+            // Origin et Access-Control-Request-* relèvent du CORS de la gateway,
+            // Accept-Encoding du refus des réponses compressées
+            if (!name.equalsIgnoreCase(HttpHeaders.ORIGIN) && !name.equalsIgnoreCase(HttpHeaders.ACCEPT_ENCODING)
+                    && !name.regionMatches(true, 0, "Access-Control-Request-", 0, 23)) {
+                return false;
+            }
+        }
+        return headers.getContentLength() <= maxBodySize;
+    }
+
+    /**
+     * Reads the upstream body, up to maxBodySize bytes; NettyWriteResponseFilter then finds no
+     * connection and leaves the response to the caller. Empty when the exchange was not routed,
+     * or when the body turns out larger: the bytes read so far and the rest of the stream are
+     * then written to the response as they arrive, and nothing is shared.
+     */
+    public static Mono<byte[]> readBody(ServerWebExchange exchange, int maxBodySize) {
+        Connection connection = exchange.getAttribute(CLIENT_RESPONSE_CONN_ATTR);
+        ServerHttpResponse response = exchange.getResponse();
+        // Réponse déjà écrite ailleurs, par exemple par le fallback du circuit breaker
+        if (connection == null || response.isCommitted()) {
+            return Mono.empty();
+        }
+        exchange.getAttributes().remove(CLIENT_RESPONSE_CONN_ATTR);
+
+        BoundedBody body = new BoundedBody(maxBodySize);
+        return connection.inbound().receive().asByteArray()
+                // Rien n'est émis tant que le corps tient dans la limite
+                .concatMapIterable(body::append)
+                .switchOnFirst((first, chunks) -> first.hasValue()
+                        ? response.writeWith(chunks.map(chunk -> response.bufferFactory().wrap(chunk)))
+                        : chunks.then())
+                .then(Mono.fromSupplier(() -> body.overflowed() ? null : body.toByteArray()));
+    }
+
+    /**
+     * Names of the headers already set on the response, in lower case
+     * Captured before routing: they come from the gateway (CORS) and depend on the request.
+     */
+    public static Set<String> headerNames(HttpHeaders headers) {
+        Set<String> names = new HashSet<>();
+        headers.keySet().forEach(name -> names.add(name.toLowerCase(Locale.ROOT)));
+        return names;
+    }
+
+    /**
+     * Immutable copy of the upstream response, without the gateway and per-connection headers
+     */
+    public static CachedResponse snapshot(ServerHttpResponse response, byte[] body, Set<String> gatewayHeaders,
+                                          long storedAt, long expiresAt) {
+        HttpHeaders stored = new HttpHeaders();
+        response.getHeaders().forEach((name, values) -> {
+            String lowerCaseName = name.toLowerCase(Locale.ROOT);
+            if (!gatewayHeaders.contains(lowerCaseName) && !UNSHARED_HEADERS.contains(lowerCaseName)
+                    && !lowerCaseName.startsWith("access-control-")) {
+                stored.put(name, values);
+            }
+        });
+
+        String etag = response.getHeaders().getETag();
+        return new CachedResponse(response.getStatusCode().value(), stored, body,
+                etag != null ? etag : weakEtag(body), storedAt, expiresAt);
+    }
+
+    /**
+     * Writes a shared response to a client that did not receive the upstream headers itself
+     */
+    public static Mono<Void> replay(ServerHttpResponse response, CachedResponse shared) {
+        response.setStatusCode(HttpStatusCode.valueOf(shared.getStatus()));
+        response.getHeaders().addAll(shared.getHeaders());
+        response.getHeaders().setETag(shared.getEtag());
+        return writeBody(response, shared.getBody());
+    }
+
+    public static Mono<Void> writeBody(ServerHttpResponse response, byte[] body) {
+        response.getHeaders().setContentLength(body.length);
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(body)));
+    }
+
+    /**
+     * Upstream body buffered up to a size limit; beyond it, the buffered chunks are handed back
+     * once, then every following chunk as it arrives
+     */
+    private static final class BoundedBody {
+
+        private final int maxSize;
+        private final List<byte[]> chunks = new ArrayList<>();
+        private int size;
+        private boolean overflowed;
+
+        private BoundedBody(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        List<byte[]> append(byte[] chunk) {
+            if (overflowed) {
+                return List.of(chunk);
+            }
+            chunks.add(chunk);
+            size += chunk.length;
+            if (size <= maxSize) {
+                return List.of();
+            }
+            overflowed = true;
+            List<byte[]> buffered = new ArrayList<>(chunks);
+            chunks.clear();
+            return buffered;
+        }
+
+        boolean overflowed() {
+            return overflowed;
+        }
+
+        byte[] toByteArray() {
+            byte[] body = new byte[size];
+            int offset = 0;
+            for (byte[] chunk : chunks) {
+                System.arraycopy(chunk, 0, body, offset, chunk.length);
+                offset += chunk.length;
+            }
+            return body;
+        }
+    }
+
+    /**
+     * Weak validator computed from the body when upstream does not send one (FNV-1a 64 bits)
+     */
+    static String weakEtag(byte[] body) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : body) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+        return "W/\"" + Integer.toHexString(body.length) + "-" + Long.toHexString(hash) + "\"";
+    }
+}
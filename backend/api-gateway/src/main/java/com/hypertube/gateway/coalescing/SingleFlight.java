@@ -0,0 +1,59 @@
+package com.hypertube.gateway.coalescing;
+
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Registry of in-flight calls: at most one call per key runs at a time
+ *
+ * The first caller for a key (the leader) registers its call as a shared Mono; callers
+ * arriving while it runs subscribe to the same Mono and receive the same result, error
+ * or completion. The entry is removed as soon as the call terminates, so results are never
+ * kept beyond the call itself. Late subscribers of a completed call get the cached result
+ * instead of re-running it, and the call is cancelled only when every subscriber has left.
+ * The registry is bounded: once maxKeys calls are in flight, new keys run uncoalesced.
+ */
+public final class SingleFlight<T> {
+
+    private final ConcurrentHashMap<String, Mono<T>> inFlight = new ConcurrentHashMap<>();
+    private final int maxKeys;
+
+    public SingleFlight(int maxKeys) {
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Joins the call in flight for this key, or starts a new one from the supplier
+     */
+    public Flight<T> join(String key, Supplier<Mono<T>> call) {
+        Mono<T> existing = inFlight.get(key);
+        if (existing != null) {
+            return new Flight<>(existing, false);
+        }
+        if (inFlight.size() >= maxKeys) {
+            return new Flight<>(Mono.defer(call), true);
+        }
+
+        AtomicReference<Mono<T>> self = new AtomicReference<>();
+        Mono<T> shared = Mono.defer(call)
+                .doFinally(signal -> inFlight.remove(key, self.get()))
+                .share();
+        self.set(shared);
+
+        existing = inFlight.putIfAbsent(key, shared);
+        return existing == null ? new Flight<>(shared, true) : new Flight<>(existing, false);
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Result of a call, and whether this caller is the one executing it
+     */
+    public record Flight<T>(Mono<T> result, boolean leader) {
+    }
+}
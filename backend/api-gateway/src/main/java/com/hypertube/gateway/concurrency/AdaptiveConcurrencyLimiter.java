@@ -0,0 +1,153 @@
+package com.hypertube.gateway.concurrency;
+
+import com.hypertube.gateway.config.HypertubeGatewayProperties;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limit of requests in flight towards an upstream, learnt from the observed round-trip times
+ *
+ * Gradient algorithm: the average RTT of each sample window is compared to the no-load RTT,
+ * the smallest RTT observed. While the average stays within rttTolerance of it the limit
+ * grows by sqrt(limit) per window; when requests start queueing upstream the ratio drops
+ * below 1 and the limit shrinks proportionally. Timeouts and 503/504 shrink it by backoffRatio.
+ * The no-load RTT follows a lower minimum at once and a higher one slowly (noLoadRttWindows),
+ * so that it is not learnt under load but still adapts when the service gets slower for good.
+ * The limit only grows while it is actually used (at least half of it in flight).
+ * Acquiring is a CAS on the in-flight counter; samples go to adders and the limit is
+ * recomputed by a single thread at the end of each window.
+ */
+public final class AdaptiveConcurrencyLimiter {
+
+    private final String name;
+    private final HypertubeGatewayProperties.ConcurrencyLimitConfig config;
+    private final long windowNanos;
+    private final double noLoadRttAlpha;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+
+    // Fenêtre courante
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private final LongAdder rttSum = new LongAdder();
+    private final LongAdder rttCount = new LongAdder();
+    private final AtomicLong windowMinRtt = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicInteger windowMaxInFlight = new AtomicInteger();
+    private volatile boolean windowDropped;
+
+    // Mis à jour sous le verrou, une fois par fenêtre
+    private double estimatedLimit;
+    private double noLoadRtt;
+
+    public AdaptiveConcurrencyLimiter(String name, HypertubeGatewayProperties.ConcurrencyLimitConfig config) {
+        this.name = name;
+        this.config = config;
+        this.windowNanos = config.getSampleWindow().toNanos();
+        this.noLoadRttAlpha = 2.0 / (config.getNoLoadRttWindows() + 1);
+        this.estimatedLimit = config.getInitialLimit();
+        this.limit = config.getInitialLimit();
+    }
+
+    public String getName() { return name; }
+
+    public int getLimit() { return limit; }
+
+    public int getInFlight() { return inFlight.get(); }
+
+    /**
+     * Takes a slot; false when the limit is reached and the request must be rejected
+     */
+    public boolean tryAcquire() {
+        for (;;) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                if (current + 1 > windowMaxInFlight.get()) {
+                    windowMaxInFlight.accumulateAndGet(current + 1, Math::max);
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases the slot of a request answered after rttNanos
+     */
+    public void onSuccess(long rttNanos) {
+        inFlight.decrementAndGet();
+        rttSum.add(rttNanos);
+        rttCount.increment();
+        if (rttNanos < windowMinRtt.get()) {
+            windowMinRtt.accumulateAndGet(rttNanos, Math::min);
+        }
+        maybeUpdate();
+    }
+
+    /**
+     * Releases the slot of a request that timed out or was refused as overloaded
+     */
+    public void onDropped() {
+        inFlight.decrementAndGet();
+        windowDropped = true;
+        maybeUpdate();
+    }
+
+    /**
+     * Releases the slot without sample (client cancelled)
+     */
+    public void onIgnored() {
+        inFlight.decrementAndGet();
+    }
+
+    private void maybeUpdate() {
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start < windowNanos || !windowStart.compareAndSet(start, now)) {
+            return;
+        }
+        synchronized (this) {
+            updateLimit();
+        }
+    }
+
+    private void updateLimit() {
+        boolean dropped = windowDropped;
+        windowDropped = false;
+        int maxInFlight = windowMaxInFlight.getAndSet(inFlight.get());
+        long count = rttCount.sumThenReset();
+        long sum = rttSum.sumThenReset();
+        long minRtt = windowMinRtt.getAndSet(Long.MAX_VALUE);
+
+        double newLimit;
+        if (dropped) {
+            newLimit = estimatedLimit * config.getBackoffRatio();
+        } else if (count < config.getMinWindowSamples()) {
+            // Trop peu d'échantillons : ils comptent dans la fenêtre suivante
+            rttCount.add(count);
+            rttSum.add(sum);
+            windowMaxInFlight.accumulateAndGet(maxInFlight, Math::max);
+            windowMinRtt.accumulateAndGet(minRtt, Math::min);
+            return;
+        } else {
+            double averageRtt = (double) sum / count;
+            noLoadRtt = noLoadRtt == 0 || minRtt < noLoadRtt
+                    ? minRtt
+                    : noLoadRtt + (minRtt - noLoadRtt) * noLoadRttAlpha;
+            // Limite peu utilisée : les RTT ne disent rien de la capacité au-delà
+            if (maxInFlight < estimatedLimit / 2) {
+                return;
+            }
+            double gradient = Math.max(0.5, Math.min(1.0, config.getRttTolerance() * noLoadRtt / averageRtt));
+            newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        }
+
+        double smoothed = dropped ? newLimit
+                : estimatedLimit * (1 - config.getSmoothing()) + newLimit * config.getSmoothing();
+        estimatedLimit = Math.max(config.getMinLimit(), Math.min(config.getMaxLimit(), smoothed));
+        limit = (int) estimatedLimit;
+    }
+}
@@ -0,0 +1,89 @@
+package com.hypertube.gateway.concurrency;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Times each upstream attempt of a request admitted by a concurrency limiter
+ *
+ * The limiter admits the request before the circuit breaker and the retry, so that its own
+ * rejections never count as service failures; the sample it learns from must however describe
+ * one real upstream call. This filter runs after every route filter, once per attempt, and
+ * records the outcome of the last attempt in the request's Sample. A request that never
+ * reaches upstream (open breaker, cache hit) leaves the Sample empty.
+ */
+@Component
+public class AttemptSampleFilter implements GlobalFilter, Ordered {
+
+    /**
+     * Exchange attribute holding the Sample of the request, set by the concurrency limit filter
+     */
+    public static final String SAMPLE_ATTR = "concurrency-sample";
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Sample sample = exchange.getAttribute(SAMPLE_ATTR);
+        if (sample == null) {
+            return chain.filter(exchange);
+        }
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return chain.filter(exchange)
+                    .doOnSuccess(v -> sample.completed(System.nanoTime() - start, exchange.getResponse().getStatusCode()))
+                    .doOnError(e -> sample.dropped())
+                    // Time limiter du circuit breaker ; une annulation par le client est ignorée par le limiteur
+                    .doOnCancel(sample::dropped);
+        });
+    }
+
+    @Override
+    public int getOrder() {
+        // Juste avant le choix de l'instance et le routage, après les filtres de la route
+        return ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER - 1;
+    }
+
+    /**
+     * Outcome of the last upstream attempt of a request
+     */
+    public static final class Sample {
+
+        private volatile long rttNanos = -1; // -1 : aucune tentative
+        private volatile boolean dropped;
+
+        void completed(long rttNanos, HttpStatusCode status) {
+            this.dropped = isOverloaded(status);
+            this.rttNanos = rttNanos;
+        }
+
+        void dropped() {
+            this.dropped = true;
+            this.rttNanos = 0;
+        }
+
+        /**
+         * Gives the request's slot back to the limiter with the sample of its last attempt
+         */
+        public void release(AdaptiveConcurrencyLimiter limiter) {
+            if (rttNanos < 0) {
+                limiter.onIgnored();
+            } else if (dropped) {
+                limiter.onDropped();
+            } else {
+                limiter.onSuccess(rttNanos);
+            }
+        }
+
+        private static boolean isOverloaded(HttpStatusCode status) {
+            return status != null
+                    && (status.value() == HttpStatus.SERVICE_UNAVAILABLE.value()
+                    || status.value() == HttpStatus.GATEWAY_TIMEOUT.value());
+        }
+    }
+}
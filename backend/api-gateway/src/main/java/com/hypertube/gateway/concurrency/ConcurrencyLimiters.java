@@ -0,0 +1,46 @@
+package com.hypertube.gateway.concurrency;
+
+import com.hypertube.gateway.config.HypertubeGatewayProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One adaptive limiter per route group ("auth", "video", "stream"), shared by the routes of the group
+ *
+ * Publishes gateway.concurrency.limit and gateway.concurrency.in_flight per group.
+ */
+@Component
+public class ConcurrencyLimiters {
+
+    private final HypertubeGatewayProperties.ConcurrencyLimitConfig config;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, AdaptiveConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ConcurrencyLimiters(HypertubeGatewayProperties gatewayProperties, MeterRegistry meterRegistry) {
+        this.config = gatewayProperties.getConcurrencyLimit();
+        this.meterRegistry = meterRegistry;
+    }
+
+    public AdaptiveConcurrencyLimiter get(String group) {
+        return limiters.computeIfAbsent(group, this::create);
+    }
+
+    private AdaptiveConcurrencyLimiter create(String group) {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(group, config);
+        Gauge.builder("gateway.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Requests allowed in flight, learnt from upstream RTTs")
+                .tag("group", group)
+                .register(meterRegistry);
+        Gauge.builder("gateway.concurrency.in_flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Requests in flight through the limiter")
+                .tag("group", group)
+                .register(meterRegistry);
+        return limiter;
+    }
+}
@@ -1,5 +1,7 @@
 package com.hypertube.gateway.config;
 
+import com.hypertube.gateway.routing.PathPrefixTrie;
+import com.hypertube.gateway.shedding.RequestPriority;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,6 +22,25 @@ public class GatewayConfig {
 
     private static final Logger log = LoggerFactory.getLogger(GatewayConfig.class);
 
+    // Tout /auth/ sauf les endpoints publics servis par les routes dédiées
+    private static final PathPrefixTrie AUTH_PROTECTED_PATHS = PathPrefixTrie.builder()
+            .include("/auth/**")
+            .exclude("/auth")
+            .exclude("/auth/signin")
+            .exclude("/auth/signup")
+            .exclude("/auth/oauth2/providers")
+            .build();
+
+    // GET dont la réponse est la même pour tous les utilisateurs (l'historique dépend de X-User-Id)
+    private static final PathPrefixTrie SHARED_MOVIE_PATHS = PathPrefixTrie.builder()
+            .include("/movies/**")
+            .exclude("/movies/history")
+            .build();
+
+    private static final PathPrefixTrie SHARED_SUBTITLE_PATHS = PathPrefixTrie.builder()
+            .include("/subtitles/**")
+            .build();
+
     private final HypertubeGatewayProperties gatewayProperties;
     private final RouteConfigHelper routeHelper;
 
@@ -37,29 +58,30 @@ public class GatewayConfig {
                 // === Authentification publique ===
                 .route("auth-public", r -> r
                         .path("/auth/signin", "/auth/signup")
-                        .filters(routeHelper.publicRoute("AUTH-PUBLIC"))
+                        .filters(routeHelper.publicRoute("AUTH-PUBLIC", "auth"))
                         .uri(routeHelper.getAuthServiceUrl()))
                         
                 // === OAuth2 providers endpoint (public) ===
                 .route("oauth2-providers", r -> r
                         .path("/auth/oauth2/providers")
-                        .filters(routeHelper.publicRoute("OAUTH2-PROVIDERS"))
+                        .filters(routeHelper.publicRoute("OAUTH2-PROVIDERS", "auth"))
                         .uri(routeHelper.getAuthServiceUrl()))
                         
                 .route("oauth2", r -> r
                         .path("/oauth2/**", "/login/oauth2/**")
-                        .filters(routeHelper.publicRoute("OAUTH2"))
+                        .filters(routeHelper.publicRoute("OAUTH2", "auth"))
                         .uri(routeHelper.getAuthServiceUrl()))
                         
                 // === Authentification protégée ===
+                // Le renouvellement de session passe avant le reste en cas de saturation
+                .route("auth-session", r -> r
+                        .path("/auth/refresh-token")
+                        .filters(routeHelper.prioritized(RequestPriority.CRITICAL,
+                                routeHelper.protectedRoute("AUTH-SESSION", "auth")))
+                        .uri(routeHelper.getAuthServiceUrl()))
+
                 .route("auth-protected", r -> r
-                        .predicate(exchange -> {
-                                String path = exchange.getRequest().getURI().getPath();
-                                return path.startsWith("/auth/")
-                                && !path.equals("/auth/signin")
-                                && !path.equals("/auth/signup")
-                                && !path.equals("/auth/oauth2/providers");
-                        })
+                        .predicate(routeHelper.pathMatching(AUTH_PROTECTED_PATHS))
                         .filters(routeHelper.protectedRoute("AUTH", "auth"))
                         .uri(routeHelper.getAuthServiceUrl()))
 
@@ -72,28 +94,33 @@ public class GatewayConfig {
                 .route("movies-public", r -> r
                         .path("/movies")
                         .and().method("GET")
-                        .filters(routeHelper.publicRoute("MOVIES-PUBLIC"))
+                        .filters(routeHelper.prioritized(RequestPriority.LOW,
+                                routeHelper.cachedPublicRoute("MOVIES-PUBLIC", "video")))
                         .uri(routeHelper.getVideoServiceUrl()))
 
                 .route("movies-protected", r -> r
                         .path("/movies/**")
-                        .filters(routeHelper.protectedRoute("MOVIES", "video"))
+                        .filters(routeHelper.prioritized(RequestPriority.LOW,
+                                routeHelper.coalescedProtectedRoute("MOVIES", "video", SHARED_MOVIE_PATHS)))
                         .uri(routeHelper.getVideoServiceUrl()))
 
                 // === Services vidéo protégés ===
                 .route("stream", r -> r
                         .path("/stream/**")
-                        .filters(routeHelper.protectedRoute("STREAM", "video"))
+                        .filters(routeHelper.prioritized(RequestPriority.CRITICAL,
+                                routeHelper.movieAffineRoute(routeHelper.streamRoute("STREAM", "video"))))
                         .uri(routeHelper.getVideoServiceUrl()))
 
                 .route("subtitles", r -> r
                         .path("/subtitles/**")
-                        .filters(routeHelper.protectedRoute("SUBTITLES", "video"))
+                        .filters(routeHelper.movieAffineRoute(
+                                routeHelper.coalescedProtectedRoute("SUBTITLES", "video", SHARED_SUBTITLE_PATHS)))
                         .uri(routeHelper.getVideoServiceUrl()))
 
                 .route("comments", r -> r
                         .path("/comments/**")
-                        .filters(routeHelper.protectedRoute("COMMENTS", "video"))
+                        .filters(routeHelper.prioritized(RequestPriority.LOW,
+                                routeHelper.protectedRoute("COMMENTS", "video")))
                         .uri(routeHelper.getVideoServiceUrl()))
 
                 // === Santé des services ===
@@ -129,19 +156,4 @@ public class GatewayConfig {
 
         return new CorsWebFilter(source);
     }
-
-    @Bean
-    public org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter redisRateLimiter() {
-        var defaultConfig = gatewayProperties.getRateLimit().getConfigForEndpoint("default");
-        return new org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter(
-                defaultConfig.getReplenishRate(), 
-                defaultConfig.getBurstCapacity(),
-                defaultConfig.getRequestedTokens()
-        );
-    }
-
-    @Bean
-    public org.springframework.cloud.gateway.filter.ratelimit.KeyResolver keyResolver() {
-        return exchange -> reactor.core.publisher.Mono.just("global");
-    }
-} 
\ No newline at end of file
+}
@@ -1,10 +1,15 @@
 package com.hypertube.gateway.config;
 
+import com.hypertube.gateway.routing.PathPrefixTrie;
+import com.hypertube.gateway.shedding.RequestPriority;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Centralized configuration for Hypertube API Gateway
@@ -20,6 +25,17 @@ public class HypertubeGatewayProperties {
     private CorsConfig cors = new CorsConfig();
     private CircuitBreakerConfig circuitBreaker = new CircuitBreakerConfig();
     private RetryConfig retry = new RetryConfig();
+    private AccessLogConfig accessLog = new AccessLogConfig();
+    private StreamingConfig streaming = new StreamingConfig();
+    private RevocationConfig revocation = new RevocationConfig();
+    private IdentityAssertionConfig identityAssertion = new IdentityAssertionConfig();
+    private ResponseCacheConfig responseCache = new ResponseCacheConfig();
+    private CoalescingConfig coalescing = new CoalescingConfig();
+    private HealthCheckConfig healthCheck = new HealthCheckConfig();
+    private OutlierDetectionConfig outlierDetection = new OutlierDetectionConfig();
+    private ConsistentHashConfig consistentHash = new ConsistentHashConfig();
+    private ConcurrencyLimitConfig concurrencyLimit = new ConcurrencyLimitConfig();
+    private LoadSheddingConfig loadShedding = new LoadSheddingConfig();
 
     // Public endpoints - centralized configuration ONLY here
     private List<String> publicEndpoints = List.of(
@@ -36,6 +52,9 @@ public class HypertubeGatewayProperties {
             "/fallback/**"
     );
 
+    // Compiled form of publicEndpoints, rebuilt whenever the list is rebound
+    private volatile PathPrefixTrie publicEndpointMatcher = compilePublicEndpoints(publicEndpoints);
+
     // Getters and Setters
     public JwtConfig getJwt() { return jwt; }
     public void setJwt(JwtConfig jwt) { this.jwt = jwt; }
@@ -55,20 +74,67 @@ public class HypertubeGatewayProperties {
     public RetryConfig getRetry() { return retry; }
     public void setRetry(RetryConfig retry) { this.retry = retry; }
 
+    public AccessLogConfig getAccessLog() { return accessLog; }
+    public void setAccessLog(AccessLogConfig accessLog) { this.accessLog = accessLog; }
+
+    public StreamingConfig getStreaming() { return streaming; }
+    public void setStreaming(StreamingConfig streaming) { this.streaming = streaming; }
+
+    public RevocationConfig getRevocation() { return revocation; }
+    public void setRevocation(RevocationConfig revocation) { this.revocation = revocation; }
+
+    public IdentityAssertionConfig getIdentityAssertion() { return identityAssertion; }
+    public void setIdentityAssertion(IdentityAssertionConfig identityAssertion) { this.identityAssertion = identityAssertion; }
+
+    public ResponseCacheConfig getResponseCache() { return responseCache; }
+    public void setResponseCache(ResponseCacheConfig responseCache) { this.responseCache = responseCache; }
+
+    public CoalescingConfig getCoalescing() { return coalescing; }
+    public void setCoalescing(CoalescingConfig coalescing) { this.coalescing = coalescing; }
+
+    public HealthCheckConfig getHealthCheck() { return healthCheck; }
+    public void setHealthCheck(HealthCheckConfig healthCheck) { this.healthCheck = healthCheck; }
+
+    public OutlierDetectionConfig getOutlierDetection() { return outlierDetection; }
+    public void setOutlierDetection(OutlierDetectionConfig outlierDetection) { this.outlierDetection = outlierDetection; }
+
+    public ConsistentHashConfig getConsistentHash() { return consistentHash; }
+    public void setConsistentHash(ConsistentHashConfig consistentHash) { this.consistentHash = consistentHash; }
+
+    public ConcurrencyLimitConfig getConcurrencyLimit() { return concurrencyLimit; }
+    public void setConcurrencyLimit(ConcurrencyLimitConfig concurrencyLimit) { this.concurrencyLimit = concurrencyLimit; }
+
+    public LoadSheddingConfig getLoadShedding() { return loadShedding; }
+    public void setLoadShedding(LoadSheddingConfig loadShedding) { this.loadShedding = loadShedding; }
+
     public List<String> getPublicEndpoints() { return publicEndpoints; }
-    public void setPublicEndpoints(List<String> publicEndpoints) { this.publicEndpoints = publicEndpoints; }
+    public void setPublicEndpoints(List<String> publicEndpoints) {
+        this.publicEndpoints = publicEndpoints;
+        this.publicEndpointMatcher = compilePublicEndpoints(publicEndpoints);
+    }
 
     public static class JwtConfig {
         private String secret = "hypertubeSecretKeyForDevelopmentOnly";
+        // Rotation, comme auth-service : kid de la clé courante et anciennes clés "kid=secret,..."
+        private String keyId = "";
+        private String previousKeys = "";
         private long expiration = 86400000; // 24 hours in ms
         private long refreshExpiration = 604800000; // 7 days in ms
         private String issuer = "hypertube-app";
         private int clockSkewSeconds = 60;
+        private int verifiedCacheMaxSize = 10_000;
+        private Duration verifiedCacheMaxTtl = Duration.ofMinutes(5);
 
         // Getters and Setters
         public String getSecret() { return secret; }
         public void setSecret(String secret) { this.secret = secret; }
 
+        public String getKeyId() { return keyId; }
+        public void setKeyId(String keyId) { this.keyId = keyId; }
+
+        public String getPreviousKeys() { return previousKeys; }
+        public void setPreviousKeys(String previousKeys) { this.previousKeys = previousKeys; }
+
         public long getExpiration() { return expiration; }
         public void setExpiration(long expiration) { this.expiration = expiration; }
 
@@ -80,6 +146,12 @@ public class HypertubeGatewayProperties {
 
         public int getClockSkewSeconds() { return clockSkewSeconds; }
         public void setClockSkewSeconds(int clockSkewSeconds) { this.clockSkewSeconds = clockSkewSeconds; }
+
+        public int getVerifiedCacheMaxSize() { return verifiedCacheMaxSize; }
+        public void setVerifiedCacheMaxSize(int verifiedCacheMaxSize) { this.verifiedCacheMaxSize = verifiedCacheMaxSize; }
+
+        public Duration getVerifiedCacheMaxTtl() { return verifiedCacheMaxTtl; }
+        public void setVerifiedCacheMaxTtl(Duration verifiedCacheMaxTtl) { this.verifiedCacheMaxTtl = verifiedCacheMaxTtl; }
     }
 
     public static class ServicesConfig {
@@ -88,7 +160,8 @@ public class HypertubeGatewayProperties {
                 "http://localhost:8081",
                 "/actuator/health",
                 Duration.ofSeconds(5),
-                3
+                3,
+                new PoolConfig(200, Duration.ofSeconds(20)) // Tomcat keeps idle connections 60s
         );
 
         private ServiceConfig videoService = new ServiceConfig(
@@ -96,7 +169,8 @@ public class HypertubeGatewayProperties {
                 "http://localhost:3002",
                 "/health",
                 Duration.ofSeconds(10),
-                3
+                3,
+                new PoolConfig(200, Duration.ofSeconds(4)) // Node closes idle connections after 5s
         );
 
         // Getters and Setters
@@ -105,15 +179,28 @@ public class HypertubeGatewayProperties {
 
         public ServiceConfig getVideoService() { return videoService; }
         public void setVideoService(ServiceConfig videoService) { this.videoService = videoService; }
+
+        /**
+         * Resolves a service by its route group name ("auth" or "video")
+         */
+        public ServiceConfig getService(String serviceName) {
+            return switch (serviceName.toLowerCase()) {
+                case "auth" -> authService;
+                case "video" -> videoService;
+                default -> throw new IllegalArgumentException("Unknown service: " + serviceName);
+            };
+        }
     }
 
     public static class ServiceConfig {
         private String name;
         private String url;
+        private List<String> instances = new ArrayList<>(); // empty: url is the only instance
         private String healthPath;
         private Duration timeout;
         private int retryAttempts;
         private boolean circuitBreakerEnabled = true;
+        private PoolConfig pool = new PoolConfig();
 
         // Constructors
         public ServiceConfig() {}
@@ -126,6 +213,11 @@ public class HypertubeGatewayProperties {
             this.retryAttempts = retryAttempts;
         }
 
+        public ServiceConfig(String name, String url, String healthPath, Duration timeout, int retryAttempts, PoolConfig pool) {
+            this(name, url, healthPath, timeout, retryAttempts);
+            this.pool = pool;
+        }
+
         // Getters and Setters
         public String getName() { return name; }
         public void setName(String name) { this.name = name; }
@@ -133,6 +225,16 @@ public class HypertubeGatewayProperties {
         public String getUrl() { return url; }
         public void setUrl(String url) { this.url = url; }
 
+        public List<String> getInstances() { return instances; }
+        public void setInstances(List<String> instances) { this.instances = instances; }
+
+        /**
+         * Instances actually called; url remains the key routes are resolved with
+         */
+        public List<String> getInstanceUrls() {
+            return instances == null || instances.isEmpty() ? List.of(url) : instances;
+        }
+
         public String getHealthPath() { return healthPath; }
         public void setHealthPath(String healthPath) { this.healthPath = healthPath; }
 
@@ -144,21 +246,92 @@ public class HypertubeGatewayProperties {
 
         public boolean isCircuitBreakerEnabled() { return circuitBreakerEnabled; }
         public void setCircuitBreakerEnabled(boolean circuitBreakerEnabled) { this.circuitBreakerEnabled = circuitBreakerEnabled; }
+
+        public PoolConfig getPool() { return pool; }
+        public void setPool(PoolConfig pool) { this.pool = pool; }
+    }
+
+    /**
+     * Connection pool dedicated to one upstream
+     */
+    public static class PoolConfig {
+        private int maxConnections = 200;
+        private int pendingAcquireMaxCount = 1000;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(3);
+        private Duration connectTimeout = Duration.ofSeconds(2);
+        private Duration maxIdleTime = Duration.ofSeconds(20); // keep below the upstream keep-alive timeout
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        private Duration evictionInterval = Duration.ofSeconds(10);
+        private boolean keepAlive = true;
+
+        // Constructors
+        public PoolConfig() {}
+
+        public PoolConfig(int maxConnections, Duration maxIdleTime) {
+            this.maxConnections = maxConnections;
+            this.maxIdleTime = maxIdleTime;
+        }
+
+        // Getters and Setters
+        public int getMaxConnections() { return maxConnections; }
+        public void setMaxConnections(int maxConnections) { this.maxConnections = maxConnections; }
+
+        public int getPendingAcquireMaxCount() { return pendingAcquireMaxCount; }
+        public void setPendingAcquireMaxCount(int pendingAcquireMaxCount) { this.pendingAcquireMaxCount = pendingAcquireMaxCount; }
+
+        public Duration getPendingAcquireTimeout() { return pendingAcquireTimeout; }
+        public void setPendingAcquireTimeout(Duration pendingAcquireTimeout) { this.pendingAcquireTimeout = pendingAcquireTimeout; }
+
+        public Duration getConnectTimeout() { return connectTimeout; }
+        public void setConnectTimeout(Duration connectTimeout) { this.connectTimeout = connectTimeout; }
+
+        public Duration getMaxIdleTime() { return maxIdleTime; }
+        public void setMaxIdleTime(Duration maxIdleTime) { this.maxIdleTime = maxIdleTime; }
+
+        public Duration getMaxLifeTime() { return maxLifeTime; }
+        public void setMaxLifeTime(Duration maxLifeTime) { this.maxLifeTime = maxLifeTime; }
+
+        public Duration getEvictionInterval() { return evictionInterval; }
+        public void setEvictionInterval(Duration evictionInterval) { this.evictionInterval = evictionInterval; }
+
+        public boolean isKeepAlive() { return keepAlive; }
+        public void setKeepAlive(boolean keepAlive) { this.keepAlive = keepAlive; }
     }
 
     public static class RateLimitConfig {
+        public static final String DEFAULT_POLICY = "default";
+        public static final String AUTH_POLICY = "auth";
+
         private boolean enabled = true;
         private int defaultReplenishRate = 100;
         private int defaultBurstCapacity = 200;
         private int authReplenishRate = 10;
         private int authBurstCapacity = 20;
         private int requestedTokens = 1;
+        private int trustedProxyCount = 1; // nginx in front of the gateway
+        // Policy of each route, by route id; routes not listed use the default policy
+        private Map<String, String> routePolicies = new HashMap<>(Map.of(
+                "auth-public", AUTH_POLICY,  // signin, signup
+                "oauth2", AUTH_POLICY
+        ));
+        // Local tier (in-memory buckets reconciled with Redis in the background)
+        private boolean localTierEnabled = true;
+        private int localMaxKeys = 100_000;
+        private Duration syncInterval = Duration.ofMillis(200);
+        private Duration syncTimeout = Duration.ofMillis(500);
+        private int syncBatchSize = 256;
+        private Duration degradedRetryInterval = Duration.ofSeconds(5);
+
+        public String getPolicyForRoute(String routeId) {
+            return routePolicies.getOrDefault(routeId, DEFAULT_POLICY);
+        }
 
-        public RateLimitEndpointConfig getConfigForEndpoint(String endpoint) {
-            if (endpoint != null && endpoint.contains("auth")) {
-                return new RateLimitEndpointConfig(authReplenishRate, authBurstCapacity, requestedTokens);
-            }
-            return new RateLimitEndpointConfig(defaultReplenishRate, defaultBurstCapacity, requestedTokens);
+        public RateLimitEndpointConfig getConfigForPolicy(String policy) {
+            return switch (policy) {
+                case AUTH_POLICY -> new RateLimitEndpointConfig(authReplenishRate, authBurstCapacity, requestedTokens);
+                case DEFAULT_POLICY -> new RateLimitEndpointConfig(defaultReplenishRate, defaultBurstCapacity, requestedTokens);
+                default -> throw new IllegalArgumentException("Unknown rate limit policy: " + policy);
+            };
         }
 
         // Getters and Setters
@@ -179,6 +352,30 @@ public class HypertubeGatewayProperties {
 
         public int getRequestedTokens() { return requestedTokens; }
         public void setRequestedTokens(int requestedTokens) { this.requestedTokens = requestedTokens; }
+
+        public int getTrustedProxyCount() { return trustedProxyCount; }
+        public void setTrustedProxyCount(int trustedProxyCount) { this.trustedProxyCount = trustedProxyCount; }
+
+        public Map<String, String> getRoutePolicies() { return routePolicies; }
+        public void setRoutePolicies(Map<String, String> routePolicies) { this.routePolicies = routePolicies; }
+
+        public boolean isLocalTierEnabled() { return localTierEnabled; }
+        public void setLocalTierEnabled(boolean localTierEnabled) { this.localTierEnabled = localTierEnabled; }
+
+        public int getLocalMaxKeys() { return localMaxKeys; }
+        public void setLocalMaxKeys(int localMaxKeys) { this.localMaxKeys = localMaxKeys; }
+
+        public Duration getSyncInterval() { return syncInterval; }
+        public void setSyncInterval(Duration syncInterval) { this.syncInterval = syncInterval; }
+
+        public Duration getSyncTimeout() { return syncTimeout; }
+        public void setSyncTimeout(Duration syncTimeout) { this.syncTimeout = syncTimeout; }
+
+        public int getSyncBatchSize() { return syncBatchSize; }
+        public void setSyncBatchSize(int syncBatchSize) { this.syncBatchSize = syncBatchSize; }
+
+        public Duration getDegradedRetryInterval() { return degradedRetryInterval; }
+        public void setDegradedRetryInterval(Duration degradedRetryInterval) { this.degradedRetryInterval = degradedRetryInterval; }
     }
 
     public static class RateLimitEndpointConfig {
@@ -253,6 +450,7 @@ public class HypertubeGatewayProperties {
         private Duration waitDurationInOpenState = Duration.ofSeconds(50);
         private int failureRateThreshold = 50;
         private int eventConsumerBufferSize = 10;
+        private List<Integer> failureStatusCodes = List.of(502, 503, 504); // upstream responses counted as failures
 
         // Getters and Setters
         public boolean isEnabled() { return enabled; }
@@ -278,6 +476,9 @@ public class HypertubeGatewayProperties {
 
         public int getEventConsumerBufferSize() { return eventConsumerBufferSize; }
         public void setEventConsumerBufferSize(int eventConsumerBufferSize) { this.eventConsumerBufferSize = eventConsumerBufferSize; }
+
+        public List<Integer> getFailureStatusCodes() { return failureStatusCodes; }
+        public void setFailureStatusCodes(List<Integer> failureStatusCodes) { this.failureStatusCodes = failureStatusCodes; }
     }
 
     public static class RetryConfig {
@@ -288,6 +489,9 @@ public class HypertubeGatewayProperties {
         private int exponentialBackoffMultiplier = 2;
         private Duration firstBackoff = Duration.ofMillis(50);
         private Duration maxBackoff = Duration.ofMillis(500);
+        private double jitterFactor = 0.5; // each wait is randomized by +/- 50%
+        private List<String> retryableMethods = List.of("GET", "HEAD", "OPTIONS");
+        private List<Integer> retryableStatuses = List.of(502, 503, 504);
 
         // Getters and Setters
         public boolean isEnabled() { return enabled; }
@@ -310,19 +514,359 @@ public class HypertubeGatewayProperties {
 
         public Duration getMaxBackoff() { return maxBackoff; }
         public void setMaxBackoff(Duration maxBackoff) { this.maxBackoff = maxBackoff; }
+
+        public double getJitterFactor() { return jitterFactor; }
+        public void setJitterFactor(double jitterFactor) { this.jitterFactor = jitterFactor; }
+
+        public List<String> getRetryableMethods() { return retryableMethods; }
+        public void setRetryableMethods(List<String> retryableMethods) { this.retryableMethods = retryableMethods; }
+
+        public List<Integer> getRetryableStatuses() { return retryableStatuses; }
+        public void setRetryableStatuses(List<Integer> retryableStatuses) { this.retryableStatuses = retryableStatuses; }
+    }
+
+    public static class AccessLogConfig {
+        private boolean enabled = true;
+        private int bufferSize = 8192; // rounded up to a power of two
+
+        // Getters and Setters
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public int getBufferSize() { return bufferSize; }
+        public void setBufferSize(int bufferSize) { this.bufferSize = bufferSize; }
+    }
+
+    public static class StreamingConfig {
+        private Duration firstByteTimeout = Duration.ofSeconds(10); // until upstream headers
+        private Duration idleTimeout = Duration.ofSeconds(30);      // between two body reads
+        private int retries = 2;                                    // before the first byte only
+        private PoolConfig pool = new PoolConfig(500, Duration.ofSeconds(4)); // long-lived, kept apart from API calls
+
+        // Getters and Setters
+        public Duration getFirstByteTimeout() { return firstByteTimeout; }
+        public void setFirstByteTimeout(Duration firstByteTimeout) { this.firstByteTimeout = firstByteTimeout; }
+
+        public Duration getIdleTimeout() { return idleTimeout; }
+        public void setIdleTimeout(Duration idleTimeout) { this.idleTimeout = idleTimeout; }
+
+        public int getRetries() { return retries; }
+        public void setRetries(int retries) { this.retries = retries; }
+
+        public PoolConfig getPool() { return pool; }
+        public void setPool(PoolConfig pool) { this.pool = pool; }
+    }
+
+    public static class RevocationConfig {
+        private boolean enabled = true;
+        private String channel = "hypertube:token-revocations"; // published by auth-service
+        private String key = "hypertube:revoked-users";         // sorted set userId -> revokedAt (epoch seconds)
+        private int expectedEntries = 100_000;
+        private double falsePositiveRate = 0.001;
+        private Duration resyncInterval = Duration.ofMinutes(5);
+        private Duration reconnectMaxBackoff = Duration.ofSeconds(30);
+
+        // Getters and Setters
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public String getChannel() { return channel; }
+        public void setChannel(String channel) { this.channel = channel; }
+
+        public String getKey() { return key; }
+        public void setKey(String key) { this.key = key; }
+
+        public int getExpectedEntries() { return expectedEntries; }
+        public void setExpectedEntries(int expectedEntries) { this.expectedEntries = expectedEntries; }
+
+        public double getFalsePositiveRate() { return falsePositiveRate; }
+        public void setFalsePositiveRate(double falsePositiveRate) { this.falsePositiveRate = falsePositiveRate; }
+
+        public Duration getResyncInterval() { return resyncInterval; }
+        public void setResyncInterval(Duration resyncInterval) { this.resyncInterval = resyncInterval; }
+
+        public Duration getReconnectMaxBackoff() { return reconnectMaxBackoff; }
+        public void setReconnectMaxBackoff(Duration reconnectMaxBackoff) { this.reconnectMaxBackoff = reconnectMaxBackoff; }
+    }
+
+    /**
+     * Signed X-Gateway-Assertion sent with the identity headers; the secret is shared with auth-service
+     */
+    public static class IdentityAssertionConfig {
+        private String secret = "hypertubeGatewayIdentitySecretForDevelopmentOnly";
+        private Duration ttl = Duration.ofSeconds(30); // couvre les retries ; court pour limiter le rejeu
+
+        // Getters and Setters
+        public String getSecret() { return secret; }
+        public void setSecret(String secret) { this.secret = secret; }
+
+        public Duration getTtl() { return ttl; }
+        public void setTtl(Duration ttl) { this.ttl = ttl; }
+    }
+
+    public static class ResponseCacheConfig {
+        private boolean enabled = true;
+        private long maxSizeBytes = 64L * 1024 * 1024;          // local LRU, weighed by body size
+        private int maxBodySize = 1024 * 1024;                  // larger responses are never cached
+        private Duration defaultTtl = Duration.ofSeconds(30);   // when upstream sends no max-age
+        private Duration maxTtl = Duration.ofMinutes(5);
+        private Duration coalesceTimeout = Duration.ofSeconds(5); // wait for the in-flight miss
+        private boolean redisEnabled = false;                   // shares entries between gateway instances
+        private String redisKeyPrefix = "hypertube:response-cache:";
+        private Duration redisTimeout = Duration.ofMillis(100); // a slow Redis falls back to upstream
+
+        // Getters and Setters
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public long getMaxSizeBytes() { return maxSizeBytes; }
+        public void setMaxSizeBytes(long maxSizeBytes) { this.maxSizeBytes = maxSizeBytes; }
+
+        public int getMaxBodySize() { return maxBodySize; }
+        public void setMaxBodySize(int maxBodySize) { this.maxBodySize = maxBodySize; }
+
+        public Duration getDefaultTtl() { return defaultTtl; }
+        public void setDefaultTtl(Duration defaultTtl) { this.defaultTtl = defaultTtl; }
+
+        public Duration getMaxTtl() { return maxTtl; }
+        public void setMaxTtl(Duration maxTtl) { this.maxTtl = maxTtl; }
+
+        public Duration getCoalesceTimeout() { return coalesceTimeout; }
+        public void setCoalesceTimeout(Duration coalesceTimeout) { this.coalesceTimeout = coalesceTimeout; }
+
+        public boolean isRedisEnabled() { return redisEnabled; }
+        public void setRedisEnabled(boolean redisEnabled) { this.redisEnabled = redisEnabled; }
+
+        public String getRedisKeyPrefix() { return redisKeyPrefix; }
+        public void setRedisKeyPrefix(String redisKeyPrefix) { this.redisKeyPrefix = redisKeyPrefix; }
+
+        public Duration getRedisTimeout() { return redisTimeout; }
+        public void setRedisTimeout(Duration redisTimeout) { this.redisTimeout = redisTimeout; }
+    }
+
+    public static class CoalescingConfig {
+        private boolean enabled = true;
+        private int maxInFlight = 10_000;      // distinct keys; beyond that requests are not coalesced
+        private int maxBodySize = 1024 * 1024; // larger responses are streamed to the leader only
+
+        // Getters and Setters
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public int getMaxInFlight() { return maxInFlight; }
+        public void setMaxInFlight(int maxInFlight) { this.maxInFlight = maxInFlight; }
+
+        public int getMaxBodySize() { return maxBodySize; }
+        public void setMaxBodySize(int maxBodySize) { this.maxBodySize = maxBodySize; }
+    }
+
+    /**
+     * Active probing of every instance on ServiceConfig.healthPath
+     */
+    public static class HealthCheckConfig {
+        private boolean enabled = true;
+        private Duration interval = Duration.ofSeconds(10);
+        private double jitterFactor = 0.2;    // +/- 20% so gateways do not probe in lockstep
+        private Duration timeout = Duration.ofSeconds(2);
+        private int unhealthyThreshold = 3;   // consecutive failed probes before removal
+        private int healthyThreshold = 2;     // consecutive successful probes before return
+
+        // Getters and Setters
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public Duration getInterval() { return interval; }
+        public void setInterval(Duration interval) { this.interval = interval; }
+
+        public double getJitterFactor() { return jitterFactor; }
+        public void setJitterFactor(double jitterFactor) { this.jitterFactor = jitterFactor; }
+
+        public Duration getTimeout() { return timeout; }
+        public void setTimeout(Duration timeout) { this.timeout = timeout; }
+
+        public int getUnhealthyThreshold() { return unhealthyThreshold; }
+        public void setUnhealthyThreshold(int unhealthyThreshold) { this.unhealthyThreshold = unhealthyThreshold; }
+
+        public int getHealthyThreshold() { return healthyThreshold; }
+        public void setHealthyThreshold(int healthyThreshold) { this.healthyThreshold = healthyThreshold; }
+    }
+
+    /**
+     * Passive ejection of instances failing real traffic (5xx, connection errors, timeouts)
+     */
+    public static class OutlierDetectionConfig {
+        private boolean enabled = true;
+        private int consecutiveFailures = 5;
+        private Duration baseEjectionTime = Duration.ofSeconds(30); // doubled at each new ejection
+        private Duration maxEjectionTime = Duration.ofMinutes(5);
+        private int maxEjectionPercent = 50;                        // always keep part of the cluster
+
+        // Getters and Setters
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public int getConsecutiveFailures() { return consecutiveFailures; }
+        public void setConsecutiveFailures(int consecutiveFailures) { this.consecutiveFailures = consecutiveFailures; }
+
+        public Duration getBaseEjectionTime() { return baseEjectionTime; }
+        public void setBaseEjectionTime(Duration baseEjectionTime) { this.baseEjectionTime = baseEjectionTime; }
+
+        public Duration getMaxEjectionTime() { return maxEjectionTime; }
+        public void setMaxEjectionTime(Duration maxEjectionTime) { this.maxEjectionTime = maxEjectionTime; }
+
+        public int getMaxEjectionPercent() { return maxEjectionPercent; }
+        public void setMaxEjectionPercent(int maxEjectionPercent) { this.maxEjectionPercent = maxEjectionPercent; }
+    }
+
+    /**
+     * Routing of stream and subtitle requests to the instance owning the movie
+     */
+    public static class ConsistentHashConfig {
+        private boolean enabled = true;
+        private int virtualNodes = 160;  // points per instance on the ring
+        private double loadFactor = 1.25; // an instance takes at most 125% of the average outstanding load
+
+        // Getters and Setters
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public int getVirtualNodes() { return virtualNodes; }
+        public void setVirtualNodes(int virtualNodes) { this.virtualNodes = virtualNodes; }
+
+        public double getLoadFactor() { return loadFactor; }
+        public void setLoadFactor(double loadFactor) { this.loadFactor = loadFactor; }
+    }
+
+    /**
+     * Adaptive limit of the requests in flight per route group (auth, video, stream), learnt from RTTs
+     */
+    public static class ConcurrencyLimitConfig {
+        private boolean enabled = true;
+        private int initialLimit = 20;
+        private int minLimit = 4;
+        private int maxLimit = 1000;
+        private Duration sampleWindow = Duration.ofMillis(250); // the limit is recomputed once per window
+        private int minWindowSamples = 10;    // fewer samples: the window is extended
+        private int noLoadRttWindows = 100;   // windows for the no-load RTT to follow a slower service
+        private double rttTolerance = 1.5;    // RTT increase tolerated before the limit shrinks
+        private double smoothing = 0.2;
+        private double backoffRatio = 0.9;    // applied when a window saw timeouts or 503/504
+        private Duration retryAfter = Duration.ofSeconds(1);
+
+        // Getters and Setters
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public int getInitialLimit() { return initialLimit; }
+        public void setInitialLimit(int initialLimit) { this.initialLimit = initialLimit; }
+
+        public int getMinLimit() { return minLimit; }
+        public void setMinLimit(int minLimit) { this.minLimit = minLimit; }
+
+        public int getMaxLimit() { return maxLimit; }
+        public void setMaxLimit(int maxLimit) { this.maxLimit = maxLimit; }
+
+        public Duration getSampleWindow() { return sampleWindow; }
+        public void setSampleWindow(Duration sampleWindow) { this.sampleWindow = sampleWindow; }
+
+        public int getMinWindowSamples() { return minWindowSamples; }
+        public void setMinWindowSamples(int minWindowSamples) { this.minWindowSamples = minWindowSamples; }
+
+        public int getNoLoadRttWindows() { return noLoadRttWindows; }
+        public void setNoLoadRttWindows(int noLoadRttWindows) { this.noLoadRttWindows = noLoadRttWindows; }
+
+        public double getRttTolerance() { return rttTolerance; }
+        public void setRttTolerance(double rttTolerance) { this.rttTolerance = rttTolerance; }
+
+        public double getSmoothing() { return smoothing; }
+        public void setSmoothing(double smoothing) { this.smoothing = smoothing; }
+
+        public double getBackoffRatio() { return backoffRatio; }
+        public void setBackoffRatio(double backoffRatio) { this.backoffRatio = backoffRatio; }
+
+        public Duration getRetryAfter() { return retryAfter; }
+        public void setRetryAfter(Duration retryAfter) { this.retryAfter = retryAfter; }
+    }
+
+    /**
+     * Shedding of low-priority requests when the gateway itself is saturated (CPU, event-loop lag)
+     *
+     * Pressure = max(cpu / cpuTarget, event-loop lag / eventLoopLagTarget). A class starts being
+     * shed when the pressure exceeds its threshold, with a probability rising to 1 over ramp.
+     * CRITICAL requests are never shed. The 503 is held for rejectDelay: a client that re-sends
+     * at once is slowed down instead of keeping the gateway busy with rejections.
+     */
+    public static class LoadSheddingConfig {
+        private boolean enabled = true;
+        private Duration sampleInterval = Duration.ofMillis(100);
+        private double cpuTarget = 0.9;
+        private Duration eventLoopLagTarget = Duration.ofMillis(50);
+        private double lowPriorityThreshold = 0.8; // marge : à 1.0 la file d'attente CPU pénalise déjà le CRITICAL
+        private double normalPriorityThreshold = 1.3;
+        private double ramp = 0.3;
+        private Duration retryAfter = Duration.ofSeconds(1);
+        private Duration rejectDelay = Duration.ofMillis(500);
+        private Map<String, RequestPriority> routes = new HashMap<>(); // route id -> class, overrides GatewayConfig
+
+        // Getters and Setters
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public Duration getSampleInterval() { return sampleInterval; }
+        public void setSampleInterval(Duration sampleInterval) { this.sampleInterval = sampleInterval; }
+
+        public double getCpuTarget() { return cpuTarget; }
+        public void setCpuTarget(double cpuTarget) { this.cpuTarget = cpuTarget; }
+
+        public Duration getEventLoopLagTarget() { return eventLoopLagTarget; }
+        public void setEventLoopLagTarget(Duration eventLoopLagTarget) { this.eventLoopLagTarget = eventLoopLagTarget; }
+
+        public double getLowPriorityThreshold() { return lowPriorityThreshold; }
+        public void setLowPriorityThreshold(double lowPriorityThreshold) { this.lowPriorityThreshold = lowPriorityThreshold; }
+
+        public double getNormalPriorityThreshold() { return normalPriorityThreshold; }
+        public void setNormalPriorityThreshold(double normalPriorityThreshold) { this.normalPriorityThreshold = normalPriorityThreshold; }
+
+        public double getRamp() { return ramp; }
+        public void setRamp(double ramp) { this.ramp = ramp; }
+
+        public Duration getRetryAfter() { return retryAfter; }
+        public void setRetryAfter(Duration retryAfter) { this.retryAfter = retryAfter; }
+
+        public Duration getRejectDelay() { return rejectDelay; }
+        public void setRejectDelay(Duration rejectDelay) { this.rejectDelay = rejectDelay; }
+
+        public Map<String, RequestPriority> getRoutes() { return routes; }
+        public void setRoutes(Map<String, RequestPriority> routes) { this.routes = routes; }
+
+        /**
+         * Pressure above which the class is shed, +infinity for CRITICAL
+         */
+        public double thresholdFor(RequestPriority priority) {
+            return switch (priority) {
+                case CRITICAL -> Double.POSITIVE_INFINITY;
+                case NORMAL -> normalPriorityThreshold;
+                case LOW -> lowPriorityThreshold;
+            };
+        }
     }
 
     /**
      * Checks if an endpoint is public (does not require authentication)
      */
     public boolean isPublicEndpoint(String path) {
-        return publicEndpoints.stream()
-                .anyMatch(endpoint -> {
-                    if (endpoint.endsWith("/**")) {
-                        return path.startsWith(endpoint.substring(0, endpoint.length() - 3));
-                    }
-                    return path.equals(endpoint) || path.startsWith(endpoint + "/");
-                });
+        return publicEndpointMatcher.matches(path);
+    }
+
+    /**
+     * A public endpoint also covers its sub-paths ("/api/movies" matches "/api/movies/42")
+     */
+    private static PathPrefixTrie compilePublicEndpoints(List<String> endpoints) {
+        PathPrefixTrie.Builder builder = PathPrefixTrie.builder();
+        for (String endpoint : endpoints) {
+            builder.include(endpoint.endsWith("/**") ? endpoint : endpoint + "/**");
+        }
+        return builder.build();
     }
 
     /**
@@ -8,6 +8,7 @@ import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 /**
  * Configuration to disable LoadBalancer and avoid bean initialization 
  * warnings in Spring Cloud Gateway
+ * Instances are balanced by the gateway itself (UpstreamLoadBalancerFilter)
  */
 @Configuration
 @EnableAutoConfiguration(exclude = {
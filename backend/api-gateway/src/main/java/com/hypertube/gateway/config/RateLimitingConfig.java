@@ -0,0 +1,148 @@
+package com.hypertube.gateway.config;
+
+import com.hypertube.gateway.context.RequestContext;
+import com.hypertube.gateway.ratelimit.HybridRateLimiter;
+import com.hypertube.gateway.ratelimit.RoutePolicyRateLimiter;
+import com.hypertube.gateway.service.JwtPrincipal;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.cloud.gateway.support.ipresolver.RemoteAddressResolver;
+import org.springframework.cloud.gateway.support.ipresolver.XForwardedRemoteAddressResolver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rate limiting par utilisateur (routes protégées) et par IP (routes publiques)
+ * Les limites de chaque politique viennent de HypertubeGatewayProperties.RateLimitConfig
+ */
+@Configuration
+public class RateLimitingConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimitingConfig.class);
+
+    private final HypertubeGatewayProperties gatewayProperties;
+    private final ObjectProvider<ReactiveStringRedisTemplate> redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final RedisScript<List<Long>> hybridScript;
+
+    @Autowired
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public RateLimitingConfig(HypertubeGatewayProperties gatewayProperties,
+                              ObjectProvider<ReactiveStringRedisTemplate> redisTemplate,
+                              MeterRegistry meterRegistry) {
+        this.gatewayProperties = gatewayProperties;
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+
+        DefaultRedisScript script = new DefaultRedisScript<>();
+        script.setScriptSource(new ResourceScriptSource(new ClassPathResource("scripts/hybrid_rate_limiter.lua")));
+        script.setResultType(List.class);
+        this.hybridScript = script;
+    }
+
+    /**
+     * Limiteur des routes : politique de la route, bucket par route et par clé
+     */
+    @Bean
+    @Primary
+    public RateLimiter<RedisRateLimiter.Config> routeRateLimiter() {
+        var rateLimit = gatewayProperties.getRateLimit();
+        return new RoutePolicyRateLimiter(Map.of(
+                HypertubeGatewayProperties.RateLimitConfig.DEFAULT_POLICY, defaultRateLimiter(),
+                HypertubeGatewayProperties.RateLimitConfig.AUTH_POLICY, authRateLimiter()
+        ), rateLimit);
+    }
+
+    /**
+     * Politique par défaut (navigation, vidéo)
+     */
+    @Bean
+    public RateLimiter<RedisRateLimiter.Config> defaultRateLimiter() {
+        return createRateLimiter(HypertubeGatewayProperties.RateLimitConfig.DEFAULT_POLICY);
+    }
+
+    /**
+     * Politique stricte pour les routes d'authentification (rate-limit.route-policies : signin, signup, oauth2)
+     */
+    @Bean
+    public RateLimiter<RedisRateLimiter.Config> authRateLimiter() {
+        return createRateLimiter(HypertubeGatewayProperties.RateLimitConfig.AUTH_POLICY);
+    }
+
+    /**
+     * Clé par IP client, en tenant compte des proxies de confiance (nginx)
+     */
+    @Bean
+    @Primary
+    public KeyResolver ipKeyResolver() {
+        int trustedProxies = gatewayProperties.getRateLimit().getTrustedProxyCount();
+        RemoteAddressResolver resolver = trustedProxies > 0
+                ? XForwardedRemoteAddressResolver.maxTrustedIndex(trustedProxies)
+                : new RemoteAddressResolver() {};
+
+        return exchange -> {
+            InetSocketAddress address = resolver.resolve(exchange);
+            if (address == null) {
+                return Mono.just("ip:unknown");
+            }
+            return Mono.just("ip:" + address.getHostString());
+        };
+    }
+
+    /**
+     * Clé par utilisateur (subject JWT), avec repli sur l'IP si la requête n'est pas authentifiée
+     */
+    @Bean
+    public KeyResolver userKeyResolver() {
+        KeyResolver ipKeyResolver = ipKeyResolver();
+        return exchange -> {
+            RequestContext context = RequestContext.find(exchange);
+            JwtPrincipal principal = context != null ? context.principal() : null;
+            if (principal == null) {
+                return ipKeyResolver.resolve(exchange);
+            }
+            return Mono.just("user:" + principal.userId());
+        };
+    }
+
+    /**
+     * Limiteur hybride (buckets locaux + réconciliation Redis) ou Redis seul si le tier local est désactivé
+     */
+    private RateLimiter<RedisRateLimiter.Config> createRateLimiter(String policyName) {
+        var rateLimit = gatewayProperties.getRateLimit();
+        var config = rateLimit.getConfigForPolicy(policyName);
+        log.info("Rate limiting {}: {}/s, burst {} (tier local: {})", policyName,
+                config.getReplenishRate(), config.getBurstCapacity(), rateLimit.isLocalTierEnabled());
+
+        if (!rateLimit.isLocalTierEnabled()) {
+            return new RedisRateLimiter(
+                    config.getReplenishRate(),
+                    config.getBurstCapacity(),
+                    config.getRequestedTokens()
+            );
+        }
+
+        var policy = new RedisRateLimiter.Config()
+                .setReplenishRate(config.getReplenishRate())
+                .setBurstCapacity(config.getBurstCapacity())
+                .setRequestedTokens(config.getRequestedTokens());
+        return new HybridRateLimiter(policyName, policy, redisTemplate.getObject(), hybridScript, rateLimit, meterRegistry);
+    }
+}
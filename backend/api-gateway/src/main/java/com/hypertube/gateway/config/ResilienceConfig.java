@@ -0,0 +1,79 @@
+package com.hypertube.gateway.config;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JCircuitBreakerFactory;
+import org.springframework.cloud.client.circuitbreaker.Customizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Circuit breakers Resilience4j par service, construits depuis HypertubeGatewayProperties
+ * Les instances sont enregistrées dans le CircuitBreakerRegistry partagé, dont l'état
+ * est publié par les métriques resilience4j.circuitbreaker.*
+ */
+@Configuration
+public class ResilienceConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ResilienceConfig.class);
+
+    private final HypertubeGatewayProperties gatewayProperties;
+
+    @Autowired
+    public ResilienceConfig(HypertubeGatewayProperties gatewayProperties) {
+        this.gatewayProperties = gatewayProperties;
+    }
+
+    /**
+     * Nom du circuit breaker d'un service, utilisé par les routes et les métriques
+     */
+    public static String circuitBreakerName(String serviceName) {
+        return serviceName + "-circuit-breaker";
+    }
+
+    @Bean
+    public Customizer<ReactiveResilience4JCircuitBreakerFactory> serviceCircuitBreakers() {
+        return factory -> {
+            CircuitBreakerConfig breakerConfig = buildCircuitBreakerConfig();
+            var services = gatewayProperties.getServices();
+
+            for (String serviceName : new String[] {"auth", "video"}) {
+                Duration budget = callBudget(services.getService(serviceName));
+                factory.configure(builder -> builder
+                        .circuitBreakerConfig(breakerConfig)
+                        .timeLimiterConfig(TimeLimiterConfig.custom().timeoutDuration(budget).build()),
+                        circuitBreakerName(serviceName));
+                log.info("Circuit breaker {} : budget {} ms", circuitBreakerName(serviceName), budget.toMillis());
+            }
+        };
+    }
+
+    private CircuitBreakerConfig buildCircuitBreakerConfig() {
+        var props = gatewayProperties.getCircuitBreaker();
+        return CircuitBreakerConfig.custom()
+                .slidingWindow(props.getSlidingWindowSize(), props.getMinimumNumberOfCalls(),
+                        CircuitBreakerConfig.SlidingWindowType.valueOf(props.getSlidingWindowType()))
+                .permittedNumberOfCallsInHalfOpenState(props.getPermittedNumberOfCallsInHalfOpenState())
+                .waitDurationInOpenState(props.getWaitDurationInOpenState())
+                .failureRateThreshold(props.getFailureRateThreshold())
+                .build();
+    }
+
+    /**
+     * Durée maximale d'un appel retries compris : chaque tentative est bornée par le
+     * timeout du service, plus l'attente maximale (jitter inclus) entre deux tentatives
+     */
+    private Duration callBudget(HypertubeGatewayProperties.ServiceConfig service) {
+        var retry = gatewayProperties.getRetry();
+        int attempts = !retry.isEnabled() ? 1
+                : service.getRetryAttempts() > 0 ? service.getRetryAttempts() : retry.getMaxAttempts();
+        Duration maxWait = retry.isEnableExponentialBackoff() ? retry.getMaxBackoff() : retry.getWaitDuration();
+        long maxWaitMillis = (long) (maxWait.toMillis() * (1 + retry.getJitterFactor()));
+        return service.getTimeout().multipliedBy(attempts).plusMillis(maxWaitMillis * (attempts - 1));
+    }
+}
@@ -1,15 +1,36 @@
 package com.hypertube.gateway.config;
 
+import com.hypertube.gateway.filter.CoalescingGatewayFilterFactory;
+import com.hypertube.gateway.filter.ConcurrencyLimitGatewayFilterFactory;
+import com.hypertube.gateway.filter.IdempotentRetryGatewayFilterFactory;
 import com.hypertube.gateway.filter.JwtAuthenticationGatewayFilterFactory;
 import com.hypertube.gateway.filter.LoggingGatewayFilterFactory;
-import com.hypertube.gateway.filter.RequestHeaderGatewayFilterFactory;
+import com.hypertube.gateway.filter.ResponseCacheGatewayFilterFactory;
+import com.hypertube.gateway.filter.StreamingGatewayFilterFactory;
+import com.hypertube.gateway.routing.PathPrefixTrie;
+import com.hypertube.gateway.routing.UpstreamConnectionPools;
+import com.hypertube.gateway.routing.UpstreamLoadBalancerFilter;
+import com.hypertube.gateway.shedding.LoadSheddingFilter;
+import com.hypertube.gateway.shedding.RequestPriority;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.RequestRateLimiterGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
 import org.springframework.cloud.gateway.route.builder.GatewayFilterSpec;
 import org.springframework.cloud.gateway.route.builder.UriSpec;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
 
+import java.util.Set;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.springframework.cloud.gateway.support.RouteMetadataUtils.RESPONSE_TIMEOUT_ATTR;
 
 /**
  * Helper pour simplifier la configuration des routes et éliminer la redondance
@@ -17,43 +38,130 @@ import java.util.function.Function;
 @Component
 public class RouteConfigHelper {
 
+    // "/stream/{movieId}/..." et "/subtitles/{movieId}/..."
+    private static final int MOVIE_ID_SEGMENT = 1;
+
+    // Groupe de limite de concurrence des flux, séparé des appels API de video-service
+    private static final String STREAM_GROUP = "stream";
+
     private final HypertubeGatewayProperties gatewayProperties;
     private final JwtAuthenticationGatewayFilterFactory jwtAuthFilter;
     private final LoggingGatewayFilterFactory loggingFilter;
-    private final RequestHeaderGatewayFilterFactory requestHeaderFilter;
+    private final StreamingGatewayFilterFactory streamingFilter;
+    private final IdempotentRetryGatewayFilterFactory retryFilter;
+    private final ResponseCacheGatewayFilterFactory responseCacheFilter;
+    private final CoalescingGatewayFilterFactory coalescingFilter;
+    private final ConcurrencyLimitGatewayFilterFactory concurrencyLimitFilter;
+    private final RateLimiter<RedisRateLimiter.Config> routeRateLimiter;
+    private final KeyResolver ipKeyResolver;
+    private final KeyResolver userKeyResolver;
 
     public RouteConfigHelper(HypertubeGatewayProperties gatewayProperties,
                            JwtAuthenticationGatewayFilterFactory jwtAuthFilter,
                            LoggingGatewayFilterFactory loggingFilter,
-                           RequestHeaderGatewayFilterFactory requestHeaderFilter) {
+                           StreamingGatewayFilterFactory streamingFilter,
+                           IdempotentRetryGatewayFilterFactory retryFilter,
+                           ResponseCacheGatewayFilterFactory responseCacheFilter,
+                           CoalescingGatewayFilterFactory coalescingFilter,
+                           ConcurrencyLimitGatewayFilterFactory concurrencyLimitFilter,
+                           @Qualifier("routeRateLimiter") RateLimiter<RedisRateLimiter.Config> routeRateLimiter,
+                           @Qualifier("ipKeyResolver") KeyResolver ipKeyResolver,
+                           @Qualifier("userKeyResolver") KeyResolver userKeyResolver) {
         this.gatewayProperties = gatewayProperties;
         this.jwtAuthFilter = jwtAuthFilter;
         this.loggingFilter = loggingFilter;
-        this.requestHeaderFilter = requestHeaderFilter;
+        this.streamingFilter = streamingFilter;
+        this.retryFilter = retryFilter;
+        this.responseCacheFilter = responseCacheFilter;
+        this.coalescingFilter = coalescingFilter;
+        this.concurrencyLimitFilter = concurrencyLimitFilter;
+        this.routeRateLimiter = routeRateLimiter;
+        this.ipKeyResolver = ipKeyResolver;
+        this.userKeyResolver = userKeyResolver;
+    }
+
+    /**
+     * Configuration des filtres pour routes publiques (rate limiting par IP)
+     */
+    public Function<GatewayFilterSpec, UriSpec> publicRoute(String logPrefix, String serviceName) {
+        return filters -> concurrencyLimited(rateLimited(filters
+                .filter(createLoggingFilter(logPrefix)), ipKeyResolver), serviceName);
     }
 
     /**
-     * Configuration des filtres pour routes publiques
+     * Route publique dont les réponses, identiques pour tous, passent par le cache de la gateway
      */
-    public Function<GatewayFilterSpec, UriSpec> publicRoute(String logPrefix) {
-        return filters -> filters
-                .filter(createLoggingFilter(logPrefix))
-                .requestRateLimiter(this::configureDefaultRateLimit);
+    public Function<GatewayFilterSpec, UriSpec> cachedPublicRoute(String logPrefix, String serviceName) {
+        return filters -> concurrencyLimited(rateLimited(filters
+                .filter(createLoggingFilter(logPrefix)), ipKeyResolver)
+                .filter(responseCacheFilter.apply(new ResponseCacheGatewayFilterFactory.Config())), serviceName);
     }
 
     /**
-     * Configuration des filtres pour routes protégées
+     * Configuration des filtres pour routes protégées (rate limiting par utilisateur)
      */
     public Function<GatewayFilterSpec, UriSpec> protectedRoute(String logPrefix, String serviceName) {
-        return filters -> filters
+        var service = gatewayProperties.getServices().getService(serviceName);
+        return filters -> resilient(concurrencyLimited(rateLimited(filters
+                .filter(createJwtAuthFilter())
+                .filter(createLoggingFilter(logPrefix)), userKeyResolver), serviceName), serviceName)
+                // Timeout par tentative ; le time limiter du circuit breaker borne l'appel complet
+                .metadata(RESPONSE_TIMEOUT_ATTR, service.getTimeout().toMillis());
+    }
+
+    /**
+     * Route protégée dont les GET identiques simultanés partagent un seul appel upstream
+     * Seuls les chemins de coalescedPaths sont concernés : leur réponse ne doit pas dépendre de l'utilisateur.
+     * La coalescence se place avant le circuit breaker et le retry, qui ne voient que la requête leader.
+     */
+    public Function<GatewayFilterSpec, UriSpec> coalescedProtectedRoute(String logPrefix, String serviceName,
+                                                                       PathPrefixTrie coalescedPaths) {
+        var service = gatewayProperties.getServices().getService(serviceName);
+        return filters -> resilient(concurrencyLimited(rateLimited(filters
+                .filter(createJwtAuthFilter())
+                .filter(createLoggingFilter(logPrefix)), userKeyResolver)
+                .filter(coalescingFilter.apply(new CoalescingGatewayFilterFactory.Config(logPrefix, coalescedPaths))), serviceName),
+                serviceName)
+                .metadata(RESPONSE_TIMEOUT_ATTR, service.getTimeout().toMillis());
+    }
+
+    /**
+     * Configuration des filtres pour le streaming vidéo (pass-through)
+     * Pas de circuit breaker ni de retry générique : une réponse partiellement envoyée ne doit
+     * jamais être rejouée. Les retries n'ont lieu qu'avant le premier octet (connexion refusée,
+     * timeout des headers, 502/503/504) et le timeout total est remplacé par un timeout d'inactivité.
+     */
+    public Function<GatewayFilterSpec, UriSpec> streamRoute(String logPrefix, String serviceName) {
+        var streaming = gatewayProperties.getStreaming();
+        return filters -> concurrencyLimited(rateLimited(filters
                 .filter(createJwtAuthFilter())
-                .filter(createLoggingFilter(logPrefix))
-                .filter(createRequestHeaderFilter())
-                .circuitBreaker(config -> config
-                        .setName(serviceName + "-circuit-breaker")
-                        .setFallbackUri("forward:/fallback/" + serviceName.toLowerCase()))
+                .filter(createLoggingFilter(logPrefix)), userKeyResolver), STREAM_GROUP)
                 .retry(config -> config
-                        .setRetries(gatewayProperties.getRetry().getMaxAttempts()));
+                        .setRetries(streaming.getRetries())
+                        .setMethods(HttpMethod.GET, HttpMethod.HEAD)
+                        .setSeries()
+                        .setStatuses(HttpStatus.BAD_GATEWAY, HttpStatus.SERVICE_UNAVAILABLE, HttpStatus.GATEWAY_TIMEOUT))
+                .filter(streamingFilter.apply(new StreamingGatewayFilterFactory.Config(streaming.getIdleTimeout())))
+                // Ne borne que l'attente des headers upstream, pas la durée du transfert
+                .metadata(RESPONSE_TIMEOUT_ATTR, streaming.getFirstByteTimeout().toMillis())
+                .metadata(UpstreamConnectionPools.POOL_ATTR, UpstreamConnectionPools.STREAM_POOL);
+    }
+
+    /**
+     * Route dont l'instance upstream est choisie par film (hachage cohérent)
+     * Les instances de video-service gardent en cache local les pièces et segments d'un film :
+     * toutes les requêtes d'un même film vont à la même instance tant qu'elle n'est pas surchargée.
+     */
+    public Function<GatewayFilterSpec, UriSpec> movieAffineRoute(Function<GatewayFilterSpec, UriSpec> route) {
+        return filters -> route.apply(filters).metadata(UpstreamLoadBalancerFilter.HASH_SEGMENT_ATTR, MOVIE_ID_SEGMENT);
+    }
+
+    /**
+     * Classe de priorité de la route en cas de saturation de la gateway (NORMAL par défaut)
+     */
+    public Function<GatewayFilterSpec, UriSpec> prioritized(RequestPriority priority,
+                                                            Function<GatewayFilterSpec, UriSpec> route) {
+        return filters -> route.apply(filters).metadata(LoadSheddingFilter.PRIORITY_ATTR, priority);
     }
 
     /**
@@ -63,6 +171,13 @@ public class RouteConfigHelper {
         return filters -> filters.filter(createLoggingFilter(logPrefix));
     }
 
+    /**
+     * Prédicat de route basé sur un matcher de chemins compilé
+     */
+    public Predicate<ServerWebExchange> pathMatching(PathPrefixTrie paths) {
+        return exchange -> paths.matches(exchange.getRequest().getURI().getPath());
+    }
+
     /**
      * Services URLs centralisés
      */
@@ -92,11 +207,50 @@ public class RouteConfigHelper {
         return jwtAuthFilter.apply(new JwtAuthenticationGatewayFilterFactory.Config());
     }
 
-    private GatewayFilter createRequestHeaderFilter() {
-        return requestHeaderFilter.apply(new RequestHeaderGatewayFilterFactory.Config());
+    /**
+     * Circuit breaker du service (extérieur) puis retry idempotent (intérieur) :
+     * le breaker voit une seule tentative logique par requête
+     */
+    private GatewayFilterSpec resilient(GatewayFilterSpec filters, String serviceName) {
+        var breakerProps = gatewayProperties.getCircuitBreaker();
+        if (breakerProps.isEnabled() && gatewayProperties.getServices().getService(serviceName).isCircuitBreakerEnabled()) {
+            Set<String> failureStatusCodes = breakerProps.getFailureStatusCodes().stream()
+                    .map(String::valueOf)
+                    .collect(Collectors.toSet());
+            filters = filters.circuitBreaker(config -> config
+                    .setName(ResilienceConfig.circuitBreakerName(serviceName))
+                    .setFallbackUri("forward:/fallback/" + serviceName.toLowerCase())
+                    .setStatusCodes(failureStatusCodes));
+        }
+        if (gatewayProperties.getRetry().isEnabled()) {
+            filters = filters.filter(retryFilter.apply(new IdempotentRetryGatewayFilterFactory.Config(serviceName)));
+        }
+        return filters;
+    }
+
+    /**
+     * Limite de concurrence adaptative du groupe, placée après le rate limiting et avant le
+     * circuit breaker : une requête rejetée ne compte pas comme un échec du service.
+     * Le RTT appris est celui de la dernière tentative upstream (AttemptSampleFilter).
+     */
+    private GatewayFilterSpec concurrencyLimited(GatewayFilterSpec filters, String group) {
+        return filters.filter(concurrencyLimitFilter.apply(new ConcurrencyLimitGatewayFilterFactory.Config(group)));
+    }
+
+    /**
+     * Ajoute le rate limiter des routes : la politique (auth ou défaut) est choisie par l'id de la
+     * route dans rate-limit.route-policies, et chaque route a ses propres buckets
+     */
+    private GatewayFilterSpec rateLimited(GatewayFilterSpec filters, KeyResolver keyResolver) {
+        if (!gatewayProperties.getRateLimit().isEnabled()) {
+            return filters;
+        }
+        return filters.requestRateLimiter(config -> configureRateLimit(config, routeRateLimiter, keyResolver));
     }
 
-    private void configureDefaultRateLimit(RequestRateLimiterGatewayFilterFactory.Config config) {
-        // Configuration par défaut du rate limiting
+    private void configureRateLimit(RequestRateLimiterGatewayFilterFactory.Config config,
+                                    RateLimiter<RedisRateLimiter.Config> rateLimiter, KeyResolver keyResolver) {
+        config.setRateLimiter(rateLimiter);
+        config.setKeyResolver(keyResolver);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.hypertube.gateway.config;
+
+import com.hypertube.gateway.routing.PooledNettyRoutingFilter;
+import com.hypertube.gateway.routing.UpstreamConnectionPools;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.config.GatewayProperties;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.client.HttpClient;
+
+import java.util.List;
+
+/**
+ * Routage vers les upstreams avec un pool de connexions par service
+ * Remplace le NettyRoutingFilter par défaut, désactivé dans application.yml
+ * (spring.cloud.gateway.global-filter.netty-routing.enabled=false)
+ * Le NettyWriteResponseFilter dépend du même interrupteur et doit donc être déclaré ici aussi.
+ */
+@Configuration
+public class UpstreamRoutingConfig {
+
+    @Bean
+    public PooledNettyRoutingFilter pooledRoutingFilter(HttpClient httpClient,
+                                                        ObjectProvider<List<HttpHeadersFilter>> headersFilters,
+                                                        HttpClientProperties properties,
+                                                        UpstreamConnectionPools pools) {
+        return new PooledNettyRoutingFilter(httpClient, headersFilters, properties, pools);
+    }
+
+    @Bean
+    public NettyWriteResponseFilter nettyWriteResponseFilter(GatewayProperties properties) {
+        return new NettyWriteResponseFilter(properties.getStreamingMediaTypes());
+    }
+}
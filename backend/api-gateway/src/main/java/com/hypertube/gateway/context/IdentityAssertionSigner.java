@@ -0,0 +1,93 @@
+package com.hypertube.gateway.context;
+
+import com.hypertube.gateway.config.HypertubeGatewayProperties;
+import com.hypertube.gateway.service.JwtPrincipal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+
+/**
+ * Signs the identity headers sent upstream so that services can trust them without a lookup
+ *
+ * Assertion: "v1." + expiresAtMillis + "." + base64url(HMAC-SHA256), over
+ * "v1\n" + expiresAt + "\n" + X-User-Id + "\n" + X-Username + "\n" + X-User-Email + "\n" + X-User-Roles.
+ * The values are signed as they go on the wire, one byte per char: Netty writes header values
+ * that way, replacing chars beyond Latin-1 with '?', and servlet containers read them back as
+ * ISO-8859-1. auth-service verifies it in
+ * GatewayIdentityVerifier with the same shared secret.
+ */
+@Component
+public class IdentityAssertionSigner {
+
+    public static final String HEADER = "X-Gateway-Assertion";
+    static final String VERSION = "v1";
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+    private final long ttlMillis;
+    // Mac n'est pas thread-safe : une instance par event loop
+    private final ThreadLocal<Mac> macs;
+
+    @Autowired
+    public IdentityAssertionSigner(HypertubeGatewayProperties gatewayProperties) {
+        var config = gatewayProperties.getIdentityAssertion();
+        byte[] secret = config.getSecret().getBytes(StandardCharsets.UTF_8);
+        if (secret.length < 32) {
+            throw new IllegalStateException("hypertube.gateway.identity-assertion.secret must be at least 32 bytes");
+        }
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+        this.ttlMillis = config.getTtl().toMillis();
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    /**
+     * Assertion for this principal, valid ttl from now
+     */
+    public String sign(JwtPrincipal principal, long nowMillis) {
+        String expiresAt = Long.toString(nowMillis + ttlMillis);
+        byte[] signature = macs.get().doFinal(message(expiresAt, principal.userId(), principal.username(),
+                principal.email(), principal.roles()));
+        return VERSION + "." + expiresAt + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+    }
+
+    /**
+     * Signed fields joined by '\n', which a header value cannot contain
+     */
+    private static byte[] message(String... fields) {
+        int length = VERSION.length();
+        for (String field : fields) {
+            length += 1 + field.length();
+        }
+        byte[] out = new byte[length];
+        int pos = put(VERSION, out, 0);
+        for (String field : fields) {
+            out[pos++] = '\n';
+            pos = put(field, out, pos);
+        }
+        return out;
+    }
+
+    private static int put(String value, byte[] out, int pos) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            // Comme Netty à l'écriture de l'en-tête (AsciiString.c2b) : au-delà de Latin-1, '?'
+            out[pos++] = (byte) (c > 0xFF ? '?' : c);
+        }
+        return pos;
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 unavailable", e);
+        }
+    }
+}
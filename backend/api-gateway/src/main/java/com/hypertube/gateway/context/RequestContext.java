@@ -0,0 +1,65 @@
+package com.hypertube.gateway.context;
+
+import com.hypertube.gateway.service.JwtPrincipal;
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * What the gateway learns about a request on its way through the route filters
+ *
+ * Stored once as an exchange attribute. The filters record into it (the JWT filter its
+ * principal, the logging filter its trace id) instead of each mutating the request, and
+ * RequestEnrichmentFilter turns it into upstream headers in a single pass when the request
+ * is routed. Retries reuse the same context, hence the same identifiers.
+ */
+public final class RequestContext {
+
+    public static final String ATTR = RequestContext.class.getName();
+
+    private final long receivedAtMillis = System.currentTimeMillis();
+    private JwtPrincipal principal;
+    private String traceId;
+    private String requestId;
+
+    private RequestContext() {}
+
+    /**
+     * Context of the exchange, created by the first filter that needs it
+     */
+    public static RequestContext of(ServerWebExchange exchange) {
+        RequestContext context = exchange.getAttribute(ATTR);
+        if (context == null) {
+            context = new RequestContext();
+            exchange.getAttributes().put(ATTR, context);
+        }
+        return context;
+    }
+
+    /**
+     * Context of the exchange if a filter created one
+     */
+    public static RequestContext find(ServerWebExchange exchange) {
+        return exchange.getAttribute(ATTR);
+    }
+
+    public String traceId() {
+        if (traceId == null) {
+            traceId = RequestIds.traceId();
+        }
+        return traceId;
+    }
+
+    public String requestId() {
+        if (requestId == null) {
+            requestId = RequestIds.requestId();
+        }
+        return requestId;
+    }
+
+    /**
+     * Verified identity, null on public routes
+     */
+    public JwtPrincipal principal() { return principal; }
+    public void authenticate(JwtPrincipal principal) { this.principal = principal; }
+
+    public long receivedAtMillis() { return receivedAtMillis; }
+}
@@ -0,0 +1,68 @@
+package com.hypertube.gateway.context;
+
+import com.hypertube.gateway.service.JwtPrincipal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * Adds the gateway headers to every request sent upstream, from its RequestContext
+ *
+ * Runs as the last request HttpHeadersFilter of the routing filter: the headers are written
+ * into the copy the routing filter already makes for the upstream call (after hop-by-hop
+ * removal), so enriching a request costs no request mutation nor extra header copy.
+ * Identity headers are set (not added) so that a client cannot supply its own, and signed
+ * (IdentityAssertionSigner) so that services can trust them without looking the user up.
+ */
+@Component
+public class RequestEnrichmentFilter implements HttpHeadersFilter, Ordered {
+
+    static final String GATEWAY_VERSION = "1.0.0";
+    static final String FORWARDED_BY = "hypertube-gateway";
+
+    private final IdentityAssertionSigner identitySigner;
+
+    @Autowired
+    public RequestEnrichmentFilter(IdentityAssertionSigner identitySigner) {
+        this.identitySigner = identitySigner;
+    }
+
+    @Override
+    public HttpHeaders filter(HttpHeaders input, ServerWebExchange exchange) {
+        // Les filtres précédents renvoient une copie ; seuls les en-têtes d'origine sont en lecture seule
+        HttpHeaders headers = input;
+        if (input == exchange.getRequest().getHeaders()) {
+            headers = new HttpHeaders();
+            headers.putAll(input);
+        }
+
+        RequestContext context = RequestContext.of(exchange);
+        headers.set("X-Trace-Id", context.traceId());
+        headers.set("X-Request-Id", context.requestId());
+        headers.set("X-Gateway-Version", GATEWAY_VERSION);
+        headers.set("X-Forwarded-By", FORWARDED_BY);
+
+        JwtPrincipal principal = context.principal();
+        if (principal != null) {
+            headers.set("X-User-Id", principal.userId());
+            headers.set("X-Username", principal.username());
+            headers.set("X-User-Email", principal.email());
+            headers.set("X-User-Roles", principal.roles());
+            headers.set("X-Auth-Method", "JWT");
+            headers.set("X-Gateway-Timestamp", Long.toString(context.receivedAtMillis()));
+            headers.set(IdentityAssertionSigner.HEADER, identitySigner.sign(principal, System.currentTimeMillis()));
+        } else {
+            // Route publique : une assertion fournie par le client ne doit pas atteindre les services
+            headers.remove(IdentityAssertionSigner.HEADER);
+        }
+        return headers;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,58 @@
+package com.hypertube.gateway.context;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Trace and request identifiers drawn from ThreadLocalRandom
+ *
+ * UUID.randomUUID() goes through a SecureRandom shared by all event loops. These identifiers
+ * only correlate logs, they are not secrets: a per-thread, non-cryptographic generator is
+ * enough and never contends. Not to be used for tokens or anything that must be unguessable.
+ */
+public final class RequestIds {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private RequestIds() {}
+
+    /**
+     * 8 hex characters, the format of the access log trace id
+     */
+    public static String traceId() {
+        byte[] out = new byte[8];
+        writeHex(ThreadLocalRandom.current().nextInt() & 0xffffffffL, out, 0, 8);
+        return new String(out, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Random (version 4) UUID in its canonical 36-character form
+     */
+    public static String requestId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long high = (random.nextLong() & 0xffffffffffff0fffL) | 0x0000000000004000L;
+        long low = (random.nextLong() & 0x3fffffffffffffffL) | 0x8000000000000000L;
+
+        byte[] out = new byte[36];
+        writeHex(high >>> 32, out, 0, 8);
+        out[8] = '-';
+        writeHex(high >>> 16, out, 9, 4);
+        out[13] = '-';
+        writeHex(high, out, 14, 4);
+        out[18] = '-';
+        writeHex(low >>> 48, out, 19, 4);
+        out[23] = '-';
+        writeHex(low, out, 24, 12);
+        return new String(out, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Writes the low digits*4 bits of value as hex, most significant digit first
+     */
+    private static void writeHex(long value, byte[] out, int offset, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            out[i] = HEX[(int) (value & 0xf)];
+            value >>>= 4;
+        }
+    }
+}
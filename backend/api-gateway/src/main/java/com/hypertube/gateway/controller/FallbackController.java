@@ -48,6 +48,17 @@ public class FallbackController {
                 ));
     }
 
+    @RequestMapping("/video")
+    public ResponseEntity<Map<String, Object>> videoFallback() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Map.of(
+                        "error", "SERVICE_UNAVAILABLE",
+                        "message", "Video service is temporarily unavailable",
+                        "timestamp", Instant.now(),
+                        "status", 503
+                ));
+    }
+
     @RequestMapping("/stream")
     public ResponseEntity<Map<String, Object>> streamFallback() {
         return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
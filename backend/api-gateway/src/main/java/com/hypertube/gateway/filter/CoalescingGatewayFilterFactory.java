@@ -0,0 +1,141 @@
+package com.hypertube.gateway.filter;
+
+import com.hypertube.gateway.cache.CachedResponse;
+import com.hypertube.gateway.cache.UpstreamResponses;
+import com.hypertube.gateway.coalescing.SingleFlight;
+import com.hypertube.gateway.config.HypertubeGatewayProperties;
+import com.hypertube.gateway.routing.PathPrefixTrie;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Single-flight filter: identical GETs in flight at the same time share one upstream call
+ *
+ * The first request for a key goes upstream; requests arriving before it completes wait
+ * and receive a copy of its status, headers and body. Nothing is kept once the call ends,
+ * this is not a cache. Routes opt in explicitly, optionally restricted to the paths whose
+ * response does not depend on the user (X-User-Id).
+ * Conditional and Range requests, and responses that cannot be shared (Set-Cookie,
+ * compression, Vary, too large), fall back to one upstream call per request.
+ * Collapsed requests are counted by gateway.coalescing.collapsed, tagged with the route.
+ */
+@Component
+public class CoalescingGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<CoalescingGatewayFilterFactory.Config> {
+
+    // Réponses qui dépendent d'un état propre au client
+    private static final Set<String> CLIENT_SPECIFIC_HEADERS = Set.of(
+            HttpHeaders.RANGE, HttpHeaders.IF_RANGE, HttpHeaders.IF_NONE_MATCH, HttpHeaders.IF_MODIFIED_SINCE);
+
+    private final HypertubeGatewayProperties.CoalescingConfig coalescingConfig;
+    private final SingleFlight<CachedResponse> inFlight;
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public CoalescingGatewayFilterFactory(HypertubeGatewayProperties gatewayProperties, MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.coalescingConfig = gatewayProperties.getCoalescing();
+        this.inFlight = new SingleFlight<>(coalescingConfig.getMaxInFlight());
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("gateway.coalescing.in_flight", inFlight, SingleFlight::inFlightCount)
+                .description("Upstream calls currently shared by coalesced requests")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        Counter collapsed = Counter.builder("gateway.coalescing.collapsed")
+                .description("Requests served from another request's upstream call")
+                .tag("route", config.getName())
+                .register(meterRegistry);
+
+        return (exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (!coalescingConfig.isEnabled() || !isCoalescable(request, config.getPaths())) {
+                return chain.filter(exchange);
+            }
+
+            String key = UpstreamResponses.requestKey(request);
+            SingleFlight.Flight<CachedResponse> flight = inFlight.join(key, () -> fetch(exchange, chain));
+            if (flight.leader()) {
+                // Vide quand la réponse n'est pas partageable : NettyWriteResponseFilter la relaie telle quelle,
+                // ou readBody quand le corps dépasse maxBodySize
+                return flight.result()
+                        .flatMap(shared -> UpstreamResponses.writeBody(exchange.getResponse(), shared.getBody()));
+            }
+
+            collapsed.increment();
+            return flight.result()
+                    .map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .flatMap(shared -> shared.isPresent()
+                            ? UpstreamResponses.replay(exchange.getResponse(), shared.get())
+                            : chain.filter(exchange));
+        };
+    }
+
+    private static boolean isCoalescable(ServerHttpRequest request, PathPrefixTrie paths) {
+        if (request.getMethod() != HttpMethod.GET) {
+            return false;
+        }
+        if (paths != null && !paths.matches(request.getURI().getPath())) {
+            return false;
+        }
+        HttpHeaders headers = request.getHeaders();
+        for (String name : CLIENT_SPECIFIC_HEADERS) {
+            if (headers.containsKey(name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Upstream call of the leader; reads the body only when it can be shared
+     */
+    private Mono<CachedResponse> fetch(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Set<String> gatewayHeaders = UpstreamResponses.headerNames(exchange.getResponse().getHeaders());
+        return chain.filter(exchange).then(Mono.defer(() -> {
+            if (!UpstreamResponses.isShareable(exchange.getResponse(), coalescingConfig.getMaxBodySize())) {
+                return Mono.empty();
+            }
+            return UpstreamResponses.readBody(exchange, coalescingConfig.getMaxBodySize()).map(body -> {
+                long now = System.currentTimeMillis();
+                return UpstreamResponses.snapshot(exchange.getResponse(), body, gatewayHeaders, now, now);
+            });
+        }));
+    }
+
+    public static class Config {
+        private String name = "default";
+        private PathPrefixTrie paths; // null : tous les chemins de la route
+
+        public Config() {}
+
+        public Config(String name, PathPrefixTrie paths) {
+            this.name = name;
+            this.paths = paths;
+        }
+
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+
+        public PathPrefixTrie getPaths() { return paths; }
+        public void setPaths(PathPrefixTrie paths) { this.paths = paths; }
+    }
+}
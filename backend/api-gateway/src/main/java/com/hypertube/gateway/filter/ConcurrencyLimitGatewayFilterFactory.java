@@ -0,0 +1,113 @@
+package com.hypertube.gateway.filter;
+
+import com.hypertube.gateway.concurrency.AdaptiveConcurrencyLimiter;
+import com.hypertube.gateway.concurrency.AttemptSampleFilter;
+import com.hypertube.gateway.concurrency.ConcurrencyLimiters;
+import com.hypertube.gateway.config.HypertubeGatewayProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+/**
+ * Adaptive concurrency limit of a route group
+ *
+ * A request takes a slot of the group's limiter before the circuit breaker and the retry,
+ * and gives it back with the RTT of its last upstream attempt, measured by AttemptSampleFilter
+ * until the response headers are received (for streams: the time to first byte). Backoff
+ * between retries is not part of the sample, and a request that never reached upstream
+ * (breaker open, response served by the gateway) releases its slot without one.
+ * When the group is at its limit the request is rejected at once with 503 and Retry-After
+ * instead of queueing in front of a slowing service.
+ * Rejections are counted by gateway.concurrency.rejected, tagged with the group.
+ */
+@Component
+public class ConcurrencyLimitGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<ConcurrencyLimitGatewayFilterFactory.Config> {
+
+    private final HypertubeGatewayProperties.ConcurrencyLimitConfig limitConfig;
+    private final ConcurrencyLimiters limiters;
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public ConcurrencyLimitGatewayFilterFactory(HypertubeGatewayProperties gatewayProperties,
+                                                ConcurrencyLimiters limiters, MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.limitConfig = gatewayProperties.getConcurrencyLimit();
+        this.limiters = limiters;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        AdaptiveConcurrencyLimiter limiter = limiters.get(config.getGroup());
+        Counter rejected = Counter.builder("gateway.concurrency.rejected")
+                .description("Requests rejected because the group was at its concurrency limit")
+                .tag("group", config.getGroup())
+                .register(meterRegistry);
+
+        return (exchange, chain) -> {
+            if (!limitConfig.isEnabled()) {
+                return chain.filter(exchange);
+            }
+            if (!limiter.tryAcquire()) {
+                rejected.increment();
+                return handleOverloaded(exchange);
+            }
+
+            AttemptSampleFilter.Sample sample = new AttemptSampleFilter.Sample();
+            exchange.getAttributes().put(AttemptSampleFilter.SAMPLE_ATTR, sample);
+            return chain.filter(exchange)
+                    .doOnSuccess(v -> sample.release(limiter))
+                    .doOnError(e -> sample.release(limiter))
+                    .doOnCancel(limiter::onIgnored);
+        };
+    }
+
+    private Mono<Void> handleOverloaded(ServerWebExchange exchange) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+        response.getHeaders().add(HttpHeaders.RETRY_AFTER,
+                String.valueOf(Math.max(1, limitConfig.getRetryAfter().toSeconds())));
+        response.getHeaders().add("X-Error-Source", "Concurrency-Limit");
+
+        String body = String.format("""
+            {
+                "error": "SERVICE_UNAVAILABLE",
+                "message": "Too many requests in flight, retry later",
+                "timestamp": "%s",
+                "path": "%s",
+                "status": 503
+            }
+            """,
+            Instant.now(),
+            exchange.getRequest().getURI().getPath()
+        );
+
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body.getBytes())));
+    }
+
+    public static class Config {
+        private String group = "default";
+
+        public Config() {}
+
+        public Config(String group) {
+            this.group = group;
+        }
+
+        public String getGroup() { return group; }
+        public void setGroup(String group) { this.group = group; }
+    }
+}
@@ -0,0 +1,149 @@
+package com.hypertube.gateway.filter;
+
+import com.hypertube.gateway.config.HypertubeGatewayProperties;
+import io.github.resilience4j.core.IntervalFunction;
+import io.github.resilience4j.reactor.retry.RetryOperator;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR;
+
+/**
+ * Retry filter backed by one Resilience4j Retry instance per service
+ *
+ * Only idempotent methods are retried, and only on connection errors, timeouts or
+ * retryable upstream statuses. Waits use exponential backoff with jitter so that
+ * gateways do not hammer a struggling service in lockstep.
+ * Retry counts are published by the RetryRegistry metrics (resilience4j.retry.calls).
+ */
+@Component
+public class IdempotentRetryGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<IdempotentRetryGatewayFilterFactory.Config> {
+
+    private final HypertubeGatewayProperties gatewayProperties;
+    private final RetryRegistry retryRegistry;
+
+    @Autowired
+    public IdempotentRetryGatewayFilterFactory(HypertubeGatewayProperties gatewayProperties,
+                                               RetryRegistry retryRegistry) {
+        super(Config.class);
+        this.gatewayProperties = gatewayProperties;
+        this.retryRegistry = retryRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        var retryProps = gatewayProperties.getRetry();
+        Set<HttpMethod> retryableMethods = retryProps.getRetryableMethods().stream()
+                .map(HttpMethod::valueOf)
+                .collect(Collectors.toUnmodifiableSet());
+        Set<Integer> retryableStatuses = Set.copyOf(retryProps.getRetryableStatuses());
+        Retry retry = retryRegistry.retry(config.getServiceName() + "-retry",
+                () -> buildRetryConfig(config.getServiceName(), retryableStatuses));
+
+        return (exchange, chain) -> {
+            if (!retryableMethods.contains(exchange.getRequest().getMethod())) {
+                return chain.filter(exchange);
+            }
+
+            AtomicBoolean firstAttempt = new AtomicBoolean(true);
+            return Mono.defer(() -> {
+                        if (!firstAttempt.getAndSet(false)) {
+                            reset(exchange);
+                        }
+                        return chain.filter(exchange)
+                                .then(Mono.defer(() -> checkStatus(exchange, retryableStatuses)));
+                    })
+                    .transformDeferred(RetryOperator.of(retry))
+                    // Plus de tentatives : la dernière réponse upstream est renvoyée telle quelle
+                    .onErrorResume(RetryableStatusException.class, e -> Mono.empty());
+        };
+    }
+
+    private RetryConfig buildRetryConfig(String serviceName, Set<Integer> retryableStatuses) {
+        var retryProps = gatewayProperties.getRetry();
+        var service = gatewayProperties.getServices().getService(serviceName);
+        int maxAttempts = service.getRetryAttempts() > 0 ? service.getRetryAttempts() : retryProps.getMaxAttempts();
+
+        IntervalFunction backoff = retryProps.isEnableExponentialBackoff()
+                ? IntervalFunction.ofExponentialRandomBackoff(retryProps.getFirstBackoff(),
+                        retryProps.getExponentialBackoffMultiplier(), retryProps.getJitterFactor(), retryProps.getMaxBackoff())
+                : IntervalFunction.ofRandomized(retryProps.getWaitDuration(), retryProps.getJitterFactor());
+
+        return RetryConfig.custom()
+                .maxAttempts(maxAttempts)
+                .intervalFunction(backoff)
+                .retryOnException(error -> isRetryable(error, retryableStatuses))
+                .build();
+    }
+
+    private static boolean isRetryable(Throwable error, Set<Integer> retryableStatuses) {
+        if (error instanceof RetryableStatusException || error instanceof IOException || error instanceof TimeoutException) {
+            return true;
+        }
+        // NettyRoutingFilter remonte ses timeouts sous forme de 504
+        return error instanceof ResponseStatusException statusError
+                && retryableStatuses.contains(statusError.getStatusCode().value());
+    }
+
+    private static Mono<Void> checkStatus(ServerWebExchange exchange, Set<Integer> retryableStatuses) {
+        HttpStatusCode status = exchange.getResponse().getStatusCode();
+        if (status != null && retryableStatuses.contains(status.value())) {
+            return Mono.error(new RetryableStatusException(status));
+        }
+        return Mono.empty();
+    }
+
+    /**
+     * Releases the previous upstream response before routing the request again
+     */
+    private static void reset(ServerWebExchange exchange) {
+        Connection connection = exchange.getAttribute(CLIENT_RESPONSE_CONN_ATTR);
+        if (connection != null) {
+            connection.channel().close();
+            connection.dispose();
+            exchange.getAttributes().remove(CLIENT_RESPONSE_CONN_ATTR);
+        }
+        ServerWebExchangeUtils.reset(exchange);
+    }
+
+    /**
+     * Upstream answered with a retryable status; carries no stack trace
+     */
+    static final class RetryableStatusException extends RuntimeException {
+        RetryableStatusException(HttpStatusCode status) {
+            super("Retryable upstream status " + status.value(), null, false, false);
+        }
+    }
+
+    public static class Config {
+        private String serviceName;
+
+        public Config() {}
+
+        public Config(String serviceName) {
+            this.serviceName = serviceName;
+        }
+
+        public String getServiceName() { return serviceName; }
+        public void setServiceName(String serviceName) { this.serviceName = serviceName; }
+    }
+}
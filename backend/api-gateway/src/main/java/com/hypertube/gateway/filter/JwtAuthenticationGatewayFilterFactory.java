@@ -1,8 +1,10 @@
 package com.hypertube.gateway.filter;
 
 import com.hypertube.gateway.config.HypertubeGatewayProperties;
+import com.hypertube.gateway.context.RequestContext;
+import com.hypertube.gateway.revocation.TokenRevocationList;
+import com.hypertube.gateway.service.JwtPrincipal;
 import com.hypertube.gateway.service.JwtService;
-import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
@@ -29,13 +31,16 @@ public class JwtAuthenticationGatewayFilterFactory
 
     private final HypertubeGatewayProperties gatewayProperties;
     private final JwtService jwtService;
+    private final TokenRevocationList revocationList;
 
     @Autowired
     public JwtAuthenticationGatewayFilterFactory(HypertubeGatewayProperties gatewayProperties, 
-                                               JwtService jwtService) {
+                                               JwtService jwtService,
+                                               TokenRevocationList revocationList) {
         super(Config.class);
         this.gatewayProperties = gatewayProperties;
         this.jwtService = jwtService;
+        this.revocationList = revocationList;
     }
 
     @Override
@@ -58,31 +63,18 @@ public class JwtAuthenticationGatewayFilterFactory
             String token = tokenOpt.get();
 
             try {
-                // Validate token
-                if (!jwtService.validateToken(token)) {
-                    return handleUnauthorized(exchange, "Invalid JWT token");
+                // Verify token once (cached until expiration)
+                JwtPrincipal principal = jwtService.verify(token);
+                if (revocationList.isRevoked(principal)) {
+                    return handleUnauthorized(exchange, "Revoked JWT token");
                 }
+                // Les en-têtes X-User-* sont ajoutés au routage par RequestEnrichmentFilter
+                RequestContext.of(exchange).authenticate(principal);
 
-                // Extract user information
-                String userId = jwtService.extractSubject(token).orElse("");
-                String username = jwtService.extractUsername(token).orElse("");
-                String email = jwtService.extractEmail(token).orElse("");
-                String roles = jwtService.extractRoles(token).orElse("");
-
-                // Enrich request with user information
-                ServerHttpRequest modifiedRequest = request.mutate()
-                        .header("X-User-Id", userId)
-                        .header("X-Username", Optional.ofNullable(username).orElse(""))
-                        .header("X-User-Email", Optional.ofNullable(email).orElse(""))
-                        .header("X-User-Roles", Optional.ofNullable(roles).orElse(""))
-                        .header("X-Auth-Method", "JWT")
-                        .header("X-Gateway-Timestamp", String.valueOf(System.currentTimeMillis()))
-                        .build();
-
-                return chain.filter(exchange.mutate().request(modifiedRequest).build());
+                return chain.filter(exchange);
 
             } catch (JwtException e) {
-                return handleUnauthorized(exchange, "JWT validation error: " + e.getMessage());
+                return handleUnauthorized(exchange, "Invalid JWT token");
             } catch (Exception e) {
                 return handleInternalError(exchange, "Internal authentication error");
             }
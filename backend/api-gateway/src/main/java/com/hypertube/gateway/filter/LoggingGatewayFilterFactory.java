@@ -1,47 +1,114 @@
 package com.hypertube.gateway.filter;
 
+import com.hypertube.gateway.context.RequestContext;
+import com.hypertube.gateway.logging.AccessLogWriter;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
 import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
 
 /**
  * Simplified Logging Gateway Filter
+ * Emits one access log record per request, through the asynchronous AccessLogWriter, once the
+ * response body has been written (or the request failed or was cancelled).
+ * NettyWriteResponseFilter writes the body after the rest of the chain has completed: this filter
+ * is ordered just before it, and before LoadSheddingFilter, so that its completion covers the whole
+ * transfer and shed requests are logged too; it counts the bytes actually written, chunked bodies
+ * included.
  */
 @Component
 public class LoggingGatewayFilterFactory extends AbstractGatewayFilterFactory<LoggingGatewayFilterFactory.Config> {
 
-    public LoggingGatewayFilterFactory() {
+    // Enveloppe NettyWriteResponseFilter : l'écriture du corps fait partie de la requête mesurée.
+    // Un cran avant LoadSheddingFilter : les 503 de délestage, délai de rejet compris, sont logués
+    public static final int ORDER = NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 2;
+
+    private final AccessLogWriter accessLogWriter;
+
+    public LoggingGatewayFilterFactory(AccessLogWriter accessLogWriter) {
         super(Config.class);
+        this.accessLogWriter = accessLogWriter;
     }
 
     @Override
     public GatewayFilter apply(Config config) {
-        return (exchange, chain) -> {
+        return new OrderedGatewayFilter((exchange, chain) -> {
             String routeName = config.getRouteName();
-            String traceId = java.util.UUID.randomUUID().toString().substring(0, 8);
-            
-            // Add trace ID to request headers
-            var modifiedRequest = exchange.getRequest().mutate()
-                    .header("X-Trace-Id", traceId)
-                    .build();
-
-            // Log request
-            System.out.println(String.format("[%s] %s %s - Trace: %s", 
-                    routeName, 
-                    exchange.getRequest().getMethod(), 
-                    exchange.getRequest().getURI().getPath(),
-                    traceId));
-
-            return chain.filter(exchange.mutate().request(modifiedRequest).build())
-                    .doOnSuccess(aVoid -> {
-                        // Log successful response
-                        System.out.println(String.format("[%s] Response completed - Trace: %s", routeName, traceId));
-                    })
-                    .doOnError(throwable -> {
-                        // Log error
-                        System.err.println(String.format("[%s] Error: %s - Trace: %s", routeName, throwable.getMessage(), traceId));
-                    });
-        };
+            // Envoyé upstream en X-Trace-Id par RequestEnrichmentFilter
+            String traceId = RequestContext.of(exchange).traceId();
+            long startNanos = System.nanoTime();
+            ByteCountingResponse response = new ByteCountingResponse(exchange.getResponse());
+            ServerWebExchange counted = exchange.mutate().response(response).build();
+
+            return chain.filter(counted)
+                    .doOnSuccess(aVoid -> record(counted, routeName, traceId, startNanos, null))
+                    .doOnError(throwable -> record(counted, routeName, traceId, startNanos,
+                            String.valueOf(throwable.getMessage())))
+                    .doOnCancel(() -> record(counted, routeName, traceId, startNanos, "cancelled"));
+        }, ORDER);
+    }
+
+    private void record(ServerWebExchange exchange, String routeName, String traceId, long startNanos, String error) {
+        ServerHttpRequest request = exchange.getRequest();
+        ByteCountingResponse response = (ByteCountingResponse) exchange.getResponse();
+        HttpStatusCode status = response.getStatusCode();
+        URI upstream = exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR);
+
+        accessLogWriter.record(
+                routeName,
+                request.getMethod(),
+                request.getURI().getPath(),
+                traceId,
+                status != null ? status.value() : 0,
+                upstream,
+                response.bytesWritten(),
+                System.nanoTime() - startNanos,
+                error);
+    }
+
+    /**
+     * Counts the body bytes handed to the connection
+     */
+    private static final class ByteCountingResponse extends ServerHttpResponseDecorator {
+
+        // Une seule écriture du corps : onNext et la complétion sont séquentiels
+        private long bytes;
+
+        ByteCountingResponse(ServerHttpResponse delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            return super.writeWith(Flux.from(body).doOnNext(this::count));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            return super.writeAndFlushWith(Flux.from(body).map(chunk -> Flux.from(chunk).doOnNext(this::count)));
+        }
+
+        private void count(DataBuffer buffer) {
+            bytes += buffer.readableByteCount();
+        }
+
+        long bytesWritten() {
+            return bytes;
+        }
     }
 
     public static class Config {
@@ -56,4 +123,4 @@ public class LoggingGatewayFilterFactory extends AbstractGatewayFilterFactory<Lo
         public String getRouteName() { return routeName; }
         public void setRouteName(String routeName) { this.routeName = routeName; }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,269 @@
+package com.hypertube.gateway.filter;
+
+import com.hypertube.gateway.cache.CachedResponse;
+import com.hypertube.gateway.cache.ResponseCache;
+import com.hypertube.gateway.cache.UpstreamResponses;
+import com.hypertube.gateway.coalescing.SingleFlight;
+import com.hypertube.gateway.config.HypertubeGatewayProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Cache-aside filter for public GET routes whose responses are identical for every user
+ *
+ * The key is the path plus the query parameters sorted and re-encoded, so equivalent URLs
+ * share one entry. Freshness follows the upstream Cache-Control (s-maxage, max-age,
+ * no-store, private, no-cache), capped by maxTtl, with defaultTtl when upstream says nothing.
+ * Every response carries an ETag (upstream or computed) and If-None-Match is answered with
+ * a 304 by the gateway. Concurrent misses on the same key wait for the first upstream call
+ * instead of each hitting video-service.
+ * Responses with Set-Cookie, Content-Encoding or a Vary other than the CORS headers and
+ * Accept-Encoding are never stored.
+ */
+@Component
+public class ResponseCacheGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<ResponseCacheGatewayFilterFactory.Config> {
+
+    private static final Logger log = LoggerFactory.getLogger(ResponseCacheGatewayFilterFactory.class);
+
+    private static final String CACHE_STATUS_HEADER = "X-Cache";
+
+    private final HypertubeGatewayProperties.ResponseCacheConfig cacheConfig;
+    private final ResponseCache cache;
+    private final SingleFlight<CachedResponse> inFlight;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+    private final Counter uncacheable;
+
+    @Autowired
+    public ResponseCacheGatewayFilterFactory(HypertubeGatewayProperties gatewayProperties,
+                                             ResponseCache cache,
+                                             MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.cacheConfig = gatewayProperties.getResponseCache();
+        this.cache = cache;
+        this.inFlight = new SingleFlight<>(gatewayProperties.getCoalescing().getMaxInFlight());
+        this.hits = requestCounter(meterRegistry, "hit");
+        this.misses = requestCounter(meterRegistry, "miss");
+        this.coalesced = requestCounter(meterRegistry, "coalesced");
+        this.uncacheable = requestCounter(meterRegistry, "uncacheable");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (!config.isEnabled() || !cacheConfig.isEnabled()
+                    || request.getMethod() != HttpMethod.GET
+                    || request.getHeaders().containsKey(HttpHeaders.AUTHORIZATION)) {
+                return chain.filter(exchange);
+            }
+
+            String key = UpstreamResponses.requestKey(request);
+            return cache.get(key)
+                    .map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .flatMap(cached -> {
+                        if (cached.isPresent()) {
+                            hits.increment();
+                            return writeCached(exchange, cached.get());
+                        }
+                        return onMiss(exchange, chain, key);
+                    });
+        };
+    }
+
+    // ====================== Miss et coalescence ======================
+
+    private Mono<Void> onMiss(ServerWebExchange exchange, GatewayFilterChain chain, String key) {
+        SingleFlight.Flight<CachedResponse> flight = inFlight.join(key, () -> fetch(exchange, chain, key));
+        if (flight.leader()) {
+            misses.increment();
+            // Vide quand la réponse n'est pas cacheable : NettyWriteResponseFilter la relaie telle quelle,
+            // ou readBody quand le corps dépasse maxBodySize
+            return flight.result().flatMap(fetched -> writeFetched(exchange, fetched));
+        }
+
+        // Une requête identique est déjà partie vers l'upstream : on attend sa réponse
+        coalesced.increment();
+        return flight.result()
+                .timeout(cacheConfig.getCoalesceTimeout(), Mono.empty())
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(cached -> cached.isPresent() ? writeCached(exchange, cached.get()) : chain.filter(exchange));
+    }
+
+    /**
+     * Calls upstream and, when the response is cacheable, reads and stores its body
+     */
+    private Mono<CachedResponse> fetch(ServerWebExchange exchange, GatewayFilterChain chain, String key) {
+        // Les en-têtes déjà posés par la gateway (CORS) dépendent de la requête et ne sont pas stockés
+        Set<String> gatewayHeaders = UpstreamResponses.headerNames(exchange.getResponse().getHeaders());
+        // L'upstream doit renvoyer un corps complet : la gateway répond elle-même aux requêtes conditionnelles
+        ServerHttpRequest upstreamRequest = exchange.getRequest().mutate()
+                .headers(headers -> {
+                    headers.remove(HttpHeaders.IF_NONE_MATCH);
+                    headers.remove(HttpHeaders.IF_MODIFIED_SINCE);
+                })
+                .build();
+        ServerWebExchange upstreamExchange = exchange.mutate().request(upstreamRequest).build();
+
+        return chain.filter(upstreamExchange).then(Mono.defer(() -> {
+            ServerHttpResponse response = exchange.getResponse();
+            Duration ttl = freshnessLifetime(response);
+            if (ttl == null) {
+                uncacheable.increment();
+                return Mono.empty();
+            }
+
+            // Corps plus grand que la limite (taille inconnue avant lecture) : déjà relayé au client, rien à stocker
+            return UpstreamResponses.readBody(upstreamExchange, cacheConfig.getMaxBodySize()).map(body -> {
+                long now = System.currentTimeMillis();
+                CachedResponse cached = UpstreamResponses.snapshot(response, body, gatewayHeaders, now, now + ttl.toMillis());
+                cache.put(key, cached);
+                log.debug("Réponse mise en cache pour {} ({} octets, {} s)", key, body.length, ttl.toSeconds());
+                return cached;
+            });
+        }));
+    }
+
+    // ====================== Réponses servies par la gateway ======================
+
+    /**
+     * Response of the leader: upstream status and headers are already set
+     */
+    private Mono<Void> writeFetched(ServerWebExchange exchange, CachedResponse fetched) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.getHeaders().setETag(fetched.getEtag());
+        response.getHeaders().set(CACHE_STATUS_HEADER, "MISS");
+        if (matchesEtag(exchange.getRequest(), fetched.getEtag())) {
+            return notModified(response);
+        }
+        return UpstreamResponses.writeBody(response, fetched.getBody());
+    }
+
+    private Mono<Void> writeCached(ServerWebExchange exchange, CachedResponse cached) {
+        ServerHttpResponse response = exchange.getResponse();
+        HttpHeaders headers = response.getHeaders();
+        headers.set(HttpHeaders.AGE, Long.toString(cached.ageSeconds(System.currentTimeMillis())));
+        headers.set(CACHE_STATUS_HEADER, "HIT");
+
+        if (matchesEtag(exchange.getRequest(), cached.getEtag())) {
+            response.setStatusCode(HttpStatusCode.valueOf(cached.getStatus()));
+            headers.addAll(cached.getHeaders());
+            headers.setETag(cached.getEtag());
+            return notModified(response);
+        }
+        return UpstreamResponses.replay(response, cached);
+    }
+
+    private static Mono<Void> notModified(ServerHttpResponse response) {
+        response.setStatusCode(HttpStatus.NOT_MODIFIED);
+        response.getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+        return response.setComplete();
+    }
+
+    // ====================== Règles de cache ======================
+
+    /**
+     * Lifetime allowed by the upstream response, or null when it must not be stored
+     */
+    private Duration freshnessLifetime(ServerHttpResponse response) {
+        if (!HttpStatus.OK.equals(response.getStatusCode())
+                || !UpstreamResponses.isShareable(response, cacheConfig.getMaxBodySize())) {
+            return null;
+        }
+
+        Duration maxAge = null;
+        Duration sharedMaxAge = null;
+        for (String value : response.getHeaders().getOrEmpty(HttpHeaders.CACHE_CONTROL)) {
+            for (String directive : value.split(",")) {
+                String d = directive.trim().toLowerCase(Locale.ROOT);
+                if (d.equals("no-store") || d.equals("private") || d.startsWith("no-cache")) {
+                    return null;
+                }
+                if (d.startsWith("s-maxage=")) {
+                    sharedMaxAge = parseSeconds(d.substring(9));
+                } else if (d.startsWith("max-age=")) {
+                    maxAge = parseSeconds(d.substring(8));
+                }
+            }
+        }
+
+        // s-maxage s'adresse aux caches partagés et prime sur max-age
+        Duration ttl = sharedMaxAge != null ? sharedMaxAge : maxAge != null ? maxAge : cacheConfig.getDefaultTtl();
+        if (ttl.isZero() || ttl.isNegative()) {
+            return null;
+        }
+        return ttl.compareTo(cacheConfig.getMaxTtl()) > 0 ? cacheConfig.getMaxTtl() : ttl;
+    }
+
+    // Une valeur invalide est traitée comme périmée (RFC 9111 4.2.1)
+    private static Duration parseSeconds(String value) {
+        try {
+            return Duration.ofSeconds(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            return Duration.ZERO;
+        }
+    }
+
+    /**
+     * If-None-Match uses the weak comparison (RFC 9110 13.1.2)
+     */
+    private static boolean matchesEtag(ServerHttpRequest request, String etag) {
+        List<String> ifNoneMatch = request.getHeaders().getIfNoneMatch();
+        if (ifNoneMatch.isEmpty()) {
+            return false;
+        }
+        String opaqueTag = stripWeak(etag);
+        for (String candidate : ifNoneMatch) {
+            if (candidate.equals("*") || stripWeak(candidate).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("gateway.response_cache.requests")
+                .description("Requests on cached routes by cache outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    public static class Config {
+        private boolean enabled = true;
+
+        public Config() {}
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+    }
+}
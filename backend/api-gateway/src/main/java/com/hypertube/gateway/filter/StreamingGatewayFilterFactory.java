@@ -0,0 +1,71 @@
+package com.hypertube.gateway.filter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+
+import java.time.Duration;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR;
+
+/**
+ * Streaming pass-through filter for video routes
+ *
+ * The route's response timeout only covers the wait for the upstream headers (first byte).
+ * Once headers are received this filter arms an idle timeout on the upstream connection:
+ * a long download is never cut as long as bytes keep flowing, but a stalled upstream is
+ * closed after idleTimeout without reading anything.
+ * The body itself is not touched: Range/If-Range and the 206 response pass through and
+ * NettyWriteResponseFilter relays the upstream buffers as they arrive.
+ */
+@Component
+public class StreamingGatewayFilterFactory extends AbstractGatewayFilterFactory<StreamingGatewayFilterFactory.Config> {
+
+    private static final Logger log = LoggerFactory.getLogger(StreamingGatewayFilterFactory.class);
+
+    public StreamingGatewayFilterFactory() {
+        super(Config.class);
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        long idleTimeoutMillis = config.getIdleTimeout().toMillis();
+
+        // chain.filter completes as soon as the upstream headers are received,
+        // before the body is written back to the client
+        return (exchange, chain) -> chain.filter(exchange)
+                .then(Mono.fromRunnable(() -> armIdleTimeout(exchange, idleTimeoutMillis)));
+    }
+
+    private void armIdleTimeout(ServerWebExchange exchange, long idleTimeoutMillis) {
+        Connection connection = exchange.getAttribute(CLIENT_RESPONSE_CONN_ATTR);
+        if (connection == null || idleTimeoutMillis <= 0) {
+            return;
+        }
+
+        connection.onReadIdle(idleTimeoutMillis, () -> {
+            log.debug("Stream {} inactif depuis {} ms, fermeture de la connexion upstream",
+                    exchange.getRequest().getURI().getPath(), idleTimeoutMillis);
+            // Fermer le channel termine le body en erreur ; dispose() seul le laisserait en attente
+            connection.channel().close();
+        });
+    }
+
+    public static class Config {
+        private Duration idleTimeout = Duration.ofSeconds(30);
+
+        public Config() {}
+
+        public Config(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+        }
+
+        public Duration getIdleTimeout() { return idleTimeout; }
+        public void setIdleTimeout(Duration idleTimeout) { this.idleTimeout = idleTimeout; }
+    }
+}
@@ -0,0 +1,33 @@
+package com.hypertube.gateway.logging;
+
+import org.springframework.http.HttpMethod;
+
+import java.net.URI;
+
+/**
+ * Pre-allocated ring slot holding one access log record
+ * Written by a single producer between claim and publish, then read by the writer thread
+ */
+final class AccessLogEntry {
+
+    long position;
+
+    String routeName;
+    HttpMethod method;
+    String path;
+    String traceId;
+    int status;
+    URI upstream;
+    long bytes;
+    long latencyNanos;
+    String error;
+
+    void clear() {
+        routeName = null;
+        method = null;
+        path = null;
+        traceId = null;
+        upstream = null;
+        error = null;
+    }
+}
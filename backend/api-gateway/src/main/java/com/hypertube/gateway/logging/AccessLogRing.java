@@ -0,0 +1,98 @@
+package com.hypertube.gateway.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded lock-free multi-producer / single-consumer ring of pre-allocated entries
+ *
+ * Each slot carries a sequence number: producers claim a slot with a CAS on the tail,
+ * fill the entry in place and publish it; the single consumer drains published slots
+ * in order and hands them back. A full ring makes claim() return null instead of blocking.
+ */
+final class AccessLogRing {
+
+    private final AccessLogEntry[] entries;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    AccessLogRing(int requestedCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1) << 1);
+        this.entries = new AccessLogEntry[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            entries[i] = new AccessLogEntry();
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Claims a free slot, or returns null when the ring is full
+     */
+    AccessLogEntry claim() {
+        long position = tail.get();
+        for (;;) {
+            int index = (int) (position & mask);
+            long difference = sequences.getAcquire(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    AccessLogEntry entry = entries[index];
+                    entry.position = position;
+                    return entry;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Makes a claimed entry visible to the consumer
+     */
+    void publish(AccessLogEntry entry) {
+        sequences.setRelease((int) (entry.position & mask), entry.position + 1);
+    }
+
+    /**
+     * Hands every published entry to the handler, in order. Consumer thread only.
+     */
+    int drain(Consumer<AccessLogEntry> handler) {
+        long position = head.get();
+        int drained = 0;
+        for (;;) {
+            int index = (int) (position & mask);
+            if (sequences.getAcquire(index) != position + 1) {
+                break;
+            }
+            AccessLogEntry entry = entries[index];
+            try {
+                handler.accept(entry);
+            } finally {
+                entry.clear();
+                sequences.setRelease(index, position + entries.length);
+                position++;
+                head.setRelease(position);
+                drained++;
+            }
+        }
+        return drained;
+    }
+
+    int capacity() {
+        return entries.length;
+    }
+
+    /**
+     * Approximate number of claimed entries not yet drained
+     */
+    int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+}
@@ -0,0 +1,147 @@
+package com.hypertube.gateway.logging;
+
+import com.hypertube.gateway.config.HypertubeGatewayProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Asynchronous access log
+ *
+ * Request threads only copy references into a pre-allocated ring slot; formatting and
+ * I/O happen on a dedicated writer thread logging to the "hypertube.gateway.access" logger.
+ * When the ring is full the record is dropped and counted instead of stalling the event loop.
+ */
+@Component
+public class AccessLogWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessLogWriter.class);
+    private static final Logger accessLog = LoggerFactory.getLogger("hypertube.gateway.access");
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final HypertubeGatewayProperties.AccessLogConfig config;
+    private final AccessLogRing ring;
+    private final Counter droppedRecords;
+    private final Thread writerThread;
+    private final Consumer<AccessLogEntry> sink = this::write;
+
+    private volatile boolean running;
+
+    public AccessLogWriter(HypertubeGatewayProperties gatewayProperties, MeterRegistry meterRegistry) {
+        this.config = gatewayProperties.getAccessLog();
+        this.ring = new AccessLogRing(config.getBufferSize());
+        this.droppedRecords = Counter.builder("gateway.access_log.dropped")
+                .description("Access log records dropped because the buffer was full")
+                .register(meterRegistry);
+        Gauge.builder("gateway.access_log.pending", ring, AccessLogRing::size)
+                .description("Access log records waiting to be written")
+                .register(meterRegistry);
+
+        this.writerThread = new Thread(this::drainLoop, "access-log-writer");
+        this.writerThread.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!config.isEnabled()) {
+            log.info("Access log désactivé");
+            return;
+        }
+        running = true;
+        writerThread.start();
+        log.info("Access log asynchrone démarré (buffer: {} entrées)", ring.capacity());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writerThread);
+        writerThread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Queues one completed request; never blocks
+     *
+     * @return false if the record was dropped
+     */
+    public boolean record(String routeName, HttpMethod method, String path, String traceId,
+                          int status, URI upstream, long bytes, long latencyNanos, String error) {
+        if (!running) {
+            return false;
+        }
+
+        AccessLogEntry entry = ring.claim();
+        if (entry == null) {
+            droppedRecords.increment();
+            return false;
+        }
+
+        entry.routeName = routeName;
+        entry.method = method;
+        entry.path = path;
+        entry.traceId = traceId;
+        entry.status = status;
+        entry.upstream = upstream;
+        entry.bytes = bytes;
+        entry.latencyNanos = latencyNanos;
+        entry.error = error;
+        ring.publish(entry);
+        return true;
+    }
+
+    public long getDroppedCount() {
+        return (long) droppedRecords.count();
+    }
+
+    // ====================== Méthodes privées ======================
+
+    private void drainLoop() {
+        while (running) {
+            if (ring.drain(sink) == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        // Flush what is left on shutdown
+        ring.drain(sink);
+    }
+
+    private void write(AccessLogEntry entry) {
+        try {
+            if (entry.error == null) {
+                accessLog.info("[{}] {} {} status={} latency={}ms bytes={} upstream={} trace={}",
+                        entry.routeName, entry.method, entry.path, entry.status,
+                        entry.latencyNanos / 1_000_000.0, entry.bytes, upstreamOf(entry), entry.traceId);
+            } else {
+                accessLog.warn("[{}] {} {} status={} latency={}ms bytes={} upstream={} trace={} error={}",
+                        entry.routeName, entry.method, entry.path, entry.status,
+                        entry.latencyNanos / 1_000_000.0, entry.bytes, upstreamOf(entry), entry.traceId,
+                        entry.error);
+            }
+        } catch (Exception e) {
+            log.warn("Impossible d'écrire l'access log: {}", e.getMessage());
+        }
+    }
+
+    private static String upstreamOf(AccessLogEntry entry) {
+        URI upstream = entry.upstream;
+        if (upstream == null) {
+            return "-";
+        }
+        return upstream.getPort() > 0 ? upstream.getHost() + ":" + upstream.getPort() : upstream.getHost();
+    }
+}
@@ -0,0 +1,245 @@
+package com.hypertube.gateway.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hypertube.gateway.config.HypertubeGatewayProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Two-tier rate limiter: local token buckets in front of Redis
+ *
+ * Every decision is taken in memory by a lock-free LocalTokenBucket. Consumption is
+ * reported to Redis asynchronously, in batches, and the global remaining tokens are fed
+ * back into the local buckets so that all gateways converge on the same quota.
+ * When Redis is unreachable the limiter keeps enforcing the local buckets alone
+ * (degraded mode) instead of failing open or closed, and probes Redis again later.
+ * Consumption of a failed batch is put back on its buckets and reported once Redis answers,
+ * so an outage does not erase the traffic this gateway allowed from the global quota.
+ * A batch sends the keys of many clients to one script call: it requires a single Redis
+ * node (or a primary with replicas), Redis Cluster would reject it with CROSSSLOT.
+ */
+public class HybridRateLimiter extends AbstractRateLimiter<RedisRateLimiter.Config> implements DisposableBean {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "hybrid-rate-limiter";
+
+    private static final Logger log = LoggerFactory.getLogger(HybridRateLimiter.class);
+
+    private final String name;
+    private final RedisRateLimiter.Config policy;
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final RedisScript<List<Long>> script;
+    private final HypertubeGatewayProperties.RateLimitConfig settings;
+
+    private final Cache<String, LocalTokenBucket> buckets;
+    private final ConcurrentLinkedQueue<LocalTokenBucket> dirtyBuckets = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean syncInFlight = new AtomicBoolean();
+    private final Scheduler scheduler;
+    private final Disposable syncTask;
+
+    private final Counter allowedCounter;
+    private final Counter deniedCounter;
+    private final Counter syncFailures;
+
+    private volatile boolean degraded;
+    private volatile long nextSyncAttemptNanos;
+
+    public HybridRateLimiter(String name,
+                             RedisRateLimiter.Config policy,
+                             ReactiveStringRedisTemplate redisTemplate,
+                             RedisScript<List<Long>> script,
+                             HypertubeGatewayProperties.RateLimitConfig settings,
+                             MeterRegistry meterRegistry) {
+        super(RedisRateLimiter.Config.class, CONFIGURATION_PROPERTY_NAME, null);
+        this.name = name;
+        this.policy = policy;
+        this.redisTemplate = redisTemplate;
+        this.script = script;
+        this.settings = settings;
+
+        Duration idleExpiry = Duration.ofSeconds(Math.max(60, 2L * policy.getBurstCapacity() / policy.getReplenishRate()));
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(settings.getLocalMaxKeys())
+                .expireAfterAccess(idleExpiry)
+                .build();
+
+        this.allowedCounter = Counter.builder("gateway.rate_limit.decisions")
+                .tag("policy", name).tag("result", "allowed")
+                .register(meterRegistry);
+        this.deniedCounter = Counter.builder("gateway.rate_limit.decisions")
+                .tag("policy", name).tag("result", "denied")
+                .register(meterRegistry);
+        this.syncFailures = Counter.builder("gateway.rate_limit.sync.failures")
+                .tag("policy", name)
+                .register(meterRegistry);
+        Gauge.builder("gateway.rate_limit.degraded", this, limiter -> limiter.degraded ? 1 : 0)
+                .tag("policy", name)
+                .description("1 when Redis is unreachable and only local limits apply")
+                .register(meterRegistry);
+        Gauge.builder("gateway.rate_limit.local_buckets", buckets, Cache::estimatedSize)
+                .tag("policy", name)
+                .register(meterRegistry);
+
+        long intervalMillis = settings.getSyncInterval().toMillis();
+        this.scheduler = Schedulers.newSingle("rate-limit-sync-" + name, true);
+        this.syncTask = scheduler.schedulePeriodically(this::reconcile, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        RedisRateLimiter.Config config = getConfig().getOrDefault(routeId, policy);
+        int requestedTokens = config.getRequestedTokens();
+        long now = System.nanoTime();
+
+        // id arrive déjà préfixé par la route (RoutePolicyRateLimiter)
+        LocalTokenBucket bucket = buckets.get(id,
+                key -> new LocalTokenBucket(key, config.getReplenishRate(), config.getBurstCapacity(), now));
+
+        long remaining = bucket.tryAcquire(requestedTokens, now);
+        if (remaining < 0) {
+            deniedCounter.increment();
+            return Mono.just(new Response(false, headers(config, 0)));
+        }
+
+        if (bucket.recordConsumption(requestedTokens)) {
+            dirtyBuckets.offer(bucket);
+        }
+        allowedCounter.increment();
+        return Mono.just(new Response(true, headers(config, remaining)));
+    }
+
+    public boolean isDegraded() {
+        return degraded;
+    }
+
+    @Override
+    public void destroy() {
+        syncTask.dispose();
+        scheduler.dispose();
+    }
+
+    // ====================== Réconciliation Redis ======================
+
+    /**
+     * Sends one batch of pending consumption to Redis and applies the global view
+     */
+    void reconcile() {
+        if (dirtyBuckets.isEmpty() || System.nanoTime() < nextSyncAttemptNanos
+                || !syncInFlight.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            sendBatch();
+        } catch (RuntimeException e) {
+            // Never let an exception cancel the periodic task
+            syncInFlight.set(false);
+            onSyncFailure(e);
+        }
+    }
+
+    private void sendBatch() {
+        int maxBatch = settings.getSyncBatchSize();
+        List<LocalTokenBucket> batch = new ArrayList<>(Math.min(maxBatch, 64));
+        List<Long> drained = new ArrayList<>(Math.min(maxBatch, 64));
+        List<String> keys = new ArrayList<>();
+        List<String> args = new ArrayList<>();
+
+        LocalTokenBucket bucket;
+        while (batch.size() < maxBatch && (bucket = dirtyBuckets.poll()) != null) {
+            long consumed = bucket.drainPending();
+            if (consumed == 0) {
+                continue;
+            }
+            batch.add(bucket);
+            drained.add(consumed);
+            keys.add(bucket.tokensKey());
+            keys.add(bucket.timestampKey());
+            args.add(Integer.toString(bucket.replenishRate()));
+            args.add(Integer.toString(bucket.burstCapacity()));
+            args.add(Long.toString(consumed));
+        }
+
+        if (batch.isEmpty()) {
+            syncInFlight.set(false);
+            return;
+        }
+
+        Mono.defer(() -> redisTemplate.execute(script, keys, args).next())
+                .timeout(settings.getSyncTimeout())
+                .doFinally(signal -> syncInFlight.set(false))
+                .subscribe(
+                        results -> applyGlobalView(batch, results),
+                        error -> {
+                            restore(batch, drained);
+                            onSyncFailure(error);
+                        });
+    }
+
+    /**
+     * Puts the consumption of a failed batch back on its buckets, to be sent with the next one
+     */
+    private void restore(List<LocalTokenBucket> batch, List<Long> drained) {
+        for (int i = 0; i < batch.size(); i++) {
+            LocalTokenBucket bucket = batch.get(i);
+            // Déjà en file si une requête l'a consommé entre-temps
+            if (bucket.restorePending(drained.get(i))) {
+                dirtyBuckets.offer(bucket);
+            }
+        }
+    }
+
+    private void applyGlobalView(List<LocalTokenBucket> batch, List<Long> results) {
+        long now = System.nanoTime();
+        for (int i = 0; i < batch.size() && i < results.size(); i++) {
+            batch.get(i).reconcile(results.get(i), now);
+        }
+
+        if (degraded) {
+            degraded = false;
+            log.info("Rate limiter {}: Redis de nouveau disponible, réconciliation reprise", name);
+        }
+        // Keep syncing the next batches without waiting for the next tick
+        if (!dirtyBuckets.isEmpty()) {
+            scheduler.schedule(this::reconcile);
+        }
+    }
+
+    private void onSyncFailure(Throwable error) {
+        syncFailures.increment();
+        nextSyncAttemptNanos = System.nanoTime() + settings.getDegradedRetryInterval().toNanos();
+
+        if (!degraded) {
+            degraded = true;
+            log.warn("Rate limiter {}: Redis indisponible ({}), limites locales uniquement", name, error.toString());
+        }
+    }
+
+    private Map<String, String> headers(RedisRateLimiter.Config config, long remaining) {
+        return Map.of(
+                RedisRateLimiter.REMAINING_HEADER, Long.toString(remaining),
+                RedisRateLimiter.REPLENISH_RATE_HEADER, Integer.toString(config.getReplenishRate()),
+                RedisRateLimiter.BURST_CAPACITY_HEADER, Integer.toString(config.getBurstCapacity()),
+                RedisRateLimiter.REQUESTED_TOKENS_HEADER, Integer.toString(config.getRequestedTokens()));
+    }
+}
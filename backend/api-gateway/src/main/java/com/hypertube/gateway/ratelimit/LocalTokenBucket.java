@@ -0,0 +1,95 @@
+package com.hypertube.gateway.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket for one (route, key) pair
+ *
+ * Uses the GCRA formulation: the whole bucket state is a single "theoretical arrival time"
+ * updated by CAS, so a decision is one read and one compare-and-set with no refill loop.
+ * Tokens consumed locally are accumulated until the next reconciliation with Redis.
+ */
+final class LocalTokenBucket {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final String tokensKey;
+    private final String timestampKey;
+    private final int replenishRate;
+    private final int burstCapacity;
+    private final long intervalNanos;
+    private final long burstNanos;
+
+    private final AtomicLong theoreticalArrival;
+    private final AtomicLong pendingTokens = new AtomicLong();
+
+    LocalTokenBucket(String id, int replenishRate, int burstCapacity, long nowNanos) {
+        this.tokensKey = "hybrid_rate_limiter.{" + id + "}.tokens";
+        this.timestampKey = "hybrid_rate_limiter.{" + id + "}.timestamp";
+        this.replenishRate = replenishRate;
+        this.burstCapacity = burstCapacity;
+        this.intervalNanos = NANOS_PER_SECOND / replenishRate;
+        this.burstNanos = intervalNanos * burstCapacity;
+        // A new bucket starts full
+        this.theoreticalArrival = new AtomicLong(nowNanos - burstNanos);
+    }
+
+    /**
+     * Takes tokens if available
+     *
+     * @return remaining tokens, or -1 if the request is denied
+     */
+    long tryAcquire(int tokens, long nowNanos) {
+        long cost = tokens * intervalNanos;
+        for (;;) {
+            long tat = theoreticalArrival.get();
+            long newTat = Math.max(tat, nowNanos - burstNanos) + cost;
+            if (newTat - nowNanos > 0) {
+                return -1;
+            }
+            if (theoreticalArrival.compareAndSet(tat, newTat)) {
+                return (nowNanos - newTat) / intervalNanos;
+            }
+        }
+    }
+
+    /**
+     * Records tokens to report to Redis
+     *
+     * @return true if the bucket had nothing pending, i.e. it must be queued for reconciliation
+     */
+    boolean recordConsumption(int tokens) {
+        return pendingTokens.getAndAdd(tokens) == 0;
+    }
+
+    /**
+     * Takes the tokens consumed since the last reconciliation
+     */
+    long drainPending() {
+        return pendingTokens.getAndSet(0);
+    }
+
+    /**
+     * Gives back tokens drained for a reconciliation that failed, so that they are reported later
+     *
+     * @return true if the bucket had nothing pending, i.e. it must be queued again
+     */
+    boolean restorePending(long tokens) {
+        return pendingTokens.getAndAdd(tokens) == 0;
+    }
+
+    /**
+     * Aligns the local view on the global remaining tokens returned by Redis,
+     * minus what this gateway consumed while the reconciliation was in flight
+     */
+    void reconcile(long globalRemaining, long nowNanos) {
+        long remaining = Math.max(-burstCapacity, Math.min(burstCapacity, globalRemaining - pendingTokens.get()));
+        theoreticalArrival.set(nowNanos - remaining * intervalNanos);
+    }
+
+    String tokensKey() { return tokensKey; }
+    String timestampKey() { return timestampKey; }
+    int replenishRate() { return replenishRate; }
+    int burstCapacity() { return burstCapacity; }
+}
@@ -0,0 +1,43 @@
+package com.hypertube.gateway.ratelimit;
+
+import com.hypertube.gateway.config.HypertubeGatewayProperties;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Rate limiter shared by every route: delegates to the limiter of the route's policy
+ * (rate-limit.route-policies, default policy otherwise) with a key scoped to the route
+ *
+ * RedisRateLimiter builds its Redis keys from the resolved key alone; without the route prefix
+ * one user would share a single bucket across all routes, and the two policies would overwrite
+ * each other's rate and burst on that bucket.
+ */
+public class RoutePolicyRateLimiter extends AbstractRateLimiter<RedisRateLimiter.Config> {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "route-policy-rate-limiter";
+
+    private final Map<String, RateLimiter<RedisRateLimiter.Config>> limitersByPolicy;
+    private final HypertubeGatewayProperties.RateLimitConfig settings;
+
+    public RoutePolicyRateLimiter(Map<String, RateLimiter<RedisRateLimiter.Config>> limitersByPolicy,
+                                  HypertubeGatewayProperties.RateLimitConfig settings) {
+        super(RedisRateLimiter.Config.class, CONFIGURATION_PROPERTY_NAME, null);
+        settings.getRoutePolicies().forEach((routeId, policy) -> {
+            if (!limitersByPolicy.containsKey(policy)) {
+                throw new IllegalStateException("Unknown rate limit policy '" + policy + "' for route " + routeId);
+            }
+        });
+        this.limitersByPolicy = Map.copyOf(limitersByPolicy);
+        this.settings = settings;
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        RateLimiter<RedisRateLimiter.Config> limiter = limitersByPolicy.get(settings.getPolicyForRoute(routeId));
+        return limiter.isAllowed(routeId, routeId + ":" + id);
+    }
+}
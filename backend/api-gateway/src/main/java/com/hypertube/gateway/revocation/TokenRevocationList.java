@@ -0,0 +1,211 @@
+package com.hypertube.gateway.revocation;
+
+import com.hypertube.gateway.config.HypertubeGatewayProperties;
+import com.hypertube.gateway.service.JwtPrincipal;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.ReactiveSubscription;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Access tokens revoked by auth-service (logout, password reset)
+ *
+ * auth-service records "user revoked at T" (epoch millis) in a Redis sorted set and publishes
+ * it on a pub/sub channel. Every token of that user issued up to T is rejected, compared in
+ * milliseconds through the iat_ms claim: a login right after a password reset stays valid.
+ * A token carrying only the standard iat (seconds) counts as issued at the start of its second.
+ * The gateway keeps the list in memory: a Bloom filter answers "not revoked" for almost
+ * every request, and the exact map is only consulted on a Bloom hit to rule out false
+ * positives. No Redis call happens on the request path.
+ * The sorted set is reloaded on (re)connection and periodically, which also drops entries
+ * older than the token lifetime. While Redis is unreachable the last known list keeps applying.
+ */
+@Component
+public class TokenRevocationList {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationList.class);
+
+    private final HypertubeGatewayProperties.RevocationConfig config;
+    private final Duration tokenLifetime;
+    private final ObjectProvider<ReactiveStringRedisTemplate> redisTemplate;
+
+    private final Counter rejectedTokens;
+    private final Counter falsePositives;
+
+    private volatile State state;
+    private volatile boolean connected;
+    private Disposable subscription;
+    private Disposable resyncTask;
+
+    public TokenRevocationList(HypertubeGatewayProperties gatewayProperties,
+                               ObjectProvider<ReactiveStringRedisTemplate> redisTemplate,
+                               MeterRegistry meterRegistry) {
+        this.config = gatewayProperties.getRevocation();
+        this.tokenLifetime = Duration.ofMillis(gatewayProperties.getJwt().getExpiration());
+        this.redisTemplate = redisTemplate;
+        this.state = new State(newBloomFilter(0), new ConcurrentHashMap<>());
+
+        this.rejectedTokens = Counter.builder("gateway.revocation.rejected")
+                .description("Requests rejected because their token was revoked")
+                .register(meterRegistry);
+        this.falsePositives = Counter.builder("gateway.revocation.bloom_false_positives")
+                .register(meterRegistry);
+        Gauge.builder("gateway.revocation.entries", this, list -> list.state.revokedAt.size())
+                .register(meterRegistry);
+        Gauge.builder("gateway.revocation.connected", this, list -> list.connected ? 1 : 0)
+                .description("1 while the revocation channel is subscribed")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        ReactiveStringRedisTemplate template = redisTemplate.getIfAvailable();
+        if (!config.isEnabled() || template == null) {
+            log.info("Révocation des tokens désactivée");
+            return;
+        }
+
+        subscription = Mono.defer(() -> template.listenToChannelLater(config.getChannel()))
+                // Recharge la liste complète une fois abonné pour couvrir les messages manqués
+                .flatMap(messages -> Mono.when(
+                        messages.doOnNext(this::onMessage).then(),
+                        resync(template).doOnSuccess(v -> onConnected())))
+                .doOnError(this::onDisconnected)
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(config.getReconnectMaxBackoff()))
+                .subscribe();
+
+        resyncTask = Flux.interval(config.getResyncInterval(), config.getResyncInterval())
+                .filter(tick -> connected)
+                .concatMap(tick -> resync(template)
+                        .onErrorResume(e -> {
+                            log.debug("Resynchronisation de la liste de révocation échouée: {}", e.toString());
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+        if (resyncTask != null) {
+            resyncTask.dispose();
+        }
+    }
+
+    /**
+     * Checks whether the token was issued before its user's last revocation; allocates nothing
+     */
+    public boolean isRevoked(JwtPrincipal principal) {
+        State current = state;
+        if (!current.bloomFilter.mightContain(principal.userId())) {
+            return false;
+        }
+
+        Long revokedAt = current.revokedAt.get(principal.userId());
+        if (revokedAt == null) {
+            falsePositives.increment();
+            return false;
+        }
+
+        // issuedAt vient d'iat_ms ; sans lui, iat tronqué à la seconde penche vers le rejet
+        Instant issuedAt = principal.issuedAt();
+        boolean revoked = issuedAt == null || issuedAt.toEpochMilli() <= revokedAt;
+        if (revoked) {
+            rejectedTokens.increment();
+        }
+        return revoked;
+    }
+
+    /**
+     * Records a revocation; writers are serialized, readers never lock
+     */
+    synchronized void revoke(String userId, long revokedAtEpochMillis) {
+        State current = state;
+        current.revokedAt.merge(userId, revokedAtEpochMillis, Math::max);
+        current.bloomFilter.add(userId);
+    }
+
+    // ====================== Synchronisation Redis ======================
+
+    private void onMessage(ReactiveSubscription.Message<String, String> message) {
+        // Format : "<userId>:<revokedAtEpochMillis>"
+        String payload = message.getMessage();
+        int separator = payload.lastIndexOf(':');
+        try {
+            revoke(payload.substring(0, separator), Long.parseLong(payload.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            log.warn("Message de révocation ignoré: {}", payload);
+        }
+    }
+
+    private Mono<Void> resync(ReactiveStringRedisTemplate template) {
+        long cutoff = Instant.now().minus(tokenLifetime).toEpochMilli();
+        return template.opsForZSet()
+                .rangeByScoreWithScores(config.getKey(), Range.closed((double) cutoff, Double.MAX_VALUE))
+                .collectMap(entry -> entry.getValue(), entry -> entry.getScore().longValue())
+                .doOnNext(snapshot -> replace(snapshot, cutoff))
+                .then();
+    }
+
+    /**
+     * Rebuilds the filter from Redis, keeping revocations received meanwhile
+     * and dropping those older than the token lifetime
+     */
+    private synchronized void replace(Map<String, Long> snapshot, long cutoff) {
+        ConcurrentHashMap<String, Long> revokedAt = new ConcurrentHashMap<>(snapshot);
+        state.revokedAt.forEach((userId, at) -> {
+            if (at >= cutoff) {
+                revokedAt.merge(userId, at, Math::max);
+            }
+        });
+
+        RevocationBloomFilter bloomFilter = newBloomFilter(revokedAt.size());
+        revokedAt.keySet().forEach(bloomFilter::add);
+        state = new State(bloomFilter, revokedAt);
+        log.debug("Liste de révocation rechargée: {} utilisateurs", revokedAt.size());
+    }
+
+    private RevocationBloomFilter newBloomFilter(int entries) {
+        // Garde de la marge pour les révocations reçues d'ici la prochaine reconstruction
+        return new RevocationBloomFilter(Math.max(config.getExpectedEntries(), entries * 2), config.getFalsePositiveRate());
+    }
+
+    private void onConnected() {
+        if (!connected) {
+            connected = true;
+            log.info("Liste de révocation synchronisée avec Redis ({} utilisateurs)", state.revokedAt.size());
+        }
+    }
+
+    private void onDisconnected(Throwable error) {
+        if (connected) {
+            connected = false;
+            log.warn("Canal de révocation perdu ({}), dernière liste connue conservée", error.toString());
+        } else {
+            log.debug("Redis indisponible pour la révocation: {}", error.toString());
+        }
+    }
+
+    private record State(RevocationBloomFilter bloomFilter, ConcurrentHashMap<String, Long> revokedAt) {
+    }
+}
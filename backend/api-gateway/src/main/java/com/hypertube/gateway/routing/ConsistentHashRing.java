@@ -0,0 +1,116 @@
+package com.hypertube.gateway.routing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Consistent-hash ring of the instances of a service, with virtual nodes and bounded load
+ *
+ * Each instance owns virtualNodes points of the ring; a key goes to the owner of the first
+ * point clockwise from its hash. Unavailable instances are skipped during the walk, which
+ * is exactly what removing their points would do: only their keys move, to the next owner,
+ * and they come back to them once the instance is available again.
+ * Bounded load: an instance already holding more than loadFactor x the average outstanding
+ * requests is skipped too, so a hot key spills over to the next instances of the ring
+ * instead of overloading its owner. For hash-routed calls the outstanding count lasts until
+ * the response body ends (see UpstreamLoadBalancerFilter), so long streams are weighed.
+ * Immutable; the walk reads only the instances' atomics.
+ */
+final class ConsistentHashRing {
+
+    private final UpstreamInstance[] instances;
+    private final long[] points;             // sorted hashes
+    private final UpstreamInstance[] owners; // owners[i] owns points[i]
+    private final double loadFactor;
+
+    ConsistentHashRing(List<UpstreamInstance> instances, int virtualNodes, double loadFactor) {
+        this.instances = instances.toArray(UpstreamInstance[]::new);
+        this.loadFactor = Math.max(1.0, loadFactor);
+
+        int count = this.instances.length * virtualNodes;
+        long[][] entries = new long[count][];
+        int n = 0;
+        for (int i = 0; i < this.instances.length; i++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                entries[n++] = new long[] {hash(this.instances[i].toString() + '#' + v), i};
+            }
+        }
+        Arrays.sort(entries, Comparator.comparingLong(entry -> entry[0]));
+
+        this.points = new long[count];
+        this.owners = new UpstreamInstance[count];
+        for (int i = 0; i < count; i++) {
+            points[i] = entries[i][0];
+            owners[i] = this.instances[(int) entries[i][1]];
+        }
+    }
+
+    /**
+     * Instance for this key, or null when no instance is available
+     *
+     * @param excluded instance to avoid if another one can take the key (previous failed attempt), may be null
+     */
+    UpstreamInstance choose(String key, UpstreamInstance excluded, long nowNanos) {
+        int available = 0;
+        long outstanding = 0;
+        for (UpstreamInstance instance : instances) {
+            if (instance.isAvailable(nowNanos)) {
+                available++;
+                outstanding += instance.outstanding();
+            }
+        }
+        if (available == 0) {
+            return null;
+        }
+
+        // Capacité par instance, en comptant la requête à placer
+        long capacity = (long) Math.ceil(loadFactor * (outstanding + 1) / available);
+
+        int start = ceilingIndex(hash(key));
+        UpstreamInstance fallback = null;
+        for (int i = 0; i < points.length; i++) {
+            UpstreamInstance owner = owners[(start + i) % points.length];
+            if (owner == excluded || !owner.isAvailable(nowNanos)) {
+                continue;
+            }
+            if (owner.outstanding() < capacity) {
+                return owner;
+            }
+            if (fallback == null) {
+                fallback = owner;
+            }
+        }
+        // Toutes les instances sont au-dessus de la borne (ou seule l'exclue est disponible)
+        if (fallback == null && excluded != null && excluded.isAvailable(nowNanos)) {
+            return excluded;
+        }
+        return fallback;
+    }
+
+    private int ceilingIndex(long hash) {
+        int index = Arrays.binarySearch(points, hash);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return index == points.length ? 0 : index;
+    }
+
+    /**
+     * FNV-1a 64 bits followed by the murmur3 finalizer, which spreads close keys ("#1", "#2") over the ring
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,167 @@
+package com.hypertube.gateway.routing;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Compiled path matcher backed by a character trie
+ *
+ * Supported patterns:
+ * - "/a/b"    : exactly "/a/b"
+ * - "/a/b/**" : "/a/b" and everything below "/a/b/"
+ *
+ * Patterns are either included or excluded; the most specific matching pattern wins.
+ * Matching walks the path once (O(path length)) and allocates nothing.
+ * Instances are immutable once built and safe to share between threads.
+ */
+public final class PathPrefixTrie {
+
+    private static final String SUBTREE_SUFFIX = "/**";
+
+    private static final byte EXACT_INCLUDE = 1;
+    private static final byte EXACT_EXCLUDE = 1 << 1;
+    private static final byte SUBTREE_INCLUDE = 1 << 2;
+    private static final byte SUBTREE_EXCLUDE = 1 << 3;
+    private static final byte EXACT_MASK = EXACT_INCLUDE | EXACT_EXCLUDE;
+    private static final byte SUBTREE_MASK = SUBTREE_INCLUDE | SUBTREE_EXCLUDE;
+
+    private final Node root;
+    private final int size;
+
+    private PathPrefixTrie(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Compiles a list of included patterns
+     */
+    public static PathPrefixTrie compile(Collection<String> patterns) {
+        Builder builder = builder();
+        patterns.forEach(builder::include);
+        return builder.build();
+    }
+
+    /**
+     * Checks whether the path is covered by an included pattern
+     */
+    public boolean matches(String path) {
+        Node node = root;
+        boolean matched = false;
+        int length = path.length();
+
+        for (int i = 0; i < length; i++) {
+            char c = path.charAt(i);
+            // A subtree pattern covers everything below its prefix
+            if (c == '/' && (node.flags & SUBTREE_MASK) != 0) {
+                matched = (node.flags & SUBTREE_INCLUDE) != 0;
+            }
+            node = node.child(c);
+            if (node == null) {
+                return matched;
+            }
+        }
+
+        if ((node.flags & EXACT_MASK) != 0) {
+            return (node.flags & EXACT_INCLUDE) != 0;
+        }
+        if ((node.flags & SUBTREE_MASK) != 0) {
+            return (node.flags & SUBTREE_INCLUDE) != 0;
+        }
+        return matched;
+    }
+
+    /**
+     * Number of compiled patterns
+     */
+    public int size() {
+        return size;
+    }
+
+    public static final class Builder {
+
+        private final Node root = new Node();
+        private int size;
+
+        private Builder() {}
+
+        public Builder include(String pattern) {
+            return add(pattern, true);
+        }
+
+        public Builder exclude(String pattern) {
+            return add(pattern, false);
+        }
+
+        public PathPrefixTrie build() {
+            return new PathPrefixTrie(root, size);
+        }
+
+        private Builder add(String pattern, boolean include) {
+            if (pattern == null || !pattern.startsWith("/")) {
+                throw new IllegalArgumentException("Path pattern must start with '/': " + pattern);
+            }
+
+            boolean subtree = pattern.endsWith(SUBTREE_SUFFIX);
+            String prefix = subtree ? pattern.substring(0, pattern.length() - SUBTREE_SUFFIX.length()) : pattern;
+            if (prefix.indexOf('*') >= 0) {
+                throw new IllegalArgumentException("Only a trailing '/**' wildcard is supported: " + pattern);
+            }
+
+            Node node = root;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.getOrCreateChild(prefix.charAt(i));
+            }
+
+            if (subtree) {
+                node.flags = (byte) ((node.flags & ~SUBTREE_MASK) | (include ? SUBTREE_INCLUDE : SUBTREE_EXCLUDE));
+            } else {
+                node.flags = (byte) ((node.flags & ~EXACT_MASK) | (include ? EXACT_INCLUDE : EXACT_EXCLUDE));
+            }
+            size++;
+            return this;
+        }
+    }
+
+    private static final class Node {
+
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        // Keys are kept sorted so lookups can use a binary search
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private byte flags;
+
+        private Node child(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        private Node getOrCreateChild(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            if (index >= 0) {
+                return children[index];
+            }
+
+            int insertAt = -index - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+
+            Node child = new Node();
+            newKeys[insertAt] = c;
+            newChildren[insertAt] = child;
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.hypertube.gateway.routing;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.netty.http.client.HttpClient;
+
+import java.util.List;
+
+import static org.springframework.cloud.gateway.support.RouteMetadataUtils.CONNECT_TIMEOUT_ATTR;
+
+/**
+ * NettyRoutingFilter sending each route through the connection pool of its upstream
+ * Routes without a dedicated pool keep the default gateway HttpClient.
+ */
+public class PooledNettyRoutingFilter extends NettyRoutingFilter {
+
+    private final UpstreamConnectionPools pools;
+
+    public PooledNettyRoutingFilter(HttpClient defaultClient,
+                                    ObjectProvider<List<HttpHeadersFilter>> headersFilters,
+                                    HttpClientProperties properties,
+                                    UpstreamConnectionPools pools) {
+        super(defaultClient, headersFilters, properties);
+        this.pools = pools;
+    }
+
+    @Override
+    protected HttpClient getHttpClient(Route route, ServerWebExchange exchange) {
+        HttpClient client = pools.resolve(route);
+        if (client == null) {
+            return super.getHttpClient(route, exchange);
+        }
+
+        Object connectTimeout = route.getMetadata().get(CONNECT_TIMEOUT_ATTR);
+        if (connectTimeout != null) {
+            return client.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, Integer.parseInt(connectTimeout.toString()));
+        }
+        return client;
+    }
+}
@@ -0,0 +1,146 @@
+package com.hypertube.gateway.routing;
+
+import com.hypertube.gateway.config.HypertubeGatewayProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Instances of one upstream service
+ *
+ * Picks an instance by least outstanding requests with the power of two choices:
+ * two distinct instances are drawn at random and the less loaded one wins.
+ * This avoids both the herd effect of always choosing the global minimum and a full
+ * scan per request, and reads only two counters.
+ * Unavailable instances (failed probes, ejected) are skipped; when none is available
+ * the choice is made among all of them rather than failing the request.
+ * Routes keyed by content (a movie) use the consistent-hash ring of the cluster instead.
+ */
+public final class UpstreamCluster {
+
+    private static final Logger log = LoggerFactory.getLogger(UpstreamCluster.class);
+
+    private final String name;
+    private final UpstreamInstance[] instances;
+    private final HypertubeGatewayProperties.OutlierDetectionConfig outlierDetection;
+    private final ConsistentHashRing ring; // null : hachage désactivé ou instance unique
+
+    UpstreamCluster(String name, List<UpstreamInstance> instances,
+                    HypertubeGatewayProperties.OutlierDetectionConfig outlierDetection,
+                    HypertubeGatewayProperties.ConsistentHashConfig consistentHash) {
+        if (instances.isEmpty()) {
+            throw new IllegalArgumentException("No instance configured for " + name);
+        }
+        this.name = name;
+        this.instances = instances.toArray(UpstreamInstance[]::new);
+        this.outlierDetection = outlierDetection;
+        this.ring = consistentHash.isEnabled() && instances.size() > 1
+                ? new ConsistentHashRing(instances, consistentHash.getVirtualNodes(), consistentHash.getLoadFactor())
+                : null;
+    }
+
+    public String getName() { return name; }
+
+    public List<UpstreamInstance> getInstances() {
+        return List.of(instances);
+    }
+
+    public boolean isBalanced() {
+        return instances.length > 1;
+    }
+
+    public UpstreamInstance choose() {
+        UpstreamInstance[] all = instances;
+        int count = all.length;
+        if (count == 1) {
+            return all[0];
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(count);
+        int second = random.nextInt(count - 1);
+        if (second >= first) {
+            second++;
+        }
+        UpstreamInstance a = all[first];
+        UpstreamInstance b = all[second];
+
+        long now = System.nanoTime();
+        boolean aAvailable = a.isAvailable(now);
+        boolean bAvailable = b.isAvailable(now);
+        if (aAvailable && bAvailable) {
+            return leastLoaded(a, b);
+        }
+        if (aAvailable || bAvailable) {
+            return aAvailable ? a : b;
+        }
+
+        // Les deux tirages sont indisponibles : première instance disponible à partir du tirage
+        for (int i = 1; i < count; i++) {
+            UpstreamInstance candidate = all[(first + i) % count];
+            if (candidate.isAvailable(now)) {
+                return candidate;
+            }
+        }
+        return leastLoaded(a, b);
+    }
+
+    /**
+     * Instance owning this key on the ring, within the load bound
+     *
+     * @param excluded instance of a previous failed attempt, avoided when possible (may be null)
+     */
+    public UpstreamInstance choose(String key, UpstreamInstance excluded) {
+        if (ring == null) {
+            return choose();
+        }
+        UpstreamInstance instance = ring.choose(key, excluded, System.nanoTime());
+        return instance != null ? instance : choose();
+    }
+
+    private static UpstreamInstance leastLoaded(UpstreamInstance a, UpstreamInstance b) {
+        return a.outstanding() <= b.outstanding() ? a : b;
+    }
+
+    // ====================== Détection passive ======================
+
+    void onSuccess(UpstreamInstance instance) {
+        if (outlierDetection.isEnabled()) {
+            instance.recordSuccess(System.nanoTime(), outlierDetection.getMaxEjectionTime().toNanos());
+        }
+    }
+
+    /**
+     * 5xx, connection error or timeout; ejects the instance after consecutiveFailures,
+     * unless maxEjectionPercent of the cluster is already ejected
+     */
+    void onFailure(UpstreamInstance instance) {
+        if (!outlierDetection.isEnabled() || !instance.recordFailure(outlierDetection.getConsecutiveFailures())) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        if ((ejectedCount(now) + 1) * 100 > instances.length * outlierDetection.getMaxEjectionPercent()) {
+            log.debug("Instance {} de {} en échec mais limite d'éjection atteinte", instance, name);
+            return;
+        }
+        long duration = instance.eject(now, outlierDetection.getBaseEjectionTime().toNanos(),
+                outlierDetection.getMaxEjectionTime().toNanos());
+        if (duration > 0) {
+            log.warn("Instance {} de {} éjectée pour {} ms après {} échecs consécutifs",
+                    instance, name, duration / 1_000_000, outlierDetection.getConsecutiveFailures());
+        }
+    }
+
+    private int ejectedCount(long now) {
+        int ejected = 0;
+        for (UpstreamInstance instance : instances) {
+            if (instance.isEjected(now)) {
+                ejected++;
+            }
+        }
+        return ejected;
+    }
+}
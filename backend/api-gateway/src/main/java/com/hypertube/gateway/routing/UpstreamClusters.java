@@ -0,0 +1,88 @@
+package com.hypertube.gateway.routing;
+
+import com.hypertube.gateway.config.HypertubeGatewayProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Instances of auth-service and video-service, built from ServiceConfig.instances
+ *
+ * Routes keep pointing at the service url; a route is served by the cluster whose
+ * url has the same authority, like the connection pools.
+ * Publishes gateway.upstream.outstanding, gateway.upstream.available and
+ * gateway.upstream.ejections per instance.
+ */
+@Component
+public class UpstreamClusters {
+
+    private static final Logger log = LoggerFactory.getLogger(UpstreamClusters.class);
+
+    private final HypertubeGatewayProperties.OutlierDetectionConfig outlierDetection;
+    private final HypertubeGatewayProperties.ConsistentHashConfig consistentHash;
+    private final Map<String, UpstreamCluster> clustersByName = new HashMap<>();
+    private final Map<String, UpstreamCluster> clustersByAuthority = new HashMap<>();
+
+    @Autowired
+    public UpstreamClusters(HypertubeGatewayProperties gatewayProperties, MeterRegistry meterRegistry) {
+        this.outlierDetection = gatewayProperties.getOutlierDetection();
+        this.consistentHash = gatewayProperties.getConsistentHash();
+        var services = gatewayProperties.getServices();
+        register("auth", services.getAuthService(), meterRegistry);
+        register("video", services.getVideoService(), meterRegistry);
+    }
+
+    /**
+     * Cluster serving this route, or null when the route targets another URI
+     */
+    public UpstreamCluster resolve(Route route) {
+        return clustersByAuthority.get(route.getUri().getAuthority());
+    }
+
+    public UpstreamCluster get(String serviceName) {
+        return clustersByName.get(serviceName);
+    }
+
+    public Collection<UpstreamCluster> getClusters() {
+        return clustersByName.values();
+    }
+
+    private void register(String serviceName, HypertubeGatewayProperties.ServiceConfig service, MeterRegistry meterRegistry) {
+        List<UpstreamInstance> instances = new ArrayList<>();
+        for (String url : service.getInstanceUrls()) {
+            UpstreamInstance instance = new UpstreamInstance(serviceName, URI.create(url));
+            instances.add(instance);
+            Gauge.builder("gateway.upstream.outstanding", instance, UpstreamInstance::outstanding)
+                    .description("Requests sent to the instance and not answered yet")
+                    .tag("service", serviceName)
+                    .tag("instance", instance.toString())
+                    .register(meterRegistry);
+            Gauge.builder("gateway.upstream.available", instance, i -> i.isAvailable(System.nanoTime()) ? 1 : 0)
+                    .description("1 when the instance passes its probes and is not ejected")
+                    .tag("service", serviceName)
+                    .tag("instance", instance.toString())
+                    .register(meterRegistry);
+            FunctionCounter.builder("gateway.upstream.ejections", instance, UpstreamInstance::ejectionCount)
+                    .tag("service", serviceName)
+                    .tag("instance", instance.toString())
+                    .register(meterRegistry);
+        }
+
+        UpstreamCluster cluster = new UpstreamCluster(serviceName, instances, outlierDetection, consistentHash);
+        clustersByName.put(serviceName, cluster);
+        clustersByAuthority.put(URI.create(service.getUrl()).getAuthority(), cluster);
+        log.info("Service {} : {} instance(s) {}", serviceName, instances.size(), instances);
+    }
+}
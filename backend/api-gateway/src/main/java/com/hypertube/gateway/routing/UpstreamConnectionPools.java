@@ -0,0 +1,101 @@
+package com.hypertube.gateway.routing;
+
+import com.hypertube.gateway.config.HypertubeGatewayProperties;
+import io.netty.channel.ChannelOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.stereotype.Component;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One Netty connection pool per upstream
+ *
+ * auth-service, video-service and the video streams each get their own ConnectionProvider,
+ * so long-lived streams can no longer exhaust the connections used by logins or API calls.
+ * Pools publish the reactor.netty.connection.provider.* metrics (active, idle, pending,
+ * max connections and pending acquire time), tagged with the pool name.
+ */
+@Component
+public class UpstreamConnectionPools implements DisposableBean {
+
+    /**
+     * Route metadata key forcing a pool; otherwise the pool is resolved from the route URI
+     */
+    public static final String POOL_ATTR = "upstream-pool";
+
+    public static final String AUTH_POOL = "auth-service";
+    public static final String VIDEO_POOL = "video-service";
+    public static final String STREAM_POOL = "video-stream";
+
+    private static final Logger log = LoggerFactory.getLogger(UpstreamConnectionPools.class);
+
+    private final Map<String, HttpClient> clientsByPool = new HashMap<>();
+    private final Map<String, HttpClient> clientsByAuthority = new HashMap<>();
+    private final List<ConnectionProvider> providers = new ArrayList<>();
+
+    @Autowired
+    public UpstreamConnectionPools(HypertubeGatewayProperties gatewayProperties, HttpClientProperties httpClientProperties) {
+        var services = gatewayProperties.getServices();
+
+        HttpClient auth = register(AUTH_POOL, services.getAuthService().getPool(), httpClientProperties);
+        HttpClient video = register(VIDEO_POOL, services.getVideoService().getPool(), httpClientProperties);
+        register(STREAM_POOL, gatewayProperties.getStreaming().getPool(), httpClientProperties);
+
+        clientsByAuthority.put(authority(services.getAuthService().getUrl()), auth);
+        clientsByAuthority.put(authority(services.getVideoService().getUrl()), video);
+    }
+
+    /**
+     * Client of the pool serving this route, or null to fall back to the default gateway client
+     */
+    public HttpClient resolve(Route route) {
+        Object pool = route.getMetadata().get(POOL_ATTR);
+        if (pool != null) {
+            return clientsByPool.get(pool.toString());
+        }
+        return clientsByAuthority.get(route.getUri().getAuthority());
+    }
+
+    @Override
+    public void destroy() {
+        providers.forEach(ConnectionProvider::dispose);
+    }
+
+    private HttpClient register(String name, HypertubeGatewayProperties.PoolConfig pool, HttpClientProperties httpClientProperties) {
+        ConnectionProvider provider = ConnectionProvider.builder(name)
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                .evictInBackground(pool.getEvictionInterval())
+                .metrics(true)
+                .build();
+        providers.add(provider);
+
+        HttpClient client = HttpClient.create(provider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) pool.getConnectTimeout().toMillis())
+                .keepAlive(pool.isKeepAlive())
+                .compress(httpClientProperties.isCompression())
+                .wiretap(httpClientProperties.isWiretap());
+        clientsByPool.put(name, client);
+
+        log.info("Pool {} : {} connexions max, idle {} ms", name, pool.getMaxConnections(), pool.getMaxIdleTime().toMillis());
+        return client;
+    }
+
+    private static String authority(String url) {
+        return URI.create(url).getAuthority();
+    }
+}
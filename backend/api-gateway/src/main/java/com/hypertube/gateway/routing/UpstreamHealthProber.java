@@ -0,0 +1,106 @@
+package com.hypertube.gateway.routing;
+
+import com.hypertube.gateway.config.HypertubeGatewayProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Active health checks of every upstream instance on ServiceConfig.healthPath
+ *
+ * Each instance is probed on its own schedule, jittered around the configured interval,
+ * so that instances and gateways are not probed in lockstep. A 2xx answer within the
+ * timeout is a success; unhealthyThreshold consecutive failures take the instance out
+ * of the balancer, healthyThreshold consecutive successes bring it back.
+ * Probes use their own connections so that a saturated route pool cannot fail them.
+ */
+@Component
+public class UpstreamHealthProber {
+
+    private static final Logger log = LoggerFactory.getLogger(UpstreamHealthProber.class);
+
+    private final HypertubeGatewayProperties gatewayProperties;
+    private final HypertubeGatewayProperties.HealthCheckConfig config;
+    private final UpstreamClusters clusters;
+    private final ConnectionProvider connectionProvider;
+    private final HttpClient httpClient;
+    private final Disposable.Composite probes = Disposables.composite();
+
+    @Autowired
+    public UpstreamHealthProber(HypertubeGatewayProperties gatewayProperties, UpstreamClusters clusters) {
+        this.gatewayProperties = gatewayProperties;
+        this.config = gatewayProperties.getHealthCheck();
+        this.clusters = clusters;
+        this.connectionProvider = ConnectionProvider.builder("upstream-health")
+                .maxConnections(2)
+                .build();
+        this.httpClient = HttpClient.create(connectionProvider)
+                .responseTimeout(config.getTimeout());
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!config.isEnabled()) {
+            log.info("Sondes de santé des upstreams désactivées");
+            return;
+        }
+
+        for (UpstreamCluster cluster : clusters.getClusters()) {
+            String healthPath = gatewayProperties.getServices().getService(cluster.getName()).getHealthPath();
+            for (UpstreamInstance instance : cluster.getInstances()) {
+                URI target = URI.create(instance.getUri().toString() + healthPath);
+                probes.add(Mono.defer(() -> Mono.delay(nextDelay()).then(probe(instance, target)))
+                        .repeat()
+                        .subscribe());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        probes.dispose();
+        connectionProvider.dispose();
+    }
+
+    private Mono<Void> probe(UpstreamInstance instance, URI target) {
+        return httpClient.get()
+                .uri(target)
+                .responseSingle((response, body) -> body.then(Mono.just(response.status().code())))
+                .timeout(config.getTimeout())
+                .map(status -> status >= 200 && status < 300)
+                .onErrorResume(e -> {
+                    log.debug("Sonde {} échouée: {}", target, e.toString());
+                    return Mono.just(false);
+                })
+                .doOnNext(success -> {
+                    if (instance.recordProbe(success, config.getHealthyThreshold(), config.getUnhealthyThreshold())) {
+                        if (success) {
+                            log.info("Instance {} de {} de nouveau saine", instance, instance.getService());
+                        } else {
+                            log.warn("Instance {} de {} retirée : {} sondes en échec",
+                                    instance, instance.getService(), config.getUnhealthyThreshold());
+                        }
+                    }
+                })
+                .then();
+    }
+
+    // Intervalle +/- jitter
+    private Duration nextDelay() {
+        long interval = config.getInterval().toMillis();
+        long jitter = (long) (interval * config.getJitterFactor());
+        return Duration.ofMillis(interval + (jitter > 0 ? ThreadLocalRandom.current().nextLong(-jitter, jitter + 1) : 0));
+    }
+}
@@ -0,0 +1,142 @@
+package com.hypertube.gateway.routing;
+
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One instance of an upstream service, its number of requests in flight and its health
+ *
+ * An instance is available when its health probes pass and it is not ejected.
+ * Counters are plain atomics: acquiring, releasing and reading health never lock.
+ */
+public final class UpstreamInstance {
+
+    private final String service;
+    private final URI uri;
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    // Sondes actives
+    private volatile boolean healthy = true;
+    private int probeStreak; // > 0 succès consécutifs, < 0 échecs ; une seule sonde à la fois
+
+    // Détection passive
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long ejectedUntil; // System.nanoTime(), 0 : pas éjectée
+    private int consecutiveEjections;   // multiplie la durée d'éjection
+    private volatile long totalEjections;
+
+    UpstreamInstance(String service, URI uri) {
+        this.service = service;
+        this.uri = uri;
+    }
+
+    public String getService() { return service; }
+
+    public URI getUri() { return uri; }
+
+    public int outstanding() {
+        return outstanding.get();
+    }
+
+    void acquire() {
+        outstanding.incrementAndGet();
+    }
+
+    void release() {
+        outstanding.decrementAndGet();
+    }
+
+    public boolean isAvailable(long nowNanos) {
+        return healthy && !isEjected(nowNanos);
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    boolean isEjected(long nowNanos) {
+        long until = ejectedUntil;
+        return until != 0 && nowNanos - until < 0;
+    }
+
+    public long ejectionCount() {
+        return totalEjections;
+    }
+
+    // ====================== Sondes actives ======================
+
+    /**
+     * Records a probe result; returns true when the health state changed
+     */
+    boolean recordProbe(boolean success, int healthyThreshold, int unhealthyThreshold) {
+        probeStreak = success ? Math.max(probeStreak, 0) + 1 : Math.min(probeStreak, 0) - 1;
+        if (!healthy && probeStreak >= healthyThreshold) {
+            healthy = true;
+            return true;
+        }
+        if (healthy && -probeStreak >= unhealthyThreshold) {
+            healthy = false;
+            return true;
+        }
+        return false;
+    }
+
+    // ====================== Détection passive ======================
+
+    /**
+     * Counts a failed call; returns true once the failure threshold is reached
+     */
+    boolean recordFailure(int threshold) {
+        return consecutiveFailures.incrementAndGet() >= threshold;
+    }
+
+    void recordSuccess(long nowNanos, long maxEjectionNanos) {
+        if (consecutiveFailures.get() != 0) {
+            consecutiveFailures.set(0);
+        }
+        // Une instance restée saine assez longtemps repart de la durée d'éjection de base
+        long until = ejectedUntil;
+        if (until != 0 && nowNanos - until > maxEjectionNanos) {
+            synchronized (this) {
+                if (ejectedUntil == until) {
+                    ejectedUntil = 0;
+                    consecutiveEjections = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the instance for baseEjection x 2^(previous ejections), capped; returns the duration
+     */
+    synchronized long eject(long nowNanos, long baseEjectionNanos, long maxEjectionNanos) {
+        if (isEjected(nowNanos)) {
+            return 0;
+        }
+        long duration = Math.min(maxEjectionNanos, baseEjectionNanos << Math.min(consecutiveEjections, 20));
+        ejectedUntil = nowNanos + duration;
+        consecutiveEjections++;
+        totalEjections++;
+        consecutiveFailures.set(0);
+        return duration;
+    }
+
+    /**
+     * Same request URL, sent to this instance
+     */
+    URI rewrite(URI requestUrl) {
+        return UriComponentsBuilder.fromUri(requestUrl)
+                .scheme(uri.getScheme())
+                .host(uri.getHost())
+                .port(uri.getPort())
+                .build(true)
+                .toUri();
+    }
+
+    @Override
+    public String toString() {
+        return uri.getAuthority();
+    }
+}
@@ -0,0 +1,135 @@
+package com.hypertube.gateway.routing;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.netty.Connection;
+
+import java.net.URI;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Client-side load balancing across the instances of a service
+ *
+ * Runs where Spring Cloud LoadBalancer would (after RouteToRequestUrlFilter, before routing)
+ * and rewrites the request URL towards the instance chosen by the cluster. The instance's
+ * outstanding counter covers the upstream call until its response headers are received,
+ * or, on hash-routed routes (streams), until the response body is fully relayed or cancelled;
+ * each retry attempt goes through here again and may land on another instance.
+ * The outcome of each attempt feeds the passive outlier detection of the cluster:
+ * 5xx responses, connection errors and timeouts count as failures.
+ * Routes carrying HASH_SEGMENT_ATTR are balanced on the consistent-hash ring, keyed by
+ * that segment of the path (the movie id), so that one movie is served by one instance;
+ * a retry avoids the instance of the failed attempt.
+ */
+@Component
+public class UpstreamLoadBalancerFilter implements GlobalFilter, Ordered {
+
+    /**
+     * Exchange attribute holding the instance serving the current attempt
+     */
+    public static final String UPSTREAM_INSTANCE_ATTR = "upstream-instance";
+
+    /**
+     * Route metadata: index of the path segment used as hash key ("/stream/{id}/..." : 1)
+     */
+    public static final String HASH_SEGMENT_ATTR = "upstream-hash-segment";
+
+    private final UpstreamClusters clusters;
+
+    public UpstreamLoadBalancerFilter(UpstreamClusters clusters) {
+        this.clusters = clusters;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        URI requestUrl = exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR);
+        UpstreamCluster cluster = route != null && requestUrl != null ? clusters.resolve(route) : null;
+        if (cluster == null || !cluster.isBalanced()) {
+            return chain.filter(exchange);
+        }
+
+        String hashKey = hashKey(route, exchange.getRequest().getURI().getRawPath());
+        return Mono.defer(() -> {
+            UpstreamInstance instance = hashKey != null
+                    ? cluster.choose(hashKey, exchange.getAttribute(UPSTREAM_INSTANCE_ATTR))
+                    : cluster.choose();
+            exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, instance.rewrite(requestUrl));
+            exchange.getAttributes().put(UPSTREAM_INSTANCE_ATTR, instance);
+
+            instance.acquire();
+            return chain.filter(exchange)
+                    .doOnSuccess(v -> recordOutcome(cluster, instance, exchange.getResponse().getStatusCode()))
+                    .doOnError(e -> cluster.onFailure(instance))
+                    .doFinally(signal -> {
+                        if (hashKey != null && signal == SignalType.ON_COMPLETE) {
+                            releaseAfterBody(instance, exchange);
+                        } else {
+                            instance.release();
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Keeps the stream counted on its instance while NettyWriteResponseFilter relays the body:
+     * a stream served for minutes must weigh in the bounded load of the ring, not only its headers
+     */
+    private static void releaseAfterBody(UpstreamInstance instance, ServerWebExchange exchange) {
+        Connection connection = exchange.getAttribute(CLIENT_RESPONSE_CONN_ATTR);
+        HttpStatusCode status = exchange.getResponse().getStatusCode();
+        // Pas de corps relayé (cache, fallback) ou réponse 5xx, possiblement rejouée par le retry
+        if (connection == null || status == null || status.is5xxServerError()) {
+            instance.release();
+            return;
+        }
+        // Fin du corps reçu, annulation par le client ou fermeture de la connexion
+        connection.onTerminate()
+                .doFinally(signal -> instance.release())
+                .subscribe(null, e -> { });
+    }
+
+    /**
+     * Path segment named by the route metadata, or null (route not hashed, path too short)
+     */
+    private static String hashKey(Route route, String path) {
+        if (!(route.getMetadata().get(HASH_SEGMENT_ATTR) instanceof Number segment)) {
+            return null;
+        }
+        int start = path.startsWith("/") ? 1 : 0;
+        for (int i = 0; i < segment.intValue(); i++) {
+            int slash = path.indexOf('/', start);
+            if (slash < 0) {
+                return null;
+            }
+            start = slash + 1;
+        }
+        int end = path.indexOf('/', start);
+        String key = end < 0 ? path.substring(start) : path.substring(start, end);
+        return key.isEmpty() ? null : key;
+    }
+
+    private static void recordOutcome(UpstreamCluster cluster, UpstreamInstance instance, HttpStatusCode status) {
+        if (status != null && status.is5xxServerError()) {
+            cluster.onFailure(instance);
+        } else {
+            cluster.onSuccess(instance);
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER;
+    }
+}
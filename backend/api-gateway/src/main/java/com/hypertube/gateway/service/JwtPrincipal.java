@@ -0,0 +1,17 @@
+package com.hypertube.gateway.service;
+
+import java.time.Instant;
+
+/**
+ * Identité immuable extraite d'un token JWT vérifié
+ * Partagée entre les requêtes tant que le token reste en cache
+ */
+public record JwtPrincipal(
+        String userId,
+        String username,
+        String email,
+        String roles,
+        Instant issuedAt,
+        Instant expiresAt
+) {
+}
@@ -1,44 +1,116 @@
 package com.hypertube.gateway.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.hypertube.gateway.config.HypertubeGatewayProperties;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
-import java.util.Date;
+import java.security.Key;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 
 /**
  * Service JWT compatible JJWT 0.12.6
  * Utilise la nouvelle API avec parseSignedClaims et getPayload
+ *
+ * Les clés et le parser sont construits une seule fois ; les tokens vérifiés sont
+ * mis en cache jusqu'à leur expiration pour éviter de refaire le HMAC à chaque requête.
+ *
+ * Rotation des clés (mêmes réglages qu'auth-service) : la clé de vérification est choisie
+ * d'après l'en-tête kid parmi la clé courante (jwt.key-id) et les précédentes
+ * (jwt.previous-keys, "kid=secret,..."). Un token sans kid est vérifié avec la clé courante.
  */
 @Service
 public class JwtService {
 
     private static final Logger log = LoggerFactory.getLogger(JwtService.class);
 
-    private final HypertubeGatewayProperties gatewayProperties;
-    private final String secretKey;
+    // Émission en millisecondes, ajoutée par auth-service (voir TokenRevocationList)
+    private static final String ISSUED_AT_MS_CLAIM = "iat_ms";
+
+    private final JwtParser parser;
+    private final Cache<String, JwtPrincipal> verifiedTokens;
+    private final Function<String, JwtPrincipal> verifier = this::parsePrincipal;
 
     @Autowired
-    public JwtService(HypertubeGatewayProperties gatewayProperties) {
-        this.gatewayProperties = gatewayProperties;
-        this.secretKey = gatewayProperties.getJwt().getSecret();
-        
-        log.info("Service JWT initialisé avec issuer: {}", 
-                gatewayProperties.getJwt().getIssuer());
+    public JwtService(HypertubeGatewayProperties gatewayProperties, MeterRegistry meterRegistry) {
+        var jwtConfig = gatewayProperties.getJwt();
+        SecretKey currentKey = buildSignInKey(jwtConfig.getSecret());
+        Map<String, SecretKey> keys = parsePreviousKeys(jwtConfig.getPreviousKeys());
+        String currentKeyId = jwtConfig.getKeyId() != null ? jwtConfig.getKeyId().trim() : "";
+        if (!currentKeyId.isEmpty()) {
+            keys.put(currentKeyId, currentKey);
+        }
+        this.parser = Jwts.parser()
+                .keyLocator(new LocatorAdapter<Key>() {
+                    @Override
+                    protected Key locate(JwsHeader header) {
+                        return resolveKey(header.getKeyId(), currentKey, keys);
+                    }
+                })
+                .build();
+
+        Duration maxTtl = jwtConfig.getVerifiedCacheMaxTtl();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(jwtConfig.getVerifiedCacheMaxSize())
+                .expireAfter(new TokenExpiry(maxTtl))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "gateway.jwt.verified");
+
+        log.info("Service JWT initialisé avec issuer: {} (kid: {}, clés acceptées: {})",
+                jwtConfig.getIssuer(), currentKeyId, keys.keySet());
+    }
+
+    private static Key resolveKey(String keyId, SecretKey currentKey, Map<String, SecretKey> keys) {
+        if (keyId == null) {
+            return currentKey;
+        }
+        SecretKey key = keys.get(keyId);
+        if (key == null) {
+            throw new SignatureException("Clé JWT inconnue (kid: " + keyId + ")");
+        }
+        return key;
+    }
+
+    /**
+     * "kid1=secret1,kid2=secret2" ; le secret peut contenir '=' mais pas ','
+     */
+    private static Map<String, SecretKey> parsePreviousKeys(String value) {
+        Map<String, SecretKey> keys = new HashMap<>();
+        if (value == null || value.isBlank()) {
+            return keys;
+        }
+        for (String entry : value.split(",")) {
+            int separator = entry.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalStateException("hypertube.gateway.jwt.previous-keys: entrées attendues kid=secret");
+            }
+            keys.put(entry.substring(0, separator).trim(), buildSignInKey(entry.substring(separator + 1).trim()));
+        }
+        return keys;
     }
 
     /**
      * Convertit la clé secrète string en SecretKey pour JJWT 0.12.6
      * Supporte les clés en Base64 et en texte brut
      */
-    private SecretKey getSignInKey() {
+    private static SecretKey buildSignInKey(String secretKey) {
         try {
             // Essaie d'abord le décodage Base64
             byte[] keyBytes = Decoders.BASE64.decode(secretKey);
@@ -47,7 +119,7 @@ public class JwtService {
             // Si le décodage Base64 échoue, utilise la clé comme texte brut
             log.debug("Clé JWT non Base64 détectée, utilisation en texte brut");
             byte[] keyBytes = secretKey.getBytes();
-            
+
             // Assure-toi que la clé fait au moins 256 bits (32 bytes) pour HMAC-SHA256
             if (keyBytes.length < 32) {
                 // Rembourre la clé si elle est trop courte
@@ -55,52 +127,41 @@ public class JwtService {
                 System.arraycopy(keyBytes, 0, paddedKey, 0, Math.min(keyBytes.length, 32));
                 keyBytes = paddedKey;
             }
-            
+
             return Keys.hmacShaKeyFor(keyBytes);
         }
     }
 
+    /**
+     * Vérifie un token une seule fois et retourne l'identité associée.
+     * Un token déjà vérifié est servi depuis le cache sans crypto ni allocation.
+     *
+     * @throws JwtException si le token est absent, invalide ou expiré
+     */
+    public JwtPrincipal verify(String token) {
+        if (token == null || token.isBlank()) {
+            throw new MalformedJwtException("Token JWT vide");
+        }
+
+        try {
+            return verifiedTokens.get(token, verifier);
+        } catch (ExpiredJwtException e) {
+            log.debug("Token JWT expiré: {}", e.getMessage());
+            throw e;
+        } catch (JwtException e) {
+            log.warn("Token JWT rejeté: {}", e.getMessage());
+            throw e;
+        }
+    }
+
     /**
      * Valide un token JWT avec la nouvelle API
      */
     public boolean validateToken(String token) {
         try {
-            if (token == null || token.trim().isEmpty()) {
-                return false;
-            }
-
-            // Utilise la nouvelle API JJWT 0.12.6
-            Claims claims = Jwts.parser()
-                    .verifyWith(getSignInKey())
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
-
-            // Validations de base
-            if (claims.getSubject() == null || claims.getSubject().trim().isEmpty()) {
-                log.debug("Token JWT sans subject valide");
-                return false;
-            }
-
-            // Vérifier l'expiration
-            if (claims.getExpiration() != null && claims.getExpiration().before(new Date())) {
-                log.debug("Token JWT expiré");
-                return false;
-            }
-
+            verify(token);
             return true;
-
-        } catch (ExpiredJwtException e) {
-            log.debug("Token JWT expiré: {}", e.getMessage());
-            return false;
-        } catch (UnsupportedJwtException e) {
-            log.warn("Token JWT non supporté: {}", e.getMessage());
-            return false;
-        } catch (MalformedJwtException e) {
-            log.warn("Token JWT malformé: {}", e.getMessage());
-            return false;
-        } catch (SignatureException e) {
-            log.warn("Signature JWT invalide: {}", e.getMessage());
+        } catch (JwtException e) {
             return false;
         } catch (Exception e) {
             log.error("Erreur inattendue lors de la validation JWT", e);
@@ -108,17 +169,6 @@ public class JwtService {
         }
     }
 
-    /**
-     * Extrait tous les claims d'un token JWT
-     */
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSignInKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-    }
-
     /**
      * Extrait les claims d'un token JWT valide
      */
@@ -128,47 +178,77 @@ public class JwtService {
         }
 
         try {
-            Claims claims = extractAllClaims(token);
-            return Optional.of(claims);
+            return Optional.of(parser.parseSignedClaims(token).getPayload());
         } catch (JwtException e) {
             log.debug("Impossible d'extraire les claims du token: {}", e.getMessage());
             return Optional.empty();
         }
     }
 
-    /**
-     * Extrait le subject (ID utilisateur) du token
-     */
-    public Optional<String> extractSubject(String token) {
-        return extractClaims(token)
-                .map(Claims::getSubject)
-                .filter(subject -> subject != null && !subject.trim().isEmpty());
+    // ====================== Méthodes privées ======================
+
+    private JwtPrincipal parsePrincipal(String token) {
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+
+        String subject = claims.getSubject();
+        if (subject == null || subject.trim().isEmpty()) {
+            throw new MalformedJwtException("Token JWT sans subject valide");
+        }
+
+        return new JwtPrincipal(
+                subject,
+                stringClaim(claims, "username"),
+                stringClaim(claims, "email"),
+                stringClaim(claims, "roles"),
+                issuedAt(claims),
+                claims.getExpiration() != null ? claims.getExpiration().toInstant() : null
+        );
     }
 
     /**
-     * Extrait le nom d'utilisateur du token
+     * iat_ms d'auth-service si présent : l'iat standard est tronqué à la seconde
      */
-    public Optional<String> extractUsername(String token) {
-        return extractClaims(token)
-                .map(claims -> claims.get("username", String.class))
-                .filter(username -> username != null && !username.trim().isEmpty());
+    private static Instant issuedAt(Claims claims) {
+        Number millis = claims.get(ISSUED_AT_MS_CLAIM, Number.class);
+        if (millis != null) {
+            return Instant.ofEpochMilli(millis.longValue());
+        }
+        return claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null;
     }
 
-    /**
-     * Extrait l'email du token
-     */
-    public Optional<String> extractEmail(String token) {
-        return extractClaims(token)
-                .map(claims -> claims.get("email", String.class))
-                .filter(email -> email != null && !email.trim().isEmpty());
+    private static String stringClaim(Claims claims, String name) {
+        String value = claims.get(name, String.class);
+        return value != null ? value : "";
     }
 
     /**
-     * Extrait les rôles du token
+     * Un principal reste en cache jusqu'à l'expiration du token, bornée par maxTtl
      */
-    public Optional<String> extractRoles(String token) {
-        return extractClaims(token)
-                .map(claims -> claims.get("roles", String.class))
-                .filter(roles -> roles != null && !roles.trim().isEmpty());
+    private static final class TokenExpiry implements Expiry<String, JwtPrincipal> {
+
+        private final long maxTtlNanos;
+
+        private TokenExpiry(Duration maxTtl) {
+            this.maxTtlNanos = maxTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(String token, JwtPrincipal principal, long currentTime) {
+            if (principal.expiresAt() == null) {
+                return maxTtlNanos;
+            }
+            long remaining = Duration.between(Instant.now(), principal.expiresAt()).toNanos();
+            return Math.max(0, Math.min(remaining, maxTtlNanos));
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, JwtPrincipal principal, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String token, JwtPrincipal principal, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
-} 
\ No newline at end of file
+}
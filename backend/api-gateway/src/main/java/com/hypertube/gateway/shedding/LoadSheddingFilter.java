@@ -0,0 +1,126 @@
+package com.hypertube.gateway.shedding;
+
+import com.hypertube.gateway.config.HypertubeGatewayProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Drops low-priority requests first when the gateway is saturated
+ *
+ * Runs before every route filter, so that a shed request costs neither a JWT verification
+ * nor an upstream call. The class of a request is the one declared by its route
+ * (PRIORITY_ATTR metadata, NORMAL by default), unless LoadSheddingConfig.routes overrides it.
+ * Past its threshold a class is shed with a probability growing with the pressure, which
+ * keeps part of it flowing instead of switching all of it on and off.
+ * Shed requests get 503 with Retry-After and are counted by gateway.load_shedding.shed{priority}.
+ * The 503 is written after rejectDelay: clients ignoring Retry-After would otherwise re-send at
+ * once, and the cost of rejecting them alone would keep the gateway saturated.
+ */
+@Component
+public class LoadSheddingFilter implements GlobalFilter, Ordered {
+
+    /**
+     * Route metadata holding the RequestPriority of the route
+     */
+    public static final String PRIORITY_ATTR = "request-priority";
+
+    private final HypertubeGatewayProperties.LoadSheddingConfig config;
+    private final OverloadMonitor monitor;
+    private final Map<RequestPriority, Counter> shed = new EnumMap<>(RequestPriority.class);
+
+    @Autowired
+    public LoadSheddingFilter(HypertubeGatewayProperties gatewayProperties, OverloadMonitor monitor,
+                              MeterRegistry meterRegistry) {
+        this.config = gatewayProperties.getLoadShedding();
+        this.monitor = monitor;
+        for (RequestPriority priority : RequestPriority.values()) {
+            shed.put(priority, Counter.builder("gateway.load_shedding.shed")
+                    .description("Requests rejected because the gateway was saturated")
+                    .tag("priority", priority.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!config.isEnabled()) {
+            return chain.filter(exchange);
+        }
+
+        RequestPriority priority = priorityOf(exchange.getAttribute(GATEWAY_ROUTE_ATTR));
+        double excess = monitor.pressure() - config.thresholdFor(priority);
+        if (excess <= 0 || ThreadLocalRandom.current().nextDouble() * config.getRamp() >= excess) {
+            return chain.filter(exchange);
+        }
+
+        shed.get(priority).increment();
+        return handleShed(exchange);
+    }
+
+    private RequestPriority priorityOf(Route route) {
+        if (route == null) {
+            return RequestPriority.NORMAL;
+        }
+        RequestPriority configured = config.getRoutes().get(route.getId());
+        if (configured != null) {
+            return configured;
+        }
+        return route.getMetadata().get(PRIORITY_ATTR) instanceof RequestPriority declared
+                ? declared
+                : RequestPriority.NORMAL;
+    }
+
+    private Mono<Void> handleShed(ServerWebExchange exchange) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+        response.getHeaders().add(HttpHeaders.RETRY_AFTER,
+                String.valueOf(Math.max(1, config.getRetryAfter().toSeconds())));
+        response.getHeaders().add("X-Error-Source", "Load-Shedding");
+
+        String body = String.format("""
+            {
+                "error": "SERVICE_UNAVAILABLE",
+                "message": "Gateway overloaded, retry later",
+                "timestamp": "%s",
+                "path": "%s",
+                "status": 503
+            }
+            """,
+            Instant.now(),
+            exchange.getRequest().getURI().getPath()
+        );
+
+        Mono<Void> write = response.writeWith(Mono.just(response.bufferFactory().wrap(body.getBytes())));
+        Duration delay = config.getRejectDelay();
+        // Le délai ne coûte qu'un timer : la connexion reste ouverte sans travail
+        return delay.isZero() ? write : Mono.delay(delay).then(write);
+    }
+
+    @Override
+    public int getOrder() {
+        // Avant l'écriture de la réponse upstream et les filtres de route, sauf le log d'accès qui l'enveloppe
+        return NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+    }
+}
@@ -0,0 +1,130 @@
+package com.hypertube.gateway.shedding;
+
+import com.hypertube.gateway.config.HypertubeGatewayProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.HttpResources;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Saturation of the gateway: CPU usage and lag of the Netty event loops
+ *
+ * Each event loop runs a probe task scheduled every sampleInterval; the delay between the
+ * planned and the actual run is the time the loop spent on other work before reaching it.
+ * Each loop keeps its worst recent lag, decaying by 20% per sample, so that one burst is
+ * seen at once but does not keep requests shed for long; the most lagging loop counts.
+ * CPU usage of the process is sampled at the same interval and smoothed.
+ * Publishes gateway.overload.pressure, gateway.overload.event_loop_lag and gateway.overload.cpu.
+ */
+@Component
+public class OverloadMonitor {
+
+    private static final double LAG_DECAY = 0.8;
+    private static final double CPU_ALPHA = 0.3;
+
+    private final HypertubeGatewayProperties.LoadSheddingConfig config;
+    private final long intervalNanos;
+    private final com.sun.management.OperatingSystemMXBean os;
+
+    private volatile boolean running;
+    private volatile double cpu;
+    private volatile AtomicLongArray loopLags = new AtomicLongArray(0); // une case par boucle
+    private Disposable cpuSampler;
+
+    @Autowired
+    public OverloadMonitor(HypertubeGatewayProperties gatewayProperties, MeterRegistry meterRegistry) {
+        this.config = gatewayProperties.getLoadShedding();
+        this.intervalNanos = config.getSampleInterval().toNanos();
+        this.os = ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean bean
+                ? bean : null;
+
+        Gauge.builder("gateway.overload.pressure", this, OverloadMonitor::pressure)
+                .description("Saturation of the gateway, 1 = CPU or event-loop lag at its target")
+                .register(meterRegistry);
+        Gauge.builder("gateway.overload.event_loop_lag", this, m -> m.lagNanos() / 1e9)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("gateway.overload.cpu", this, m -> m.cpu)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        running = true;
+
+        // Mêmes boucles que le serveur et les clients reactor-netty
+        EventLoopGroup group = HttpResources.get().onServer(true);
+        List<EventExecutor> loops = new ArrayList<>();
+        group.forEach(loops::add);
+        loopLags = new AtomicLongArray(loops.size());
+        for (int i = 0; i < loops.size(); i++) {
+            scheduleProbe(loops.get(i), i);
+        }
+
+        if (os != null) {
+            cpuSampler = Flux.interval(config.getSampleInterval())
+                    .subscribe(tick -> sampleCpu());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (cpuSampler != null) {
+            cpuSampler.dispose();
+        }
+    }
+
+    /**
+     * max(cpu / cpuTarget, lag / eventLoopLagTarget)
+     */
+    public double pressure() {
+        double cpuPressure = cpu / config.getCpuTarget();
+        double lagPressure = (double) lagNanos() / config.getEventLoopLagTarget().toNanos();
+        return Math.max(cpuPressure, lagPressure);
+    }
+
+    private long lagNanos() {
+        AtomicLongArray lags = loopLags;
+        long max = 0;
+        for (int i = 0; i < lags.length(); i++) {
+            max = Math.max(max, lags.get(i));
+        }
+        return max;
+    }
+
+    private void scheduleProbe(EventExecutor loop, int index) {
+        long plannedAt = System.nanoTime() + intervalNanos;
+        loop.schedule(() -> {
+            // Seule cette boucle écrit sa case
+            long lag = Math.max(0, System.nanoTime() - plannedAt);
+            loopLags.set(index, Math.max(lag, (long) (loopLags.get(index) * LAG_DECAY)));
+            if (running) {
+                scheduleProbe(loop, index);
+            }
+        }, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void sampleCpu() {
+        double load = os.getProcessCpuLoad();
+        if (load >= 0) {
+            cpu += (load - cpu) * CPU_ALPHA;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.hypertube.gateway.shedding;
+
+/**
+ * Priority class of a route when the gateway has to shed load
+ */
+public enum RequestPriority {
+
+    /**
+     * Playback and session keeping; never shed
+     */
+    CRITICAL,
+
+    /**
+     * Default for routes that do not declare a class
+     */
+    NORMAL,
+
+    /**
+     * Browsing and social features; shed first
+     */
+    LOW
+}
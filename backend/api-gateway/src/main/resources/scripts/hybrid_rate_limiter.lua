@@ -0,0 +1,43 @@
+-- Reconciliation batch for the gateway local token buckets
+-- KEYS: tokens_key_1, timestamp_key_1, tokens_key_2, timestamp_key_2, ...
+-- ARGV: rate_1, capacity_1, consumed_1, rate_2, capacity_2, consumed_2, ...
+-- Returns the global remaining tokens for each bucket (may be negative: debt
+-- accumulated by every gateway since the previous reconciliation)
+-- The keys of many clients go to one call: single Redis node (or primary + replicas)
+-- only, Redis Cluster rejects it with CROSSSLOT
+redis.replicate_commands()
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) + tonumber(time[2]) / 1000000
+
+local results = {}
+for i = 1, #KEYS / 2 do
+  local tokens_key = KEYS[2 * i - 1]
+  local timestamp_key = KEYS[2 * i]
+  local rate = tonumber(ARGV[3 * i - 2])
+  local capacity = tonumber(ARGV[3 * i - 1])
+  local consumed = tonumber(ARGV[3 * i])
+
+  local ttl = math.floor(capacity / rate * 2) + 1
+
+  local last_tokens = tonumber(redis.call('get', tokens_key))
+  if last_tokens == nil then
+    last_tokens = capacity
+  end
+
+  local last_refreshed = tonumber(redis.call('get', timestamp_key))
+  if last_refreshed == nil then
+    last_refreshed = now
+  end
+
+  local delta = math.max(0, now - last_refreshed)
+  local filled_tokens = math.min(capacity, last_tokens + (delta * rate))
+  local remaining = math.max(-capacity, filled_tokens - consumed)
+
+  redis.call('setex', tokens_key, ttl, remaining)
+  redis.call('setex', timestamp_key, ttl, now)
+
+  results[i] = math.floor(remaining)
+end
+
+return results
@@ -0,0 +1,74 @@
+package com.hypertube.gateway.context;
+
+import com.hypertube.gateway.config.HypertubeGatewayProperties;
+import com.hypertube.gateway.service.JwtPrincipal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Wire format of X-Gateway-Assertion: the same vectors are checked by GatewayIdentityVerifierTest
+ * in auth-service, so a change on either side breaks one of the two
+ */
+class IdentityAssertionSignerTest {
+
+    private static final String SECRET = "identity-assertion-secret-for-hypertube-tests";
+    // 2100-01-01T00:00:00Z moins le ttl de 30 s
+    private static final long NOW = 4102444800000L - 30_000;
+
+    private IdentityAssertionSigner signer;
+
+    @BeforeEach
+    void setUp() {
+        var properties = new HypertubeGatewayProperties();
+        properties.getIdentityAssertion().setSecret(SECRET);
+        properties.getIdentityAssertion().setTtl(Duration.ofSeconds(30));
+        signer = new IdentityAssertionSigner(properties);
+    }
+
+    @Test
+    void signsKnownAssertion() {
+        assertThat(signer.sign(principal("42", "alice", "alice@example.com"), NOW))
+                .isEqualTo("v1.4102444800000.IPTL2uVfX6CrqLlaSSMZ-BYVcBhLWmTS8cFTWPUblbI");
+    }
+
+    @Test
+    void signsLatin1UsernameOneBytePerChar() {
+        assertThat(signer.sign(principal("42", "zoë", "zoe@example.com"), NOW))
+                .isEqualTo("v1.4102444800000.y5_x_Md75_yfcCa4nCjLYO7yCbn9tcwXk5HNan9x-LI");
+    }
+
+    @Test
+    void signsCharsBeyondLatin1AsNettyWritesThem() {
+        // Netty envoie "?ukasz" : c'est la valeur que auth-service vérifiera
+        String expected = "v1.4102444800000.eKglTT-BoaBbZXPt-6IBa5z5vaG0nTk6RgEowBp9e98";
+        assertThat(signer.sign(principal("43", "Łukasz", "lukasz@example.com"), NOW)).isEqualTo(expected);
+        assertThat(signer.sign(principal("43", "?ukasz", "lukasz@example.com"), NOW)).isEqualTo(expected);
+    }
+
+    @Test
+    void anyFieldChangesTheSignature() {
+        String signed = signer.sign(principal("42", "alice", "alice@example.com"), NOW);
+
+        assertThat(signer.sign(principal("43", "alice", "alice@example.com"), NOW)).isNotEqualTo(signed);
+        assertThat(signer.sign(principal("42", "alicf", "alice@example.com"), NOW)).isNotEqualTo(signed);
+        assertThat(signer.sign(principal("42", "alice", "alice@example.com"), NOW + 1)).isNotEqualTo(signed);
+    }
+
+    @Test
+    void rejectsShortSecret() {
+        var properties = new HypertubeGatewayProperties();
+        properties.getIdentityAssertion().setSecret("too-short");
+
+        assertThatThrownBy(() -> new IdentityAssertionSigner(properties))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private static JwtPrincipal principal(String userId, String username, String email) {
+        return new JwtPrincipal(userId, username, email, "ROLE_USER", null, null);
+    }
+}
@@ -0,0 +1,101 @@
+package com.hypertube.gateway.filter;
+
+import com.hypertube.gateway.concurrency.AttemptSampleFilter;
+import com.hypertube.gateway.concurrency.ConcurrencyLimiters;
+import com.hypertube.gateway.config.HypertubeGatewayProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The limiter learns only from real upstream attempts: responses produced by the gateway
+ * itself (open circuit breaker fallback) must not shrink the limit
+ */
+class ConcurrencyLimitGatewayFilterFactoryTest {
+
+    private static final String GROUP = "video";
+    private static final int INITIAL_LIMIT = 20;
+
+    private ConcurrencyLimiters limiters;
+    private GatewayFilter filter;
+    private final AttemptSampleFilter attemptFilter = new AttemptSampleFilter();
+
+    @BeforeEach
+    void setUp() {
+        var properties = new HypertubeGatewayProperties();
+        var settings = properties.getConcurrencyLimit();
+        settings.setInitialLimit(INITIAL_LIMIT);
+        settings.setMinLimit(1);
+        settings.setSampleWindow(Duration.ofMillis(1));
+        settings.setMinWindowSamples(1);
+        settings.setBackoffRatio(0.5);
+
+        var meterRegistry = new SimpleMeterRegistry();
+        limiters = new ConcurrencyLimiters(properties, meterRegistry);
+        filter = new ConcurrencyLimitGatewayFilterFactory(properties, limiters, meterRegistry)
+                .apply(new ConcurrencyLimitGatewayFilterFactory.Config(GROUP));
+    }
+
+    @Test
+    void breakerFallbackDoesNotShrinkTheLimit() throws InterruptedException {
+        // Circuit ouvert : le fallback répond 503 sans tentative upstream
+        GatewayFilterChain breakerOpen = exchange -> {
+            exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            return Mono.empty();
+        };
+
+        run(breakerOpen, 10);
+
+        assertThat(limiters.get(GROUP).getLimit()).isEqualTo(INITIAL_LIMIT);
+        assertThat(limiters.get(GROUP).getInFlight()).isZero();
+    }
+
+    @Test
+    void upstreamOverloadShrinksTheLimit() throws InterruptedException {
+        GatewayFilterChain upstreamOverloaded = exchange -> attemptFilter.filter(exchange, attempt -> {
+            attempt.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            return Mono.empty();
+        });
+
+        run(upstreamOverloaded, 10);
+
+        assertThat(limiters.get(GROUP).getLimit()).isLessThan(INITIAL_LIMIT);
+        assertThat(limiters.get(GROUP).getInFlight()).isZero();
+    }
+
+    @Test
+    void lastAttemptDecidesTheSample() throws InterruptedException {
+        // Retry : première tentative en 503, la seconde aboutit
+        GatewayFilterChain retried = exchange -> attemptFilter.filter(exchange, attempt -> {
+                    attempt.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                    return Mono.empty();
+                })
+                .then(Mono.defer(() -> attemptFilter.filter(exchange, attempt -> {
+                    attempt.getResponse().setStatusCode(HttpStatus.OK);
+                    return Mono.empty();
+                })));
+
+        run(retried, 10);
+
+        assertThat(limiters.get(GROUP).getLimit()).isGreaterThanOrEqualTo(INITIAL_LIMIT);
+    }
+
+    private void run(GatewayFilterChain chain, int requests) throws InterruptedException {
+        for (int i = 0; i < requests; i++) {
+            var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/movies/1"));
+            filter.filter(exchange, chain).block();
+            // Une fenêtre d'échantillonnage par requête
+            Thread.sleep(2);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.hypertube.gateway.ratelimit;
+
+import com.hypertube.gateway.config.HypertubeGatewayProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Redis outage: local enforcement continues, the degraded gauge flips, and reconciliation
+ * resumes after degraded-retry-interval once Redis answers again
+ */
+class HybridRateLimiterTest {
+
+    private static final String ROUTE = "movies-protected";
+    private static final String KEY = ROUTE + ":user:42";
+    private static final int BURST = 3;
+    private static final Duration RETRY_INTERVAL = Duration.ofMillis(200);
+
+    private ReactiveStringRedisTemplate redisTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private HybridRateLimiter limiter;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(ReactiveStringRedisTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+
+        var settings = new HypertubeGatewayProperties.RateLimitConfig();
+        // La tâche périodique ne doit pas interférer : le test appelle reconcile() lui-même
+        settings.setSyncInterval(Duration.ofHours(1));
+        settings.setDegradedRetryInterval(RETRY_INTERVAL);
+
+        var policy = new RedisRateLimiter.Config()
+                .setReplenishRate(1)
+                .setBurstCapacity(BURST)
+                .setRequestedTokens(1);
+        limiter = new HybridRateLimiter("default", policy, redisTemplate, mock(RedisScript.class),
+                settings, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        limiter.destroy();
+    }
+
+    @Test
+    void keepsEnforcingLocalLimitsWhileRedisIsDown() {
+        givenRedisDown();
+
+        assertThat(allowed()).isTrue();
+        limiter.reconcile();
+        assertThat(limiter.isDegraded()).isTrue();
+
+        // Le reste du burst passe, puis refus comme avec Redis (429 côté filtre)
+        for (int i = 1; i < BURST; i++) {
+            assertThat(allowed()).isTrue();
+        }
+        assertThat(allowed()).isFalse();
+        assertThat(meterRegistry.get("gateway.rate_limit.decisions").tag("result", "denied").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void degradedGaugeFlipsOnOutage() {
+        assertThat(degradedGauge()).isZero();
+
+        givenRedisDown();
+        allowed();
+        limiter.reconcile();
+
+        assertThat(degradedGauge()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("gateway.rate_limit.sync.failures").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recoversAfterDegradedRetryInterval() throws InterruptedException {
+        givenRedisDown();
+        allowed();
+        limiter.reconcile();
+        assertThat(limiter.isDegraded()).isTrue();
+
+        givenRedisUp();
+        allowed();
+        // Avant l'intervalle : pas de nouvel essai
+        limiter.reconcile();
+        assertThat(limiter.isDegraded()).isTrue();
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), anyList(), anyList());
+
+        Thread.sleep(RETRY_INTERVAL.toMillis() + 50);
+        limiter.reconcile();
+
+        assertThat(limiter.isDegraded()).isFalse();
+        assertThat(degradedGauge()).isZero();
+        verify(redisTemplate, times(2)).execute(any(RedisScript.class), anyList(), anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reportsConsumptionOfFailedBatchOnceRedisIsBack() throws InterruptedException {
+        givenRedisDown();
+        allowed();
+        allowed();
+        limiter.reconcile();
+        assertThat(limiter.isDegraded()).isTrue();
+
+        givenRedisUp();
+        Thread.sleep(RETRY_INTERVAL.toMillis() + 50);
+        limiter.reconcile();
+
+        // Les 2 jetons du lot en échec sont renvoyés, pas perdus
+        ArgumentCaptor<List<String>> args = ArgumentCaptor.forClass(List.class);
+        verify(redisTemplate, times(2)).execute(any(RedisScript.class), anyList(), args.capture());
+        assertThat(args.getAllValues().get(1)).containsExactly("1", Integer.toString(BURST), "2");
+        assertThat(limiter.isDegraded()).isFalse();
+    }
+
+    private boolean allowed() {
+        RateLimiter.Response response = limiter.isAllowed(ROUTE, KEY).block();
+        return response != null && response.isAllowed();
+    }
+
+    private double degradedGauge() {
+        return meterRegistry.get("gateway.rate_limit.degraded").tag("policy", "default").gauge().value();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenRedisDown() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList()))
+                .thenReturn(Flux.error(new RedisConnectionFailureException("Unable to connect to Redis")));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenRedisUp() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList()))
+                .thenReturn(Flux.just(List.of((long) BURST - 2)));
+    }
+}
@@ -0,0 +1,119 @@
+package com.hypertube.gateway.routing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Exact and "/**" patterns, excludes nested in includes, and prefixes that only share characters
+ */
+class PathPrefixTrieTest {
+
+    @Test
+    void exactPatternMatchesOnlyThatPath() {
+        PathPrefixTrie trie = PathPrefixTrie.compile(List.of("/auth/signin"));
+
+        assertThat(trie.matches("/auth/signin")).isTrue();
+        assertThat(trie.matches("/auth/signin/")).isFalse();
+        assertThat(trie.matches("/auth/signin/x")).isFalse();
+        assertThat(trie.matches("/auth/sign")).isFalse();
+        assertThat(trie.matches("/auth")).isFalse();
+    }
+
+    @Test
+    void subtreePatternMatchesPrefixAndEverythingBelow() {
+        PathPrefixTrie trie = PathPrefixTrie.compile(List.of("/auth/**"));
+
+        assertThat(trie.matches("/auth")).isTrue();
+        assertThat(trie.matches("/auth/")).isTrue();
+        assertThat(trie.matches("/auth/signin")).isTrue();
+        assertThat(trie.matches("/auth/oauth2/providers")).isTrue();
+        assertThat(trie.matches("/")).isFalse();
+        assertThat(trie.matches("/movies")).isFalse();
+    }
+
+    @Test
+    void subtreePatternDoesNotMatchLongerSegment() {
+        PathPrefixTrie trie = PathPrefixTrie.compile(List.of("/auth/**"));
+
+        assertThat(trie.matches("/authx")).isFalse();
+        assertThat(trie.matches("/auth-service/x")).isFalse();
+        assertThat(trie.matches("/aut")).isFalse();
+    }
+
+    @Test
+    void exactPatternDistinguishesTrailingSlash() {
+        PathPrefixTrie withoutSlash = PathPrefixTrie.compile(List.of("/auth"));
+        PathPrefixTrie withSlash = PathPrefixTrie.compile(List.of("/auth/"));
+
+        assertThat(withoutSlash.matches("/auth")).isTrue();
+        assertThat(withoutSlash.matches("/auth/")).isFalse();
+        assertThat(withoutSlash.matches("/authx")).isFalse();
+        assertThat(withSlash.matches("/auth/")).isTrue();
+        assertThat(withSlash.matches("/auth")).isFalse();
+    }
+
+    @Test
+    void excludeInsideIncludeWins() {
+        // Même forme que les chemins protégés de GatewayConfig
+        PathPrefixTrie trie = PathPrefixTrie.builder()
+                .include("/auth/**")
+                .exclude("/auth")
+                .exclude("/auth/signin")
+                .build();
+
+        assertThat(trie.matches("/auth/signin")).isFalse();
+        assertThat(trie.matches("/auth")).isFalse();
+        assertThat(trie.matches("/auth/")).isTrue();
+        assertThat(trie.matches("/auth/signup")).isTrue();
+        assertThat(trie.matches("/auth/signinx")).isTrue();
+        assertThat(trie.matches("/auth/signin/x")).isTrue();
+        assertThat(trie.size()).isEqualTo(3);
+    }
+
+    @Test
+    void excludedSubtreeInsideIncludedSubtree() {
+        PathPrefixTrie trie = PathPrefixTrie.builder()
+                .include("/movies/**")
+                .exclude("/movies/history/**")
+                .build();
+
+        assertThat(trie.matches("/movies/42")).isTrue();
+        assertThat(trie.matches("/movies/history")).isFalse();
+        assertThat(trie.matches("/movies/history/42")).isFalse();
+        assertThat(trie.matches("/movies/historyx")).isTrue();
+    }
+
+    @Test
+    void lastDefinitionOfSamePatternWins() {
+        PathPrefixTrie trie = PathPrefixTrie.builder()
+                .include("/movies")
+                .exclude("/movies")
+                .build();
+
+        assertThat(trie.matches("/movies")).isFalse();
+    }
+
+    @Test
+    void rejectsWildcardOtherThanTrailingSubtree() {
+        assertThatThrownBy(() -> PathPrefixTrie.builder().include("/auth/*"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PathPrefixTrie.builder().include("/auth/**/signin"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PathPrefixTrie.builder().exclude("/*/signin"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PathPrefixTrie.builder().include("/auth*"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsPatternWithoutLeadingSlash() {
+        assertThatThrownBy(() -> PathPrefixTrie.builder().include("auth/**"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PathPrefixTrie.builder().include(null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
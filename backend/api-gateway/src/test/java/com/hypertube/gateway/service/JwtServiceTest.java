@@ -0,0 +1,92 @@
+package com.hypertube.gateway.service;
+
+import com.hypertube.gateway.config.HypertubeGatewayProperties;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Key rotation: tokens signed by auth-service with the current or a previous key are
+ * accepted according to their kid header, an unknown kid is rejected
+ */
+class JwtServiceTest {
+
+    private static final String CURRENT_SECRET = "current-jwt-secret-key-hypertube-tests-256-bits";
+    private static final String PREVIOUS_SECRET = "previous-jwt-secret-key-hypertube-tests-256-bits";
+
+    private JwtService jwtService;
+
+    @BeforeEach
+    void setUp() {
+        var properties = new HypertubeGatewayProperties();
+        properties.getJwt().setSecret(CURRENT_SECRET);
+        properties.getJwt().setKeyId("k2");
+        properties.getJwt().setPreviousKeys("k1=" + PREVIOUS_SECRET);
+        jwtService = new JwtService(properties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void acceptsTokenSignedWithCurrentKey() {
+        assertThat(jwtService.verify(token(CURRENT_SECRET, "k2")).userId()).isEqualTo("42");
+    }
+
+    @Test
+    void acceptsTokenSignedWithPreviousKey() {
+        assertThat(jwtService.verify(token(PREVIOUS_SECRET, "k1")).userId()).isEqualTo("42");
+    }
+
+    @Test
+    void tokenWithoutKidIsVerifiedWithCurrentKey() {
+        assertThat(jwtService.validateToken(token(CURRENT_SECRET, null))).isTrue();
+        assertThat(jwtService.validateToken(token(PREVIOUS_SECRET, null))).isFalse();
+    }
+
+    @Test
+    void rejectsUnknownOrMismatchedKid() {
+        assertThatThrownBy(() -> jwtService.verify(token(PREVIOUS_SECRET, "k0")))
+                .isInstanceOf(JwtException.class);
+        assertThatThrownBy(() -> jwtService.verify(token(PREVIOUS_SECRET, "k2")))
+                .isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void issuedAtKeepsMillisecondsFromIatMsClaim() {
+        Instant issuedAt = Instant.ofEpochMilli(Instant.now().toEpochMilli() / 1000 * 1000 + 750);
+        String token = Jwts.builder()
+                .subject("42")
+                .claim("iat_ms", issuedAt.toEpochMilli())
+                .issuedAt(Date.from(issuedAt))
+                .expiration(Date.from(issuedAt.plusSeconds(300)))
+                .signWith(Keys.hmacShaKeyFor(CURRENT_SECRET.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+
+        assertThat(jwtService.verify(token).issuedAt()).isEqualTo(issuedAt);
+        // Sans iat_ms : iat standard, tronqué à la seconde
+        assertThat(jwtService.verify(token(CURRENT_SECRET, null)).issuedAt().getNano()).isZero();
+    }
+
+    // Comme JwtUtils d'auth-service : clé HMAC sur les octets UTF-8 du secret, kid dans l'en-tête
+    private static String token(String secret, String keyId) {
+        Instant now = Instant.now();
+        var builder = Jwts.builder()
+                .subject("42")
+                .claim("username", "bob")
+                .issuedAt(Date.from(now))
+                .expiration(Date.from(now.plusSeconds(300)))
+                .signWith(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)));
+        if (keyId != null) {
+            builder.header().keyId(keyId);
+        }
+        return builder.compact();
+    }
+}
@@ -0,0 +1,92 @@
+package com.hypertube.auth.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * DataSource qui mesure combien de temps chaque connexion reste empruntée au pool, par endpoint
+ * Timer auth.db.connection.hold{method, uri} : uri est le pattern Spring MVC ("/auth/signin"),
+ * UNKNOWN avant la résolution du handler (filtres OAuth2), none hors requête (tâches planifiées).
+ */
+public class TimedDataSource extends DelegatingDataSource {
+
+    private static final String METRIC = "auth.db.connection.hold";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public TimedDataSource(DataSource target, ObjectProvider<MeterRegistry> meterRegistry) {
+        super(target);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return timed(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return timed(super.getConnection(username, password));
+    }
+
+    private Connection timed(Connection connection) {
+        // Endpoint lu à l'emprunt : la connexion est rendue sur le même thread
+        String[] endpoint = currentEndpoint();
+        long acquiredAt = System.nanoTime();
+        AtomicBoolean released = new AtomicBoolean();
+
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> {
+                        if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+                            record(endpoint, System.nanoTime() - acquiredAt);
+                        }
+                        try {
+                            yield method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    }
+                });
+    }
+
+    private void record(String[] endpoint, long heldNanos) {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry == null) {
+            return;
+        }
+        Timer.builder(METRIC)
+                .description("Time a JDBC connection is held before being returned to the pool")
+                .tag("method", endpoint[0])
+                .tag("uri", endpoint[1])
+                .register(registry)
+                .record(heldNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static String[] currentEndpoint() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servletAttributes)) {
+            return new String[] {"none", "none"};
+        }
+        HttpServletRequest request = servletAttributes.getRequest();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return new String[] {request.getMethod(), pattern != null ? pattern.toString() : "UNKNOWN"};
+    }
+}
@@ -1,10 +1,16 @@
 package com.hypertube.auth.config;
 
+import com.hypertube.auth.security.BCryptStrengthCalibrator;
+import com.hypertube.auth.security.BoundedPasswordEncoder;
 import com.hypertube.auth.security.GatewayAuthenticationFilter;
+import com.hypertube.auth.security.GatewayIdentityVerifier;
 import com.hypertube.auth.security.OAuth2AuthenticationSuccessHandler;
+import com.hypertube.auth.security.RehashingAuthenticationProvider;
 import com.hypertube.auth.security.UserDetailsServiceImpl;
 import com.hypertube.auth.service.CustomOAuth2UserService;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -16,6 +22,7 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -24,12 +31,15 @@ import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import java.util.Arrays;
+import java.util.Map;
 
 @Configuration
 @EnableWebSecurity
 @EnableMethodSecurity(prePostEnabled = true)
 public class WebSecurityConfig {
 
+    private static final String BCRYPT_ID = "bcrypt";
+
     @Autowired
     UserDetailsServiceImpl userDetailsService;
 
@@ -39,16 +49,19 @@ public class WebSecurityConfig {
     @Autowired
     private OAuth2AuthenticationSuccessHandler oAuth2AuthenticationSuccessHandler;
 
+    @Autowired
+    private GatewayIdentityVerifier gatewayIdentityVerifier;
+
     @Bean
     public GatewayAuthenticationFilter gatewayAuthenticationFilter() {
-        return new GatewayAuthenticationFilter();
+        return new GatewayAuthenticationFilter(gatewayIdentityVerifier);
     }
 
     @Bean
-    public DaoAuthenticationProvider authenticationProvider() {
-        DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
+    public DaoAuthenticationProvider authenticationProvider(BoundedPasswordEncoder passwordEncoder) {
+        // Ré-hachage au login réussi quand le hash stocké est périmé (voir passwordEncoder)
+        DaoAuthenticationProvider authProvider = new RehashingAuthenticationProvider(passwordEncoder, userDetailsService);
         authProvider.setUserDetailsService(userDetailsService);
-        authProvider.setPasswordEncoder(passwordEncoder());
         return authProvider;
     }
 
@@ -57,13 +70,36 @@ public class WebSecurityConfig {
         return authConfig.getAuthenticationManager();
     }
 
+    /**
+     * Hashes préfixés par l'algorithme ("{bcrypt}$2a$12$..."), BCrypt au coût calibré au démarrage
+     * sur passwordHashTargetMs (ou fixé par passwordHashStrength), le tout sur un pool dédié borné
+     * (0 thread = nombre de cœurs). Les hashes sans préfixe, antérieurs, restent vérifiables ; eux
+     * et ceux d'un coût inférieur sont ré-hachés au login suivant.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder(MeterRegistry meterRegistry,
+                                                  @Value("${hypertube.app.passwordHashStrength:0}") int fixedStrength,
+                                                  @Value("${hypertube.app.passwordHashTargetMs:100}") long targetMs,
+                                                  @Value("${hypertube.app.passwordHashMinStrength:10}") int minStrength,
+                                                  @Value("${hypertube.app.passwordHashMaxStrength:14}") int maxStrength,
+                                                  @Value("${hypertube.app.passwordHashThreads:0}") int threads,
+                                                  @Value("${hypertube.app.passwordHashQueueCapacity:32}") int queueCapacity,
+                                                  @Value("${hypertube.app.passwordHashRetryAfterSeconds:1}") long retryAfterSeconds) {
+        int strength = fixedStrength > 0
+                ? fixedStrength
+                : BCryptStrengthCalibrator.calibrate(targetMs, minStrength, maxStrength);
+
+        Map<String, PasswordEncoder> encoders = Map.of(BCRYPT_ID, new BCryptPasswordEncoder(strength));
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(BCRYPT_ID, encoders);
+        // Hashes stockés avant les préfixes : BCrypt, le coût est lu dans le hash
+        delegating.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(delegating, poolSize, queueCapacity, retryAfterSeconds, meterRegistry);
     }
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, DaoAuthenticationProvider authenticationProvider) throws Exception {
         http.cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .csrf(AbstractHttpConfigurer::disable)
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
@@ -81,7 +117,7 @@ public class WebSecurityConfig {
                         .successHandler(oAuth2AuthenticationSuccessHandler)
                 );
 
-        http.authenticationProvider(authenticationProvider());
+        http.authenticationProvider(authenticationProvider);
         
         // Ajouter le filtre de la gateway avant le filtre d'authentification par défaut
         http.addFilterBefore(gatewayAuthenticationFilter(), UsernamePasswordAuthenticationFilter.class);
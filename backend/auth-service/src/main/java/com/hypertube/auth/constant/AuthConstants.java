@@ -39,6 +39,16 @@ public final class AuthConstants {
     public static final int PASSWORD_RESET_EXPIRY_HOURS = 24;
     public static final int REFRESH_TOKEN_EXPIRY_DAYS = 30;
     
+    // Révocation des tokens (partagé avec la gateway)
+    public static final String TOKEN_REVOCATION_CHANNEL = "hypertube:token-revocations";
+    public static final String REVOKED_USERS_KEY = "hypertube:revoked-users";
+    // Émission du token en millisecondes : iat est à la seconde, trop grossier face à une révocation
+    public static final String ISSUED_AT_MS_CLAIM = "iat_ms";
+    
+    // Cache des utilisateurs (entre instances d'auth-service)
+    public static final String USER_CACHE_KEY_PREFIX = "hypertube:users:";
+    public static final String USER_INVALIDATION_CHANNEL = "hypertube:user-invalidations";
+    
     private AuthConstants() {
         // Empêcher l'instanciation
     }
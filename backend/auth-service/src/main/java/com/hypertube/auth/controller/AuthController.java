@@ -1,7 +1,7 @@
 package com.hypertube.auth.controller;
 
 import com.hypertube.auth.dto.*;
-import com.hypertube.auth.entity.User;
+import com.hypertube.auth.security.ParsedToken;
 import com.hypertube.auth.security.UserDetailsImpl;
 import com.hypertube.auth.service.AuthService;
 import com.hypertube.auth.service.TokenService;
@@ -13,6 +13,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 /**
@@ -106,11 +107,9 @@ public class AuthController {
     public ResponseEntity<MessageResponse> validateToken(@RequestParam String token) {
         logger.debug("Token validation request");
         
-        if (tokenService.validateToken(token)) {
-            String username = tokenService.getUsernameFromToken(token);
-            User user = authService.findByUsername(username);
-            
-            return ResponseEntity.ok(new MessageResponse("Token valid for user: " + user.getUsername()));
+        Optional<ParsedToken> parsed = tokenService.validateToken(token);
+        if (parsed.isPresent()) {
+            return ResponseEntity.ok(new MessageResponse("Token valid for user: " + parsed.get().getUsername()));
         }
         
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
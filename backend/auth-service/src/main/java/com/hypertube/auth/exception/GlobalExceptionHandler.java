@@ -3,6 +3,7 @@ package com.hypertube.auth.exception;
 import com.hypertube.auth.dto.MessageResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -35,6 +36,14 @@ public class GlobalExceptionHandler {
                 .body(new MessageResponse("Error: " + ex.getMessage()));
     }
     
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<MessageResponse> handleServiceBusy(ServiceBusyException ex) {
+        logger.warn("Service busy: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(new MessageResponse("Error: Service busy, please retry later"));
+    }
+    
     @ExceptionHandler(BadCredentialsException.class)
     public ResponseEntity<MessageResponse> handleBadCredentials(BadCredentialsException ex) {
         logger.warn("Bad credentials: {}", ex.getMessage());
@@ -0,0 +1,19 @@
+package com.hypertube.auth.exception;
+
+/**
+ * Capacité saturée (file du hachage des mots de passe pleine) : à retenter plus tard
+ * Rendue en 503 avec un en-tête Retry-After par GlobalExceptionHandler.
+ */
+public class ServiceBusyException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceBusyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
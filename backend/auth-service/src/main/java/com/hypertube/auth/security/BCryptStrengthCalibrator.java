@@ -0,0 +1,59 @@
+package com.hypertube.auth.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Choisit au démarrage le coût BCrypt le plus élevé dont un hachage tient dans le budget visé
+ * sur la machine courante. Chaque coût double le temps : on mesure en montant depuis le plancher
+ * et on s'arrête au premier coût qui dépasse. Le plancher s'applique même sur une machine lente.
+ */
+public final class BCryptStrengthCalibrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(BCryptStrengthCalibrator.class);
+
+    private static final int SAMPLES = 3;
+    private static final String SAMPLE_PASSWORD = "hypertube-calibration";
+
+    private BCryptStrengthCalibrator() {
+    }
+
+    public static int calibrate(long targetMs, int minStrength, int maxStrength) {
+        // Premier passage non mesuré : chargement des classes et JIT
+        new BCryptPasswordEncoder(minStrength).encode(SAMPLE_PASSWORD);
+
+        int selected = minStrength;
+        long selectedMs = measure(minStrength);
+        for (int strength = minStrength + 1; strength <= maxStrength && selectedMs <= targetMs; strength++) {
+            long elapsedMs = measure(strength);
+            logger.debug("BCrypt strength {}: {} ms", strength, elapsedMs);
+            if (elapsedMs > targetMs) {
+                break;
+            }
+            selected = strength;
+            selectedMs = elapsedMs;
+        }
+
+        logger.info("BCrypt strength {} selected ({} ms per hash, target {} ms)", selected, selectedMs, targetMs);
+        return selected;
+    }
+
+    /**
+     * Médiane de quelques hachages, pour ignorer une pause GC ou un voisin bruyant
+     */
+    private static long measure(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.encode(SAMPLE_PASSWORD);
+            samples[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+        Arrays.sort(samples);
+        return samples[SAMPLES / 2];
+    }
+}
@@ -0,0 +1,33 @@
+package com.hypertube.auth.security;
+
+import com.hypertube.auth.entity.User;
+
+/**
+ * Instantané d'un utilisateur conservé par UserCacheService (local et Redis)
+ * Uniquement les champs nécessaires à UserDetailsImpl ; le mot de passe est le hash BCrypt,
+ * null dans les instantanés venus de Redis qui ne le contient jamais.
+ */
+public record CachedUser(Long id, String username, String email, String password) {
+
+    public static CachedUser from(User user) {
+        return new CachedUser(user.getId(), user.getUsername(), user.getEmail(), user.getPassword());
+    }
+
+    /**
+     * Identité seule, pour le niveau partagé
+     */
+    public CachedUser withoutPassword() {
+        return password == null ? this : new CachedUser(id, username, email, null);
+    }
+
+    public boolean hasPassword() {
+        return password != null;
+    }
+
+    /**
+     * Vrai si l'instantané correspond encore à l'identifiant de connexion (username ou email)
+     */
+    public boolean matches(String login) {
+        return login.equals(username) || login.equals(email);
+    }
+}
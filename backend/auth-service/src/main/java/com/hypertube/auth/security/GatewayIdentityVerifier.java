@@ -0,0 +1,108 @@
+package com.hypertube.auth.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+/**
+ * Vérifie l'assertion X-Gateway-Assertion signée par la gateway (IdentityAssertionSigner)
+ * Format : "v1." + expiresAtMillis + "." + base64url(HMAC-SHA256) sur
+ * "v1\n" + expiresAt + "\n" + X-User-Id + "\n" + X-Username + "\n" + X-User-Email + "\n" + X-User-Roles,
+ * un octet par caractère, tels que les en-têtes sont lus par le conteneur (ISO-8859-1) ;
+ * la gateway envoie '?' pour un caractère hors Latin-1.
+ */
+@Component
+public class GatewayIdentityVerifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(GatewayIdentityVerifier.class);
+
+    public static final String HEADER = "X-Gateway-Assertion";
+    private static final String VERSION = "v1";
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+    private final long clockSkewMs;
+    // Mac n'est pas thread-safe : une instance par thread Tomcat
+    private final ThreadLocal<Mac> macs;
+
+    public GatewayIdentityVerifier(@Value("${hypertube.app.gatewayIdentitySecret}") String secret,
+                                   @Value("${hypertube.app.gatewayIdentityClockSkewMs:5000}") long clockSkewMs) {
+        byte[] secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+        if (secretBytes.length < 32) {
+            throw new IllegalStateException("hypertube.app.gatewayIdentitySecret must be at least 32 bytes");
+        }
+        this.key = new SecretKeySpec(secretBytes, ALGORITHM);
+        this.clockSkewMs = clockSkewMs;
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    /**
+     * Vrai si l'assertion couvre exactement ces en-têtes et n'a pas expiré
+     */
+    public boolean verify(String assertion, String userId, String username, String email, String roles) {
+        if (assertion == null || userId == null || username == null || email == null || roles == null) {
+            return false;
+        }
+        int first = assertion.indexOf('.');
+        int second = assertion.indexOf('.', first + 1);
+        if (first < 0 || second < 0 || !VERSION.equals(assertion.substring(0, first))) {
+            return false;
+        }
+
+        String expiresAt = assertion.substring(first + 1, second);
+        try {
+            if (Long.parseLong(expiresAt) + clockSkewMs < System.currentTimeMillis()) {
+                logger.debug("Expired gateway assertion for user ID: {}", userId);
+                return false;
+            }
+            byte[] signature = Base64.getUrlDecoder().decode(assertion.substring(second + 1));
+            byte[] expected = macs.get().doFinal(message(expiresAt, userId, username, email, roles));
+            // Comparaison en temps constant
+            return MessageDigest.isEqual(expected, signature);
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException ou Base64 invalide
+            return false;
+        }
+    }
+
+    private static byte[] message(String... fields) {
+        int length = VERSION.length();
+        for (String field : fields) {
+            length += 1 + field.length();
+        }
+        byte[] out = new byte[length];
+        int pos = put(VERSION, out, 0);
+        for (String field : fields) {
+            out[pos++] = '\n';
+            pos = put(field, out, pos);
+        }
+        return out;
+    }
+
+    private static int put(String value, byte[] out, int pos) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            // Même règle que la gateway : un caractère hors Latin-1 est arrivé en '?'
+            out[pos++] = (byte) (c > 0xFF ? '?' : c);
+        }
+        return pos;
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 unavailable", e);
+        }
+    }
+}
@@ -1,35 +1,75 @@
 package com.hypertube.auth.security;
 
+import com.hypertube.auth.constant.AuthConstants;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SecurityException;
+import io.jsonwebtoken.security.SignatureException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
+/**
+ * Émission et vérification des JWT
+ *
+ * Les clés et le parser (thread-safe) sont construits une seule fois. Rotation des clés :
+ * les tokens sont signés avec la clé courante et portent son identifiant dans l'en-tête kid
+ * (hypertube.app.jwtKeyId) ; les clés précédentes (hypertube.app.jwtPreviousKeys, "kid=secret,...")
+ * restent acceptées en vérification jusqu'à l'expiration des tokens qu'elles ont signés.
+ * Un token sans kid est vérifié avec la clé courante.
+ */
 @Component
 public class JwtUtils {
     
     private static final Logger logger = LoggerFactory.getLogger(JwtUtils.class);
 
-    @Value("${hypertube.app.jwtSecret}")
-    private String jwtSecret;
-
-    @Value("${hypertube.app.jwtExpirationMs}")
-    private int jwtExpirationMs;
-
-    @Value("${hypertube.app.jwtRefreshExpirationMs}")
-    private long jwtRefreshExpirationMs;
+    private final int jwtExpirationMs;
+    private final long jwtRefreshExpirationMs;
+
+    private final String currentKeyId;
+    private final SecretKey currentKey;
+    private final Map<String, SecretKey> verificationKeys;
+    private final JwtParser parser;
+
+    public JwtUtils(@Value("${hypertube.app.jwtSecret}") String jwtSecret,
+                    @Value("${hypertube.app.jwtExpirationMs}") int jwtExpirationMs,
+                    @Value("${hypertube.app.jwtRefreshExpirationMs}") long jwtRefreshExpirationMs,
+                    @Value("${hypertube.app.jwtKeyId:}") String jwtKeyId,
+                    @Value("${hypertube.app.jwtPreviousKeys:}") String jwtPreviousKeys) {
+        this.jwtExpirationMs = jwtExpirationMs;
+        this.jwtRefreshExpirationMs = jwtRefreshExpirationMs;
+
+        this.currentKeyId = StringUtils.hasText(jwtKeyId) ? jwtKeyId.trim() : null;
+        this.currentKey = signingKey(jwtSecret);
+        this.verificationKeys = parsePreviousKeys(jwtPreviousKeys);
+        if (currentKeyId != null) {
+            verificationKeys.put(currentKeyId, currentKey);
+        }
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    // jjwt 0.11 déclare ce paramètre en type brut : JwsHeader<?> ne serait pas une redéfinition
+                    @SuppressWarnings("rawtypes")
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        return resolveKey(header.getKeyId());
+                    }
+                })
+                .build();
+
+        logger.info("JWT signing key loaded (kid: {}, previous keys: {})",
+                currentKeyId, verificationKeys.keySet());
     }
 
     public String generateJwtToken(UserDetailsImpl userDetails) {
@@ -49,64 +89,27 @@ public class JwtUtils {
             .map(auth -> auth.getAuthority())
             .collect(Collectors.joining(", ")));
 
-        return Jwts.builder()
+        Date now = new Date();
+        claims.put(AuthConstants.ISSUED_AT_MS_CLAIM, now.getTime());
+        JwtBuilder builder = Jwts.builder()
                 .setClaims(claims)
                 .setSubject(String.valueOf(userDetails.getId()))
-                .setIssuedAt(new Date())
-                .setExpiration(new Date((new Date()).getTime() + expirationMs))
-                .signWith(getSigningKey())
-                .compact();
-    }
-
-    public String getUserNameFromJwtToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .get("username", String.class);
-    }
-
-    public Long getUserIdFromJwtToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .get("id", Long.class);
-    }
-
-    public String getEmailFromJwtToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .get("email", String.class);
-    }
-
-    @SuppressWarnings("unchecked")
-    public List<String> getRolesFromJwtToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        
-        List<?> rolesList = claims.get("roles", List.class);
-        if (rolesList == null) {
-            return List.of();
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + expirationMs))
+                .signWith(currentKey);
+        if (currentKeyId != null) {
+            builder.setHeaderParam(JwsHeader.KEY_ID, currentKeyId);
         }
-        
-        return rolesList.stream()
-                .map(Object::toString)
-                .collect(Collectors.toList());
+        return builder.compact();
     }
 
-    public boolean validateJwtToken(String authToken) {
+    /**
+     * Vérifie la signature et l'expiration une seule fois ; vide si le token est invalide
+     */
+    public Optional<ParsedToken> parseJwtToken(String authToken) {
         try {
-            Jwts.parserBuilder().setSigningKey(getSigningKey()).build().parseClaimsJws(authToken);
-            return true;
+            Jws<Claims> jws = parser.parseClaimsJws(authToken);
+            return Optional.of(new ParsedToken(jws.getHeader().getKeyId(), jws.getBody()));
         } catch (SecurityException e) {
             logger.error("Invalid JWT signature: {}", e.getMessage());
         } catch (MalformedJwtException e) {
@@ -118,15 +121,43 @@ public class JwtUtils {
         } catch (IllegalArgumentException e) {
             logger.error("JWT claims string is empty: {}", e.getMessage());
         }
-        return false;
+        return Optional.empty();
     }
 
-    public Date getExpirationFromJwtToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getExpiration();
+    public boolean validateJwtToken(String authToken) {
+        return parseJwtToken(authToken).isPresent();
+    }
+
+    private Key resolveKey(String keyId) {
+        if (keyId == null) {
+            return currentKey;
+        }
+        SecretKey key = verificationKeys.get(keyId);
+        if (key == null) {
+            throw new SignatureException("Unknown JWT key id: " + keyId);
+        }
+        return key;
+    }
+
+    private static SecretKey signingKey(String secret) {
+        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * "kid1=secret1,kid2=secret2" ; le secret peut contenir '=' mais pas ','
+     */
+    private static Map<String, SecretKey> parsePreviousKeys(String value) {
+        Map<String, SecretKey> keys = new HashMap<>();
+        if (!StringUtils.hasText(value)) {
+            return keys;
+        }
+        for (String entry : value.split(",")) {
+            int separator = entry.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalStateException("hypertube.app.jwtPreviousKeys entries must be kid=secret");
+            }
+            keys.put(entry.substring(0, separator).trim(), signingKey(entry.substring(separator + 1).trim()));
+        }
+        return keys;
     }
-} 
\ No newline at end of file
+}
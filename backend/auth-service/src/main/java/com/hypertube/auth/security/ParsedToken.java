@@ -0,0 +1,68 @@
+package com.hypertube.auth.security;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Token JWT dont la signature a été vérifiée une fois par JwtUtils.parseJwtToken
+ * Expose les claims typés sans reparser le token.
+ */
+public final class ParsedToken {
+
+    private final String keyId;
+    private final Claims claims;
+
+    ParsedToken(String keyId, Claims claims) {
+        this.keyId = keyId;
+        this.claims = claims;
+    }
+
+    /**
+     * Identifiant de la clé de signature (en-tête kid), null pour les tokens émis sans kid
+     */
+    public String getKeyId() {
+        return keyId;
+    }
+
+    public Long getUserId() {
+        return claims.get("id", Long.class);
+    }
+
+    public String getUsername() {
+        return claims.get("username", String.class);
+    }
+
+    public String getEmail() {
+        return claims.get("email", String.class);
+    }
+
+    /**
+     * Rôles du token ; émis sous forme de chaîne "ROLE_A, ROLE_B", une liste est aussi acceptée
+     */
+    public List<String> getRoles() {
+        Object roles = claims.get("roles");
+        if (roles instanceof Collection<?> collection) {
+            return collection.stream().map(Object::toString).collect(Collectors.toList());
+        }
+        if (roles instanceof String value && !value.isBlank()) {
+            return Arrays.stream(value.split(","))
+                    .map(String::trim)
+                    .filter(role -> !role.isEmpty())
+                    .collect(Collectors.toList());
+        }
+        return List.of();
+    }
+
+    public Date getIssuedAt() {
+        return claims.getIssuedAt();
+    }
+
+    public Date getExpiration() {
+        return claims.getExpiration();
+    }
+}
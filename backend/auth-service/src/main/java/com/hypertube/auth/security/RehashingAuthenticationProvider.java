@@ -0,0 +1,48 @@
+package com.hypertube.auth.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+
+import java.util.Optional;
+
+/**
+ * DaoAuthenticationProvider dont le ré-hachage au login est facultatif
+ *
+ * Celui de DaoAuthenticationProvider appelle encode() après la vérification du mot de passe :
+ * file de hachage pleine entre-temps, un login valide finirait en 503. Ici le ré-hachage est
+ * simplement sauté (nouvelle tentative au login suivant) et l'utilisateur reste authentifié.
+ */
+public class RehashingAuthenticationProvider extends DaoAuthenticationProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(RehashingAuthenticationProvider.class);
+
+    private final BoundedPasswordEncoder passwordEncoder;
+    private final UserDetailsPasswordService passwordService;
+
+    public RehashingAuthenticationProvider(BoundedPasswordEncoder passwordEncoder,
+                                           UserDetailsPasswordService passwordService) {
+        this.passwordEncoder = passwordEncoder;
+        this.passwordService = passwordService;
+        // Pas de setUserDetailsPasswordService : le ré-hachage de la classe parente reste désactivé
+        setPasswordEncoder(passwordEncoder);
+    }
+
+    @Override
+    protected Authentication createSuccessAuthentication(Object principal, Authentication authentication,
+                                                         UserDetails user) {
+        UserDetails authenticated = user;
+        if (passwordEncoder.upgradeEncoding(user.getPassword())) {
+            Optional<String> newPassword = passwordEncoder.tryEncode(authentication.getCredentials().toString());
+            if (newPassword.isPresent()) {
+                authenticated = passwordService.updatePassword(user, newPassword.get());
+            } else {
+                logger.debug("Password rehash skipped for {}: hashing queue full", user.getUsername());
+            }
+        }
+        return super.createSuccessAuthentication(principal, authentication, authenticated);
+    }
+}
@@ -42,13 +42,17 @@ public class UserDetailsImpl implements UserDetails, OAuth2User {
     }
 
     public static UserDetailsImpl build(User user) {
+        return build(CachedUser.from(user));
+    }
+
+    public static UserDetailsImpl build(CachedUser user) {
         List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
 
         return new UserDetailsImpl(
-                user.getId(),
-                user.getUsername(),
-                user.getEmail(),
-                user.getPassword(),
+                user.id(),
+                user.username(),
+                user.email(),
+                user.password(),
                 authorities);
     }
 
@@ -1,27 +1,52 @@
 package com.hypertube.auth.security;
 
-import com.hypertube.auth.entity.User;
 import com.hypertube.auth.repository.UserRepository;
+import com.hypertube.auth.service.UserCacheService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserDetailsServiceImpl.class);
     
+    @Autowired
+    UserCacheService userCacheService;
+
     @Autowired
     UserRepository userRepository;
 
     @Override
-    @Transactional
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
-                .or(() -> userRepository.findByEmail(username))
+        // Authentification : hash du cache local, sinon de la base (jamais de Redis)
+        return userCacheService.findCredentials(username)
+                .map(UserDetailsImpl::build)
                 .orElseThrow(() -> new UsernameNotFoundException("User Not Found with username: " + username));
+    }
 
-        return UserDetailsImpl.build(user);
+    /**
+     * Appelé par DaoAuthenticationProvider après un login réussi dont le hash doit être mis à niveau
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        UserDetailsImpl details = (UserDetailsImpl) user;
+        try {
+            userRepository.updatePassword(details.getId(), newPassword);
+            userCacheService.evict(details.getId(), details.getUsername(), details.getEmail());
+            logger.debug("Upgraded password hash for user ID: {}", details.getId());
+        } catch (DataAccessException e) {
+            // Le login reste valide ; nouvelle tentative à la prochaine connexion
+            logger.warn("Could not upgrade password hash for user ID {}: {}", details.getId(), e.getMessage());
+            return user;
+        }
+        return new UserDetailsImpl(details.getId(), details.getUsername(), details.getEmail(),
+                newPassword, details.getAuthorities());
     }
-} 
\ No newline at end of file
+}
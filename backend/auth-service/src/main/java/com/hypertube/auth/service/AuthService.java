@@ -17,7 +17,9 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -25,9 +27,10 @@ import java.util.stream.Collectors;
 
 /**
  * Service principal d'authentification refactorisé pour une meilleure maintenabilité
+ * Pas de transaction au niveau de la classe : BCrypt, la signature des tokens et l'envoi d'emails
+ * se font hors transaction, une connexion n'est prise que le temps des requêtes SQL.
  */
 @Service
-@Transactional
 public class AuthService {
     
     private static final Logger logger = LoggerFactory.getLogger(AuthService.class);
@@ -39,6 +42,8 @@ public class AuthService {
     private final TokenService tokenService;
     private final UserValidationService userValidationService;
     private final JwtUtils jwtUtils;
+    private final UserCacheService userCacheService;
+    private final TransactionTemplate transactionTemplate;
     
     public AuthService(
             AuthenticationManager authenticationManager,
@@ -47,7 +52,9 @@ public class AuthService {
             EmailService emailService,
             TokenService tokenService,
             UserValidationService userValidationService,
-            JwtUtils jwtUtils) {
+            JwtUtils jwtUtils,
+            UserCacheService userCacheService,
+            PlatformTransactionManager transactionManager) {
         
         this.authenticationManager = authenticationManager;
         this.userRepository = userRepository;
@@ -56,6 +63,8 @@ public class AuthService {
         this.tokenService = tokenService;
         this.userValidationService = userValidationService;
         this.jwtUtils = jwtUtils;
+        this.userCacheService = userCacheService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
     
     /**
@@ -64,6 +73,7 @@ public class AuthService {
     public JwtResponse authenticateUser(LoginRequest loginRequest) {
         logger.debug("Authenticating user: {}", loginRequest.getUsernameOrEmail());
         
+        // Utilisateur lu via le cache : la base n'est touchée qu'en cas d'absence ou de ré-hachage
         Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(
                     loginRequest.getUsernameOrEmail(), 
@@ -104,13 +114,13 @@ public class AuthService {
             signUpRequest.getEmail()
         );
         
-        // Création de l'utilisateur
+        // Création de l'utilisateur (hachage hors transaction), puis un seul INSERT
         User user = createNewUser(signUpRequest);
         configureEmailVerification(user);
         
         userRepository.save(user);
         
-        // Envoi email si configuré
+        // Envoi email si configuré, connexion déjà rendue
         boolean isEmailConfigured = emailService.isMailConfigured();
         if (isEmailConfigured) {
             emailService.sendVerificationEmail(user);
@@ -147,6 +157,7 @@ public class AuthService {
     /**
      * Vérifie l'email d'un utilisateur
      */
+    @Transactional
     public MessageResponse verifyEmail(String token) {
         logger.debug("Verifying email with token");
         
@@ -163,6 +174,7 @@ public class AuthService {
         user.setEmailVerificationToken(null);
         user.setEmailVerificationTokenExpiry(null);
         userRepository.save(user);
+        userCacheService.evict(user);
         
         logger.info("Email verified for user: {}", user.getUsername());
         return new MessageResponse(AuthConstants.MSG_EMAIL_VERIFIED);
@@ -181,6 +193,7 @@ public class AuthService {
         user.setPasswordResetTokenExpiry(LocalDateTime.now().plusHours(AuthConstants.PASSWORD_RESET_EXPIRY_HOURS));
         userRepository.save(user);
         
+        // SMTP hors transaction
         emailService.sendPasswordResetEmail(user, resetToken);
         
         logger.info("Password reset email sent to: {}", request.getEmail());
@@ -202,12 +215,19 @@ public class AuthService {
             );
         }
         
-        user.setPassword(passwordEncoder.encode(request.getNewPassword()));
-        user.setPasswordResetToken(null);
-        user.setPasswordResetTokenExpiry(null);
-        userRepository.save(user);
+        // Hachage avant d'ouvrir la transaction
+        String encodedPassword = passwordEncoder.encode(request.getNewPassword());
+        
+        transactionTemplate.executeWithoutResult(status -> {
+            user.setPassword(encodedPassword);
+            user.setPasswordResetToken(null);
+            user.setPasswordResetTokenExpiry(null);
+            userRepository.save(user);
+            // L'ancien hash ne doit plus être servi par le cache
+            userCacheService.evict(user);
+        });
         
-        // Déconnecter toutes les sessions
+        // Déconnecter toutes les sessions, hors de la transaction (publication Redis)
         tokenService.deactivateAllUserSessions(user.getId());
         
         logger.info("Password reset successfully for user: {}", user.getUsername());
@@ -25,6 +25,9 @@ public class CustomOAuth2UserService extends DefaultOAuth2UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private UserCacheService userCacheService;
+
     @Override
     public OAuth2User loadUser(OAuth2UserRequest userRequest) throws OAuth2AuthenticationException {
         OAuth2User oauth2User = super.loadUser(userRequest);
@@ -67,7 +70,9 @@ public class CustomOAuth2UserService extends DefaultOAuth2UserService {
             user = registerNewUser(registrationId, userInfo);
         }
 
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userCacheService.evict(saved);
+        return saved;
     }
 
     private User registerNewUser(String registrationId, OAuth2UserInfo userInfo) {
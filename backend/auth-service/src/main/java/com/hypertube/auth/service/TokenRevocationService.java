@@ -0,0 +1,52 @@
+package com.hypertube.auth.service;
+
+import com.hypertube.auth.constant.AuthConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+
+/**
+ * Publie les révocations de tokens vers la gateway
+ * Chaque révocation invalide tous les access tokens d'un utilisateur émis jusqu'à cet instant, en
+ * millisecondes, comparé au claim iat_ms des tokens : un login juste après la révocation reste valide.
+ * Le sorted set sert aux gateways qui (re)démarrent, le canal pub/sub à la propagation immédiate.
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${hypertube.app.jwtExpirationMs}")
+    private long jwtExpirationMs;
+
+    public TokenRevocationService(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * Révoque tous les access tokens déjà émis pour cet utilisateur
+     */
+    public void revokeAllUserTokens(Long userId) {
+        long revokedAt = Instant.now().toEpochMilli();
+        String member = String.valueOf(userId);
+
+        try {
+            redisTemplate.opsForZSet().add(AuthConstants.REVOKED_USERS_KEY, member, revokedAt);
+            // Au-delà de la durée de vie d'un access token, l'entrée ne sert plus à rien
+            redisTemplate.opsForZSet().removeRangeByScore(AuthConstants.REVOKED_USERS_KEY,
+                    0, revokedAt - jwtExpirationMs);
+            redisTemplate.convertAndSend(AuthConstants.TOKEN_REVOCATION_CHANNEL, member + ":" + revokedAt);
+            logger.debug("Revoked access tokens for user ID: {}", userId);
+        } catch (DataAccessException e) {
+            // Les sessions sont désactivées en base ; seuls les access tokens restent valides jusqu'à expiration
+            logger.warn("Could not publish token revocation for user ID {}: {}", userId, e.getMessage());
+        }
+    }
+}
@@ -6,40 +6,49 @@ import com.hypertube.auth.entity.UserSession;
 import com.hypertube.auth.exception.AuthException;
 import com.hypertube.auth.repository.UserSessionRepository;
 import com.hypertube.auth.security.JwtUtils;
+import com.hypertube.auth.security.ParsedToken;
 import com.hypertube.auth.security.UserDetailsImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
  * Service spécialisé pour la gestion des tokens et sessions
+ * Les transactions n'entourent que les accès base : signature JWT et publication Redis en dehors.
  */
 @Service
-@Transactional
 public class TokenService {
     
     private static final Logger logger = LoggerFactory.getLogger(TokenService.class);
     
     private final UserSessionRepository sessionRepository;
     private final JwtUtils jwtUtils;
-    private final UserDetailsService userDetailsService;
+    private final TokenRevocationService tokenRevocationService;
+    private final UserCacheService userCacheService;
+    private final TransactionTemplate transactionTemplate;
     
-    public TokenService(UserSessionRepository sessionRepository, JwtUtils jwtUtils, UserDetailsService userDetailsService) {
+    public TokenService(UserSessionRepository sessionRepository, JwtUtils jwtUtils,
+                        TokenRevocationService tokenRevocationService, UserCacheService userCacheService,
+                        PlatformTransactionManager transactionManager) {
         this.sessionRepository = sessionRepository;
         this.jwtUtils = jwtUtils;
-        this.userDetailsService = userDetailsService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.userCacheService = userCacheService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
     
     /**
      * Crée une nouvelle session utilisateur avec refresh token
      */
     public UserSession createUserSession(User user) {
-        UserDetailsImpl userDetails = (UserDetailsImpl) userDetailsService.loadUserByUsername(user.getUsername());
+        UserDetailsImpl userDetails = loadUser(user.getUsername());
         String refreshToken = jwtUtils.generateRefreshToken(userDetails);
         LocalDateTime expiresAt = LocalDateTime.now().plusDays(AuthConstants.REFRESH_TOKEN_EXPIRY_DAYS);
         
@@ -54,7 +63,7 @@ public class TokenService {
      * Génère un nouveau JWT pour l'utilisateur
      */
     public String generateAccessToken(String username) {
-        UserDetailsImpl userDetails = (UserDetailsImpl) userDetailsService.loadUserByUsername(username);
+        UserDetailsImpl userDetails = loadUser(username);
         return jwtUtils.generateJwtToken(userDetails);
     }
     
@@ -62,27 +71,44 @@ public class TokenService {
      * Valide et renouvelle un refresh token
      */
     public String renewAccessToken(String refreshToken) {
-        UserSession session = sessionRepository.findByToken(refreshToken)
-                .orElseThrow(() -> new AuthException(
-                    AuthConstants.MSG_REFRESH_TOKEN_NOT_FOUND, 
-                    AuthConstants.INVALID_TOKEN
-                ));
+        // Vide si la session a expiré : la suppression est validée avant de lever l'exception
+        Optional<String> username = transactionTemplate.execute(status -> {
+            UserSession session = sessionRepository.findByToken(refreshToken)
+                    .orElseThrow(() -> new AuthException(
+                        AuthConstants.MSG_REFRESH_TOKEN_NOT_FOUND, 
+                        AuthConstants.INVALID_TOKEN
+                    ));
+            
+            if (session.getExpiresAt().isBefore(LocalDateTime.now())) {
+                sessionRepository.delete(session);
+                return Optional.<String>empty();
+            }
+            return Optional.of(session.getUser().getUsername());
+        });
         
-        if (session.getExpiresAt().isBefore(LocalDateTime.now())) {
-            sessionRepository.delete(session);
+        if (username.isEmpty()) {
             throw new AuthException(
                 AuthConstants.MSG_REFRESH_TOKEN_EXPIRED, 
                 AuthConstants.TOKEN_EXPIRED
             );
         }
         
-        UserDetailsImpl userDetails = (UserDetailsImpl) userDetailsService.loadUserByUsername(session.getUser().getUsername());
+        UserDetailsImpl userDetails = loadUser(username.get());
         String newAccessToken = jwtUtils.generateJwtToken(userDetails);
-        logger.debug("Renewed access token for user: {}", session.getUser().getUsername());
+        logger.debug("Renewed access token for user: {}", username.get());
         
         return newAccessToken;
     }
     
+    /**
+     * Utilisateur pour signer un JWT : l'identité suffit, le cache partagé évite la base
+     */
+    private UserDetailsImpl loadUser(String username) {
+        return userCacheService.findByLogin(username)
+                .map(UserDetailsImpl::build)
+                .orElseThrow(() -> new UsernameNotFoundException("User Not Found with username: " + username));
+    }
+
     /**
      * Génère un token de vérification email
      */
@@ -98,24 +124,22 @@ public class TokenService {
     }
     
     /**
-     * Désactive toutes les sessions d'un utilisateur
+     * Désactive toutes les sessions d'un utilisateur et révoque ses access tokens à la gateway
+     * À appeler hors transaction : la révocation est publiée une fois la désactivation validée
      */
     public void deactivateAllUserSessions(Long userId) {
-        sessionRepository.deactivateAllUserSessions(userId);
+        transactionTemplate.executeWithoutResult(status -> sessionRepository.deactivateAllUserSessions(userId));
+        tokenRevocationService.revokeAllUserTokens(userId);
         logger.debug("Deactivated all sessions for user ID: {}", userId);
     }
     
     /**
-     * Valide un JWT token
-     */
-    public boolean validateToken(String token) {
-        return jwtUtils.validateJwtToken(token);
-    }
-    
-    /**
-     * Extrait le nom d'utilisateur d'un JWT token
+     * Valide un JWT token (signature vérifiée une seule fois) dont l'utilisateur existe encore,
+     * contrôlé via le cache utilisateurs plutôt qu'en base
      */
-    public String getUsernameFromToken(String token) {
-        return jwtUtils.getUserNameFromJwtToken(token);
+    public Optional<ParsedToken> validateToken(String token) {
+        return jwtUtils.parseJwtToken(token)
+                .filter(parsed -> parsed.getUsername() != null
+                        && userCacheService.findByLogin(parsed.getUsername()).isPresent());
     }
 } 
\ No newline at end of file
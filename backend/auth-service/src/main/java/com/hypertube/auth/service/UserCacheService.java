@@ -0,0 +1,262 @@
+package com.hypertube.auth.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hypertube.auth.constant.AuthConstants;
+import com.hypertube.auth.entity.User;
+import com.hypertube.auth.repository.UserRepository;
+import com.hypertube.auth.security.CachedUser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Cache à deux niveaux des utilisateurs chargés par identifiant de connexion (username ou email)
+ * Niveau 1 : Caffeine local, borné en taille avec un TTL court, indexé par id (un index
+ * login -> id le complète) pour être vidé par clé. Niveau 2 : Redis, partagé entre instances.
+ * Le hash du mot de passe ne va jamais dans Redis : une invalidation ratée y laisserait l'ancien
+ * mot de passe valable jusqu'au TTL Redis. findCredentials le prend dans le niveau local, sinon
+ * en base ; findByLogin se contente de l'identité.
+ * Une modification de User remplace les clés Redis par une marque de suppression puis publie
+ * l'id sur un canal pub/sub, sur lequel chaque instance vide son niveau local. La marque, et
+ * l'écriture en SETNX, empêchent une lecture commencée avant le commit de remettre l'ancienne
+ * ligne dans Redis. Le TTL local borne l'obsolescence si un message est perdu.
+ * Redis indisponible : lecture directe en base.
+ */
+@Service
+public class UserCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserCacheService.class);
+
+    private static final String TOMBSTONE = "evicted";
+    private static final Duration TOMBSTONE_TTL = Duration.ofSeconds(10);
+
+    private final UserRepository userRepository;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final StringRedisTemplate stringRedisTemplate; // pub/sub, messages en texte brut
+    private final Cache<Long, CachedUser> localUsers;
+    private final Cache<String, Long> localLogins; // username ou email -> id
+    private final Duration redisTtl;
+
+    private final Counter localHits;
+    private final Counter localMisses;
+    private final Counter redisHits;
+    private final Counter redisMisses;
+    private final Timer redisLoadTimer;
+    private final Timer databaseLoadTimer;
+
+    public UserCacheService(UserRepository userRepository,
+                            RedisTemplate<String, Object> redisTemplate,
+                            StringRedisTemplate stringRedisTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${hypertube.app.userCacheLocalMaxSize:10000}") long localMaxSize,
+                            @Value("${hypertube.app.userCacheLocalTtlMs:60000}") long localTtlMs,
+                            @Value("${hypertube.app.userCacheRedisTtlMs:900000}") long redisTtlMs) {
+        this.userRepository = userRepository;
+        this.redisTemplate = redisTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redisTtl = Duration.ofMillis(redisTtlMs);
+        this.localUsers = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(Duration.ofMillis(localTtlMs))
+                .recordStats()
+                .build();
+        // Deux logins par utilisateur ; une entrée orpheline (utilisateur évincé) n'est qu'un défaut de cache
+        this.localLogins = Caffeine.newBuilder()
+                .maximumSize(localMaxSize * 2)
+                .expireAfterWrite(Duration.ofMillis(localTtlMs))
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, localUsers, "auth.users.local");
+        this.localHits = Counter.builder("auth.users.cache.requests")
+                .tag("level", "local").tag("result", "hit")
+                .register(meterRegistry);
+        this.localMisses = Counter.builder("auth.users.cache.requests")
+                .tag("level", "local").tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("auth.users.cache.hit.ratio", this, UserCacheService::localHitRatio)
+                .tag("level", "local")
+                .register(meterRegistry);
+        this.redisHits = Counter.builder("auth.users.cache.requests")
+                .tag("level", "redis").tag("result", "hit")
+                .register(meterRegistry);
+        this.redisMisses = Counter.builder("auth.users.cache.requests")
+                .tag("level", "redis").tag("result", "miss")
+                .register(meterRegistry);
+        this.redisLoadTimer = Timer.builder("auth.users.cache.load")
+                .tag("source", "redis")
+                .register(meterRegistry);
+        this.databaseLoadTimer = Timer.builder("auth.users.cache.load")
+                .tag("source", "database")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Utilisateur dont le username ou l'email vaut login, sans garantie sur le hash du mot de passe
+     * (absent s'il vient de Redis) ; les absents ne sont pas mis en cache
+     */
+    public Optional<CachedUser> findByLogin(String login) {
+        CachedUser user = findLocal(login);
+        if (user != null) {
+            localHits.increment();
+            return Optional.of(user);
+        }
+        localMisses.increment();
+
+        user = loadFromRedis(login);
+        if (user == null) {
+            user = loadFromDatabase(login);
+        }
+        if (user != null) {
+            putLocal(login, user);
+        }
+        return Optional.ofNullable(user);
+    }
+
+    /**
+     * Comme findByLogin, avec le hash du mot de passe pour l'authentification :
+     * niveau local s'il l'a, sinon la base, jamais Redis
+     */
+    public Optional<CachedUser> findCredentials(String login) {
+        CachedUser user = findLocal(login);
+        if (user != null && user.hasPassword()) {
+            localHits.increment();
+            return Optional.of(user);
+        }
+        localMisses.increment();
+
+        user = loadFromDatabase(login);
+        if (user != null) {
+            putLocal(login, user);
+        }
+        return Optional.ofNullable(user);
+    }
+
+    /**
+     * Invalide l'utilisateur partout, après le commit de la transaction en cours s'il y en a une
+     * (sinon une lecture concurrente remettrait l'ancienne ligne en cache)
+     */
+    public void evict(User user) {
+        evict(user.getId(), user.getUsername(), user.getEmail());
+    }
+
+    public void evict(Long userId, String username, String email) {
+        List<String> keys = List.of(redisKey(username), redisKey(email));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(userId, keys);
+                }
+            });
+        } else {
+            evictNow(userId, keys);
+        }
+    }
+
+    /**
+     * Message reçu sur le canal d'invalidation (y compris ceux publiés par cette instance)
+     */
+    public void onInvalidation(String message) {
+        try {
+            evictLocal(Long.parseLong(message));
+        } catch (NumberFormatException e) {
+            logger.warn("Ignoring malformed user invalidation: {}", message);
+        }
+    }
+
+    private void evictNow(Long userId, List<String> keys) {
+        evictLocal(userId);
+        try {
+            for (String key : keys) {
+                redisTemplate.opsForValue().set(key, TOMBSTONE, TOMBSTONE_TTL);
+            }
+            stringRedisTemplate.convertAndSend(AuthConstants.USER_INVALIDATION_CHANNEL, String.valueOf(userId));
+            logger.debug("Invalidated cached user ID: {}", userId);
+        } catch (DataAccessException e) {
+            // Les autres instances gardent l'ancienne version au plus le TTL local
+            logger.warn("Could not publish user invalidation for user ID {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private void evictLocal(Long userId) {
+        // Les entrées de localLogins vers cet id deviennent de simples défauts de cache
+        localUsers.invalidate(userId);
+    }
+
+    private CachedUser findLocal(String login) {
+        Long userId = localLogins.getIfPresent(login);
+        CachedUser user = userId != null ? localUsers.getIfPresent(userId) : null;
+        return user != null && user.matches(login) ? user : null;
+    }
+
+    private void putLocal(String login, CachedUser user) {
+        // Une identité venue de Redis ne remplace pas l'instantané complet du même utilisateur
+        localUsers.asMap().merge(user.id(), user, (cached, loaded) ->
+                !loaded.hasPassword() && cached.hasPassword() && cached.withoutPassword().equals(loaded)
+                        ? cached : loaded);
+        localLogins.put(login, user.id());
+    }
+
+    private double localHitRatio() {
+        double requests = localHits.count() + localMisses.count();
+        return requests == 0 ? 0 : localHits.count() / requests;
+    }
+
+    private CachedUser loadFromDatabase(String login) {
+        CachedUser user = databaseLoadTimer.record(() -> userRepository.findByUsername(login)
+                .or(() -> userRepository.findByEmail(login))
+                .map(CachedUser::from)
+                .orElse(null));
+        if (user != null) {
+            storeInRedis(login, user);
+        }
+        return user;
+    }
+
+    private CachedUser loadFromRedis(String login) {
+        try {
+            Object value = redisLoadTimer.record(() -> redisTemplate.opsForValue().get(redisKey(login)));
+            if (value instanceof CachedUser user && user.matches(login)) {
+                redisHits.increment();
+                // Le hash n'est jamais lu depuis le niveau partagé
+                return user.withoutPassword();
+            }
+        } catch (DataAccessException e) {
+            logger.debug("Redis unavailable for user cache: {}", e.getMessage());
+        } catch (RuntimeException e) {
+            // Entrée illisible (format d'une version précédente) : rechargée depuis la base
+            logger.debug("Unreadable cached user for {}: {}", login, e.getMessage());
+        }
+        redisMisses.increment();
+        return null;
+    }
+
+    private void storeInRedis(String login, CachedUser user) {
+        try {
+            redisTemplate.opsForValue().setIfAbsent(redisKey(login), user.withoutPassword(), redisTtl);
+        } catch (DataAccessException e) {
+            logger.debug("Could not store user in Redis cache: {}", e.getMessage());
+        }
+    }
+
+    private static String redisKey(String login) {
+        return AuthConstants.USER_CACHE_KEY_PREFIX + login;
+    }
+}
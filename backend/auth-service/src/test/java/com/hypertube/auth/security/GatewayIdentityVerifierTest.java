@@ -0,0 +1,75 @@
+package com.hypertube.auth.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Wire format of X-Gateway-Assertion: the vectors are the ones IdentityAssertionSignerTest
+ * produces on the gateway side with the same secret
+ */
+class GatewayIdentityVerifierTest {
+
+    private static final String SECRET = "identity-assertion-secret-for-hypertube-tests";
+
+    // Expire le 2100-01-01T00:00:00Z
+    private static final String ALICE = "v1.4102444800000.IPTL2uVfX6CrqLlaSSMZ-BYVcBhLWmTS8cFTWPUblbI";
+    private static final String ZOE = "v1.4102444800000.y5_x_Md75_yfcCa4nCjLYO7yCbn9tcwXk5HNan9x-LI";
+    private static final String LUKASZ = "v1.4102444800000.eKglTT-BoaBbZXPt-6IBa5z5vaG0nTk6RgEowBp9e98";
+    // Mêmes champs qu'ALICE, expirée le 2001-09-09
+    private static final String ALICE_EXPIRED = "v1.1000000000000.2rKE5Xb2t5M1JnmG1yKvI6UHH-g2KLk_n4wpmxHs57Y";
+
+    private GatewayIdentityVerifier verifier;
+
+    @BeforeEach
+    void setUp() {
+        verifier = new GatewayIdentityVerifier(SECRET, 5000);
+    }
+
+    @Test
+    void acceptsKnownAssertion() {
+        assertThat(verifier.verify(ALICE, "42", "alice", "alice@example.com", "ROLE_USER")).isTrue();
+    }
+
+    @Test
+    void rejectsTamperedField() {
+        assertThat(verifier.verify(ALICE, "43", "alice", "alice@example.com", "ROLE_USER")).isFalse();
+        assertThat(verifier.verify(ALICE, "42", "alice", "alice@example.com", "ROLE_ADMIN")).isFalse();
+        assertThat(verifier.verify(ALICE, "42", "alice", "alice@example.com", "ROLE_USER,ROLE_ADMIN")).isFalse();
+    }
+
+    @Test
+    void rejectsTamperedExpiry() {
+        String extended = ALICE.replace("4102444800000", "4102444900000");
+
+        assertThat(verifier.verify(extended, "42", "alice", "alice@example.com", "ROLE_USER")).isFalse();
+    }
+
+    @Test
+    void rejectsExpiredAssertion() {
+        assertThat(verifier.verify(ALICE_EXPIRED, "42", "alice", "alice@example.com", "ROLE_USER")).isFalse();
+    }
+
+    @Test
+    void acceptsLatin1UsernameAsReadByTheContainer() {
+        assertThat(verifier.verify(ZOE, "42", "zoë", "zoe@example.com", "ROLE_USER")).isTrue();
+        // Le même nom lu en UTF-8 ne correspond pas aux octets signés
+        assertThat(verifier.verify(ZOE, "42", "zoÃ«", "zoe@example.com", "ROLE_USER")).isFalse();
+    }
+
+    @Test
+    void acceptsUsernameBeyondLatin1AsSentByNetty() {
+        // "Łukasz" signé par la gateway arrive en "?ukasz"
+        assertThat(verifier.verify(LUKASZ, "43", "?ukasz", "lukasz@example.com", "ROLE_USER")).isTrue();
+    }
+
+    @Test
+    void rejectsMalformedAssertion() {
+        assertThat(verifier.verify(null, "42", "alice", "alice@example.com", "ROLE_USER")).isFalse();
+        assertThat(verifier.verify("v1", "42", "alice", "alice@example.com", "ROLE_USER")).isFalse();
+        assertThat(verifier.verify(ALICE.replace("v1.", "v2."), "42", "alice", "alice@example.com", "ROLE_USER")).isFalse();
+        assertThat(verifier.verify("v1.soon.AAAA", "42", "alice", "alice@example.com", "ROLE_USER")).isFalse();
+        assertThat(verifier.verify("v1.4102444800000.!!", "42", "alice", "alice@example.com", "ROLE_USER")).isFalse();
+    }
+}